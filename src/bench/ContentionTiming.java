@@ -0,0 +1,115 @@
+package bench;
+
+import model.InHouse;
+import model.Inventory;
+import model.Part;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+  Measures how Inventory throughput scales with the number of threads, at 1, 2, 4, 8, 16 and 32 threads. Three workloads are run over a
+  catalog of 100,000 parts: ID lookups, which use optimistic reads; stock adjustments, which take the read lock and change the level with
+  a compare and set; and price changes, which take the write lock. Each workload runs for a fixed time at each thread count and the total
+  operations per second are reported. A first pass at one thread warms the JIT up and is not reported.
+  Run with java bench.ContentionTiming, optionally giving the milliseconds each measurement runs for.
+  @author Nicholas Johnson
+ */
+public class ContentionTiming {
+
+    private static final int PART_COUNT = 100_000;
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+
+    /**
+      One kind of Inventory operation, run with a random part ID.
+     */
+    private interface Operation {
+        void run(int partId, ThreadLocalRandom random);
+    }
+
+    /**
+      Runs the measurement.
+      @param args milliseconds each measurement runs for, 1000 when not given.
+      @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        grow();
+        Operation reads = (partId, random) -> {
+            if (Inventory.lookupPart(partId) == null) {
+                throw new IllegalStateException("part " + partId + " is missing");
+            }
+        };
+        Operation adjusts = (partId, random) -> Inventory.adjustPartStock(partId, random.nextBoolean() ? 1 : -1);
+        Operation writes = (partId, random) -> Inventory.lookupPart(partId).setPriceCents(100 + random.nextInt(10_000));
+
+        measure(reads, 1, millis);
+        measure(adjusts, 1, millis);
+        measure(writes, 1, millis);
+        System.out.printf("%7s %16s %16s %16s%n", "threads", "reads/s", "adjusts/s", "writes/s");
+        for (int threads : THREAD_COUNTS) {
+            System.out.printf("%7d %,16d %,16d %,16d%n", threads, measure(reads, threads, millis),
+                    measure(adjusts, threads, millis), measure(writes, threads, millis));
+        }
+    }
+
+    /**
+      Runs an operation on a number of threads for a fixed time.
+      @param operation the operation.
+      @param threads number of threads.
+      @param millis how long to run for.
+      @return the total operations per second.
+      @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    private static long measure(Operation operation, int threads, long millis) throws InterruptedException {
+        AtomicLong total = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long end = deadline[0];
+                do {
+                    for (int k = 0; k < 256; k++) {
+                        operation.run(1 + random.nextInt(PART_COUNT), random);
+                    }
+                    count += 256;
+                } while (System.nanoTime() < end);
+                total.addAndGet(count);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long began = System.nanoTime();
+        deadline[0] = began + millis * 1_000_000;
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+        return total.get() * 1_000_000_000L / elapsed;
+    }
+
+    /**
+      Fills the Inventory with the parts the workloads use, with stock in the middle of their limits so adjustments keep succeeding.
+     */
+    private static void grow() {
+        List<Part> parts = new ArrayList<>(PART_COUNT);
+        for (int id = 1; id <= PART_COUNT; id++) {
+            parts.add(new InHouse(id, 500, 0, 1000, "Part " + id, 2.5, id % 31));
+        }
+        Inventory.addParts(parts);
+        Inventory.awaitPendingChanges();
+    }
+}
@@ -0,0 +1,123 @@
+package bench;
+
+import model.NameDictionary;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+  Measures the heap used by the name dictionary against the same names held as Strings, and how fast names are read from one and from
+  several threads. Run with a fixed heap, for example java -Xmx1g bench.NameDictionaryFootprint 200000.
+  The heap numbers come from Runtime after repeated garbage collections, so they are estimates; run a few times and compare.
+  @author Nicholas Johnson
+ */
+public class NameDictionaryFootprint {
+
+    private static final String[] FAMILIES = {"Road Bike", "Mountain Bike", "Touring Bike", "Cargo Bike", "Kids Bike", "Gravel Bike"};
+    private static final String[] PARTS = {"Frame", "Fork", "Wheel", "Tire", "Inner Tube", "Chain", "Crankset", "Brake Lever",
+            "Derailleur", "Saddle", "Seat Post", "Handlebar", "Stem", "Pedal", "Cassette"};
+    private static final String[] COLORS = {"Red", "Blue", "Black", "White", "Green", "Orange", "Silver"};
+
+    /**
+      Runs the measurement.
+      @param args the number of distinct names, 200000 when not given.
+      @throws Exception if a reader thread fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int nameCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        long before = usedHeap();
+        String[] strings = new String[nameCount];
+        long utf8Bytes = 0;
+        for (int i = 0; i < nameCount; i++) {
+            strings[i] = name(i);
+            utf8Bytes += strings[i].length();
+        }
+        long stringHeap = usedHeap() - before;
+
+        before = usedHeap();
+        NameDictionary names = new NameDictionary();
+        for (int i = 0; i < nameCount; i++) {
+            names.intern(name(i));
+        }
+        long dictionaryHeap = usedHeap() - before;
+
+        System.out.printf("names %d, UTF-8 bytes %d%n", nameCount, utf8Bytes);
+        System.out.printf("String[] heap      %,12d bytes%n", stringHeap);
+        System.out.printf("dictionary heap    %,12d bytes (byteSize %,d)%n", dictionaryHeap, names.byteSize());
+        System.out.printf("strings kept alive %d%n", strings.length);
+
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("get, 1 thread   %,8d ns per name%n", readNanos(names, nameCount, 1));
+            System.out.printf("get, %d thread(s) %,6d ns per name%n", threads, readNanos(names, nameCount, threads));
+        }
+    }
+
+    /**
+      Makes the name at an index. Names share prefixes the way catalogue names do, but neighbouring indexes do not share them.
+      @param index the index.
+      @return the name.
+     */
+    private static String name(int index) {
+        int mixed = index * 0x9E3779B9;
+        return FAMILIES[Math.floorMod(mixed, FAMILIES.length)] + " " + PARTS[Math.floorMod(mixed >>> 8, PARTS.length)] + " ("
+                + COLORS[Math.floorMod(mixed >>> 16, COLORS.length)] + ") " + index;
+    }
+
+    /**
+      Reads every name once from each thread and reports the wall time divided by the number of names. When reads do not block each other
+      the figure stays close to the one thread figure as threads are added. Most reads miss the dictionary cache, because each name is
+      read once per thread.
+      @param names the dictionary.
+      @param nameCount number of names in the dictionary.
+      @param threads number of reader threads.
+      @return wall time in nanoseconds per name.
+      @throws Exception if a reader thread fails.
+     */
+    private static long readNanos(NameDictionary names, int nameCount, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * 7919;
+                results.add(executor.submit(() -> {
+                    long length = 0;
+                    for (int i = 0; i < nameCount; i++) {
+                        length += names.get((i + offset) % nameCount).length();
+                    }
+                    return length;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> result : results) {
+                total += result.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (total == 0) {
+                throw new IllegalStateException("no names read");
+            }
+            return elapsed / nameCount;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+      Gets the heap in use after running the garbage collector a few times.
+      @return used heap in bytes.
+      @throws InterruptedException if interrupted while waiting for the collector.
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
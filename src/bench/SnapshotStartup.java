@@ -0,0 +1,92 @@
+package bench;
+
+import model.InHouse;
+import model.Inventory;
+import model.InventorySnapshot;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+  Measures how long startup takes to load a binary snapshot as the catalog grows, at 10,000, 100,000 and 1,000,000 parts unless other
+  sizes are given. For each size the Inventory is grown to that many parts, written to a snapshot, and the snapshot is loaded a few
+  times; the first load warms the JIT up. Each load is timed together with the first ID lookup and the first name search, since those
+  are the first reads a user makes after startup. Run with a heap that holds the largest catalog twice, for example java -Xmx3g bench.SnapshotStartup.
+  @author Nicholas Johnson
+ */
+public class SnapshotStartup {
+
+    private static final int LOADS = 5;
+
+    /**
+      Runs the measurement.
+      @param args part counts to measure, 10000 100000 1000000 when not given.
+      @throws Exception if the snapshot cannot be written or read.
+     */
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {10_000, 100_000, 1_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+            Arrays.sort(sizes);
+        }
+        Path file = Files.createTempFile("inventory", ".snapshot");
+        try {
+            for (int partCount : sizes) {
+                grow(partCount);
+                InventorySnapshot.write(file, 0);
+                long bytes = Files.size(file);
+                long best = Long.MAX_VALUE;
+                for (int load = 0; load < LOADS; load++) {
+                    long start = System.nanoTime();
+                    InventorySnapshot.load(file);
+                    if (Inventory.lookupPart(partCount / 2) == null || Inventory.lookupPart("Part 7").isEmpty()) {
+                        throw new IllegalStateException("snapshot lost parts");
+                    }
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                System.out.printf("%,10d parts, %,6d products, snapshot %,12d bytes, best load %,8.1f ms%n",
+                        partCount, Inventory.getAllProducts().size(), bytes, best / 1_000_000.0);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+      Grows the Inventory to a catalog of the given size: half InHouse and half Outsourced parts, and one product for every hundred parts
+      using three of them.
+      @param partCount number of parts, at least the number already in the Inventory.
+     */
+    private static void grow(int partCount) {
+        int firstPart = Inventory.getAllParts().size() + 1;
+        List<Part> parts = new ArrayList<>(partCount - firstPart + 1);
+        for (int id = firstPart; id <= partCount; id++) {
+            if (id % 2 == 0) {
+                parts.add(new Outsourced(id, 10, 1, 100, "Part " + id, 2.5, "Supplier " + id % 97));
+            } else {
+                parts.add(new InHouse(id, 10, 1, 100, "Part " + id, 1.25, id % 31));
+            }
+        }
+        Inventory.addParts(parts);
+        Inventory.awaitPendingChanges();
+        List<Product> products = new ArrayList<>();
+        for (int id = Inventory.getAllProducts().size() + 1; id <= partCount / 100; id++) {
+            Product product = new Product(id, "Product " + id, 20.0, 5, 1, 50);
+            for (int i = 0; i < 3; i++) {
+                product.addAssociatedPart(Inventory.lookupPart((id - 1) * 100 + i + 1));
+            }
+            products.add(product);
+        }
+        Inventory.addProducts(products);
+        Inventory.awaitPendingChanges();
+    }
+}
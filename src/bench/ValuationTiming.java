@@ -0,0 +1,105 @@
+package bench;
+
+import javafx.collections.ObservableList;
+import model.InHouse;
+import model.Inventory;
+import model.InventoryValuation;
+import model.Outsourced;
+import model.Part;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+  Compares the column based valuation of Inventory.getValuation with a plain loop over the parts list at 1,000,000 and 10,000,000 parts
+  unless other sizes are given. Both compute the InHouse and Outsourced stock value and the number of parts at or below their minimum,
+  and their results are checked against each other. Each is run a number of times to warm the JIT up and the best time is reported.
+  Run with a heap that holds the largest catalog, for example java -Xmx6g bench.ValuationTiming.
+  @author Nicholas Johnson
+ */
+public class ValuationTiming {
+
+    private static final int ROUNDS = 15;
+
+    /**
+      Runs the measurement.
+      @param args part counts to measure, 1000000 10000000 when not given.
+     */
+    public static void main(String[] args) {
+        int[] sizes = {1_000_000, 10_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        for (int partCount : sizes) {
+            grow(partCount);
+            ObservableList<Part> parts = Inventory.getAllParts();
+            long bestColumns = Long.MAX_VALUE;
+            long bestList = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                InventoryValuation valuation = Inventory.getValuation();
+                bestColumns = Math.min(bestColumns, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                long[] totals = valueList(parts);
+                bestList = Math.min(bestList, System.nanoTime() - start);
+
+                if (totals[0] != valuation.getInHouseValueCents() || totals[1] != valuation.getOutsourcedValueCents()
+                        || totals[2] != valuation.getPartsAtOrBelowMin()) {
+                    throw new IllegalStateException("valuations differ: " + valuation);
+                }
+            }
+            System.out.printf("%,11d parts: columns %,8.2f ms, list loop %,8.2f ms (%.1fx)%n", parts.size(),
+                    bestColumns / 1_000_000.0, bestList / 1_000_000.0, (double) bestList / bestColumns);
+        }
+    }
+
+    /**
+      Values the parts the way code did before the part store: one Part at a time through the list and its getters.
+      @param parts the parts list.
+      @return the InHouse value in cents, the Outsourced value in cents and the number at or below their minimum.
+     */
+    private static long[] valueList(List<Part> parts) {
+        long inHouseValue = 0;
+        long outsourcedValue = 0;
+        long atOrBelowMin = 0;
+        for (Part part : parts) {
+            long value = part.getStock() * part.getPriceCents();
+            if (part instanceof InHouse) {
+                inHouseValue += value;
+            } else {
+                outsourcedValue += value;
+            }
+            if (part.getStock() <= part.getMin()) {
+                atOrBelowMin++;
+            }
+        }
+        return new long[] {inHouseValue, outsourcedValue, atOrBelowMin};
+    }
+
+    /**
+      Grows the Inventory to the given number of parts, half InHouse and half Outsourced, with stock levels spread so some are at or below
+      their minimum. The parts are added a million at a time.
+      @param partCount number of parts.
+     */
+    private static void grow(int partCount) {
+        List<Part> parts = new ArrayList<>();
+        for (int id = Inventory.getAllParts().size() + 1; id <= partCount; id++) {
+            int stock = id % 50;
+            if (id % 2 == 0) {
+                parts.add(new Outsourced(id, stock, 5, 100, "Part " + id % 1000, 2.5 + id % 7, "Supplier " + id % 97));
+            } else {
+                parts.add(new InHouse(id, stock, 5, 100, "Part " + id % 1000, 1.25 + id % 5, id % 31));
+            }
+            if (parts.size() == 1_000_000) {
+                Inventory.addParts(parts);
+                parts.clear();
+            }
+        }
+        Inventory.addParts(parts);
+        Inventory.awaitPendingChanges();
+    }
+}
@@ -18,6 +18,7 @@ import model.InHouse;
 import model.Inventory;
 import model.Outsourced;
 import model.Part;
+import model.Price;
 
 /**
   Controller class for the Add Part Menu of the application. Allows the user to create a new part object.
@@ -101,15 +102,9 @@ public class AddPartMenuController implements Initializable {
     void onActionSavePart (ActionEvent event) throws IOException {
 
         try {
-            int id = 0;
-            for (Part part : Inventory.getAllParts()) {
-                if (part.getId() > id)
-                    id = (part.getId());
-                id = ++id;
-            }
             String partName = addPartNameTxt.getText();
             int stock = Integer.parseInt(addPartInvTxt.getText());
-            Double partPrice = Double.parseDouble(addPartPriceCostTxt.getText());
+            long partPrice = Price.parse(addPartPriceCostTxt.getText());
             int max = Integer.parseInt(addPartMaxTxt.getText());
             int min = Integer.parseInt(addPartMinTxt.getText());
             int machineId;
@@ -128,9 +123,8 @@ public class AddPartMenuController implements Initializable {
                 try {
                     if (addPartInHouseRBtn.isSelected()) {
                         machineId = Integer.parseInt(addPartMachineIdOrCompTxt.getText());
-                        InHouse newInHousePartAdd = new InHouse(id, stock, min, max, partName, partPrice, machineId);
+                        InHouse newInHousePartAdd = new InHouse(Inventory.nextPartId(), stock, min, max, partName, partPrice, machineId);
                         Inventory.addPart(newInHousePartAdd);
-                        Inventory.getPartsIdGenerator().getAndIncrement();
                         addPartIdTxt.setEditable(false);
                         partAdded = true;
                     }
@@ -139,10 +133,9 @@ public class AddPartMenuController implements Initializable {
                 }
                 if (addPartOutsourcedRBtn.isSelected()) {
                     companyName = addPartMachineIdOrCompTxt.getText();
-                    Outsourced newOutsourcePartAdd = new Outsourced(id, stock, min, max, partName, partPrice, companyName);
+                    Outsourced newOutsourcePartAdd = new Outsourced(Inventory.nextPartId(), stock, min, max, partName, partPrice, companyName);
                     addPartIdTxt.setEditable(false);
                     Inventory.addPart(newOutsourcePartAdd);
-                    Inventory.getPartsIdGenerator().getAndIncrement();
 
                     partAdded = true;
                 }
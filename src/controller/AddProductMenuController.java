@@ -197,15 +197,8 @@ public class AddProductMenuController implements Initializable {
      */
     @FXML
     void addProductSearch(ActionEvent event) {
-        ObservableList<Part> allParts = Inventory.getAllParts();
-        ObservableList<Part> partsMatch = FXCollections.observableArrayList();
         String searchString = addProductPartSearch.getText();
-
-        for (Part part : allParts) {
-            if (String.valueOf(part.getId()).contains(searchString) || part.getPartName().contains(searchString)) {
-                partsMatch.add(part);
-            }
-        }
+        ObservableList<Part> partsMatch = InventoryQuery.create().nameOrId(searchString).findParts();
         addProductAllPartsTable.setItems(partsMatch);
         if (partsMatch.size() == 0) {
             alertMessage(3);
@@ -226,15 +219,9 @@ public class AddProductMenuController implements Initializable {
     @FXML
     void onActionSaveProduct(ActionEvent event) throws IOException {
         try {
-            int id = 0;
-            for (Product product : Inventory.getAllProducts()) {
-                if (product.getId() > id)
-                    id = (product.getId());
-                id = ++id;
-            }
             String productName = addProductNameTxt.getText();
             int stock = Integer.parseInt(addProductInvTxt.getText());
-            Double price = Double.parseDouble(addProductPriceTxt.getText());
+            long price = Price.parse(addProductPriceTxt.getText());
             int max = Integer.parseInt(addProductMaxTxt.getText());
             int min = Integer.parseInt(addProductMinTxt.getText());
             String companyName = null;
@@ -248,12 +235,11 @@ public class AddProductMenuController implements Initializable {
                 alertMessage(5);
             }
             else {
-                Product newProduct = new Product(id, productName, price, stock, min, max);
+                Product newProduct = new Product(Inventory.nextProductId(), productName, price, stock, min, max);
                 for (Part part : assocParts) {
                     newProduct.addAssociatedPart(part);
                 }
                 Inventory.addProduct(newProduct);
-                Inventory.getProductsIdGenerator().getAndIncrement();
                 onActionDisplayMainMenu(event);
             }
             } catch (Exception e){
@@ -388,20 +374,15 @@ public class AddProductMenuController implements Initializable {
 
         FilteredList<Part> partFilteredList = new FilteredList<>(getAllParts(), b -> true);
 
-        addProductPartSearch.textProperty().addListener((observable, oldValue, newValue) ->{
-            partFilteredList.setPredicate((part -> {
-                if(newValue == null || newValue.isEmpty()){
-                    return true;
-                }
-                String lowerCaseFilter = newValue.toLowerCase();
-                if(part.getPartName().toLowerCase().indexOf(lowerCaseFilter) != -1 ) {
-                    return true;
-                }
-                else if (String.valueOf(part.getId()).indexOf(lowerCaseFilter) != -1)
-                    return true;
-                else
-                    return false;
-            }));
+        DebouncedSearch<IntHashSet> partSearch = new DebouncedSearch<>(Inventory::searchPartIds,
+                matches -> partFilteredList.setPredicate(part -> matches.contains(part.getId())));
+        addProductPartSearch.textProperty().addListener((observable, oldValue, newValue) -> {
+            if(newValue == null || newValue.isEmpty()){
+                partSearch.cancel();
+                partFilteredList.setPredicate(part -> true);
+                return;
+            }
+            partSearch.submit(newValue);
         });
 
         SortedList<Part> partSortedList = new SortedList<>(partFilteredList);
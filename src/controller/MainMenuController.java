@@ -5,6 +5,7 @@ import java.net.URL;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import javafx.application.Platform;
 import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 import javafx.collections.FXCollections;
@@ -20,7 +21,10 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 import javafx.scene.input.KeyEvent;
+import model.DebouncedSearch;
+import model.IntHashSet;
 import model.Inventory;
+import model.PagedObservableList;
 import model.Part;
 import model.Product;
 import static model.Inventory.*;
@@ -124,6 +128,30 @@ public class MainMenuController implements Initializable {
     @FXML
     private TableColumn<Product, Double> productsPriceCostPerUnit;
 
+    /**
+      Paged list of all parts in ID order. Shown while the parts table is not searched or sorted by another column, so the table opens
+      without loading or sorting the whole parts list.
+     */
+    private PagedObservableList<Part> pagedParts;
+
+    /**
+      Filtered and sorted view of the parts list, used for searches and other sort orders. Made the first time it is needed, since it keeps
+      an entry for every part.
+     */
+    private FilteredList<Part> partFilteredList;
+    private SortedList<Part> partSortedList;
+
+    /**
+      Paged list of all products in ID order. Works the same way as pagedParts.
+     */
+    private PagedObservableList<Product> pagedProducts;
+
+    /**
+      Filtered and sorted view of the products list. Works the same way as partSortedList.
+     */
+    private FilteredList<Product> productFilteredList;
+    private SortedList<Product> productSortedList;
+
     /**
       Gets the user-selected part object from the part table. This part can then be modified.
       @return A part object or null if none is selected.
@@ -181,23 +209,19 @@ public class MainMenuController implements Initializable {
       Searches the parts table based off user-entered values. The parts list updates
       as the user continues to enter data.
 
-      Searches may be conducted using ID or Name.
+      Searches may be conducted using ID or Name. The button uses the same rule and the same filtered list as the search box, so sorting
+      the table keeps the results.
       @param actionEvent Search button action for Part.
      */
     @FXML
     void onActionSearchPart(ActionEvent actionEvent) {
 
-        ObservableList<Part> allParts = Inventory.getAllParts();
-        ObservableList<Part> partsFound = FXCollections.observableArrayList();
         String searchString = mainMenuPartSearch.getText();
-
-        for (Part part : allParts) {
-            if (String.valueOf(part.getId()).contains(searchString) || part.getPartName().contains(searchString)) {
-                partsFound.add(part);
-            }
-        }
-        partsTableView.setItems(partsFound);
-        if (partsFound.size() == 0) {
+        IntHashSet matches = Inventory.searchPartIds(searchString);
+        partSortedList();
+        partFilteredList.setPredicate(part -> matches.contains(part.getId()));
+        showParts();
+        if (matches.size() == 0) {
             alertMessage(4);
         }
     }
@@ -210,17 +234,12 @@ public class MainMenuController implements Initializable {
      */
     @FXML
     void onActionSearchProduct(ActionEvent event) {
-        ObservableList<Product> allProducts = Inventory.getAllProducts();
-        ObservableList<Product> productsFound = FXCollections.observableArrayList();
         String searchString = mainMenuProductSearch.getText();
-
-        for (Product product : allProducts) {
-            if (String.valueOf(product.getId()).contains(searchString) || product.getProductName().contains(searchString)) {
-                productsFound.add(product);
-            }
-        }
-        productsTableView.setItems(productsFound);
-        if (productsFound.size() == 0) {
+        IntHashSet matches = Inventory.searchProductIds(searchString);
+        productSortedList();
+        productFilteredList.setPredicate(product -> matches.contains(product.getId()));
+        showProducts();
+        if (matches.size() == 0) {
             alertMessage(1);
         }
     }
@@ -232,7 +251,7 @@ public class MainMenuController implements Initializable {
     @FXML
     void partSearchTextKeyPressed(KeyEvent event) {
         if (mainMenuPartSearch.getText().isEmpty()) {
-            partsTableView.setItems(Inventory.getAllParts());
+            showParts();
         }
     }
 
@@ -241,6 +260,7 @@ public class MainMenuController implements Initializable {
 
       An error message is displayed should the user fail to select a part and presses the delete part button.
       A confirmation window will prompt the user if they wish to proceed before part deletion is confirmed.
+      If products use the part as an associated part, the confirmation names them, since they keep the part after it is deleted.
       @param event Delete button action for Part.
      */
     @FXML
@@ -252,7 +272,20 @@ public class MainMenuController implements Initializable {
         } else {
             Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
             alert.setTitle("Delete Confirmation");
-            alert.setContentText("Are you sure you want to delete the selected record?");
+            ObservableList<Product> usedBy = Inventory.lookupProductsUsingPart(selectedPart.getId());
+            if (usedBy.isEmpty()) {
+                alert.setContentText("Are you sure you want to delete the selected record?");
+            } else {
+                StringBuilder productNames = new StringBuilder();
+                for (int i = 0; i < usedBy.size() && i < 5; i++) {
+                    productNames.append(i == 0 ? "" : ", ").append(usedBy.get(i).getProductName());
+                }
+                if (usedBy.size() > 5) {
+                    productNames.append(" and ").append(usedBy.size() - 5).append(" more");
+                }
+                alert.setContentText("This part is associated with " + usedBy.size() + " product(s): " + productNames
+                        + ". The products will keep the part. Are you sure you want to delete the selected record?");
+            }
             Optional<ButtonType> result = alert.showAndWait();
 
             if (result.isPresent() && result.get() == ButtonType.OK) {
@@ -305,7 +338,7 @@ public class MainMenuController implements Initializable {
     @FXML
     void productSearchTextKeyPressed(KeyEvent event) {
         if (mainMenuProductSearch.getText().isEmpty()) {
-            productsTableView.setItems(Inventory.getAllProducts());
+            showProducts();
         }
     }
 
@@ -339,6 +372,68 @@ public class MainMenuController implements Initializable {
         }
     }
 
+    /**
+      Shows the paged parts list when the parts table is neither searched nor sorted by anything but ascending ID, which is the order of
+      the paged list; otherwise shows the filtered and sorted parts list.
+     */
+    private void showParts() {
+        boolean searching = mainMenuPartSearch.getText() != null && !mainMenuPartSearch.getText().isEmpty();
+        ObservableList<Part> items = !searching && isIdOrder(partsTableView, partsPartIdCol) ? pagedParts : partSortedList();
+        if (partsTableView.getItems() != items) {
+            partsTableView.setItems(items);
+        }
+    }
+
+    /**
+      Shows the paged or the filtered and sorted products list. Works the same way as showParts.
+     */
+    private void showProducts() {
+        boolean searching = mainMenuProductSearch.getText() != null && !mainMenuProductSearch.getText().isEmpty();
+        ObservableList<Product> items = !searching && isIdOrder(productsTableView, productsProductIdCol)
+                ? pagedProducts : productSortedList();
+        if (productsTableView.getItems() != items) {
+            productsTableView.setItems(items);
+        }
+    }
+
+    /**
+      Gets the filtered and sorted parts list, making it the first time. Its order follows the parts table sort order.
+      @return the sorted list.
+     */
+    private SortedList<Part> partSortedList() {
+        if (partSortedList == null) {
+            partFilteredList = new FilteredList<>(getAllParts(), b -> true);
+            partSortedList = new SortedList<>(partFilteredList);
+            partSortedList.comparatorProperty().bind(partsTableView.comparatorProperty());
+        }
+        return partSortedList;
+    }
+
+    /**
+      Gets the filtered and sorted products list, making it the first time. Works the same way as partSortedList.
+      @return the sorted list.
+     */
+    private SortedList<Product> productSortedList() {
+        if (productSortedList == null) {
+            productFilteredList = new FilteredList<>(getAllProducts(), b -> true);
+            productSortedList = new SortedList<>(productFilteredList);
+            productSortedList.comparatorProperty().bind(productsTableView.comparatorProperty());
+        }
+        return productSortedList;
+    }
+
+    /**
+      Checks whether a table is unsorted or sorted by ascending ID only.
+      @param table the table.
+      @param idColumn the ID column of the table.
+      @return true if the rows should be in ascending ID order.
+     */
+    private static <S> boolean isIdOrder(TableView<S> table, TableColumn<S, ?> idColumn) {
+        ObservableList<TableColumn<S, ?>> sortOrder = table.getSortOrder();
+        return sortOrder.isEmpty()
+                || (sortOrder.size() == 1 && sortOrder.get(0) == idColumn && idColumn.getSortType() == TableColumn.SortType.ASCENDING);
+    }
+
     /**
       Various alert Messages assigned to variables for more concise coding. These messages display where issues would otherwise cause the program to crash.
       @param alertNumber Alert message selector.
@@ -380,11 +475,12 @@ public class MainMenuController implements Initializable {
 
     /**
       This button exits the program. The user can also use the red X in the top right corner.
+      The program is closed through Platform.exit so Main.stop runs and the Inventory is saved.
       @param event Exit button action.
      */
     @FXML
     void onActionExit(ActionEvent event) {
-        System.exit(0);
+        Platform.exit();
 
     }
 
@@ -396,53 +492,62 @@ public class MainMenuController implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle rb){
 
-        partsTableView.setItems(Inventory.getAllParts());
+        pagedParts = Inventory.getPagedParts();
+        partsTableView.setItems(pagedParts);
         partsPartIdCol.setCellValueFactory(new PropertyValueFactory<>("id"));
         partPartsNameCol.setCellValueFactory(new PropertyValueFactory<>("partName"));
         partInventoryLevelCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
         partPriceCostPerUnitCol.setCellValueFactory(new PropertyValueFactory<>("price"));
 
 
-        productsTableView.setItems(Inventory.getAllProducts());
+        pagedProducts = Inventory.getPagedProducts();
+        productsTableView.setItems(pagedProducts);
         productsProductIdCol.setCellValueFactory(new PropertyValueFactory<>("id"));
         productsProductNameCol.setCellValueFactory(new PropertyValueFactory<>("productName"));
         productsInventoryLevelCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
         productsPriceCostPerUnit.setCellValueFactory(new PropertyValueFactory<>("price"));
 
-        FilteredList<Part> partFilteredList = new FilteredList<>(getAllParts(), b -> true);
+        partsTableView.setSortPolicy(table -> {
+            Platform.runLater(this::showParts);
+            return true;
+        });
+        DebouncedSearch<IntHashSet> partSearch = new DebouncedSearch<>(Inventory::searchPartIds, matches -> {
+            partSortedList();
+            partFilteredList.setPredicate(part -> matches.contains(part.getId()));
+            showParts();
+        });
         mainMenuPartSearch.textProperty().addListener((observable, oldValue, newValue) -> {
-            partFilteredList.setPredicate(part -> {
-                if(newValue == null || newValue.isEmpty()){
-                    return true;
-                }
-                String lowerCaseFilter = newValue.toLowerCase();
-                if (part.getPartName().toLowerCase().contains(lowerCaseFilter)) {
-                    return true;
+            if(newValue == null || newValue.isEmpty()){
+                partSearch.cancel();
+                if (partFilteredList != null) {
+                    partFilteredList.setPredicate(part -> true);
                 }
-                else return String.valueOf(part.getId()).contains(lowerCaseFilter);
-            });
+                showParts();
+                return;
+            }
+            partSearch.submit(newValue);
         });
 
-        SortedList<Part> partSortedList = new SortedList<>(partFilteredList);
-        partSortedList.comparatorProperty().bind(partsTableView.comparatorProperty());
-        partsTableView.setItems(partSortedList);
-
-        FilteredList<Product> productFilteredList = new FilteredList<>(getAllProducts(), b -> true);
+        productsTableView.setSortPolicy(table -> {
+            Platform.runLater(this::showProducts);
+            return true;
+        });
+        DebouncedSearch<IntHashSet> productSearch = new DebouncedSearch<>(Inventory::searchProductIds, matches -> {
+            productSortedList();
+            productFilteredList.setPredicate(product -> matches.contains(product.getId()));
+            showProducts();
+        });
         mainMenuProductSearch.textProperty().addListener((observable, oldValue, newValue) -> {
-            productFilteredList.setPredicate(product -> {
-                if(newValue == null || newValue.isEmpty()){
-                    return true;
-                }
-                String lowerCaseFilter = newValue.toLowerCase();
-                if (product.getProductName().toLowerCase().contains(lowerCaseFilter)) {
-                    return true;
+            if(newValue == null || newValue.isEmpty()){
+                productSearch.cancel();
+                if (productFilteredList != null) {
+                    productFilteredList.setPredicate(product -> true);
                 }
-                else return String.valueOf(product.getId()).contains(lowerCaseFilter);
-            });
+                showProducts();
+                return;
+            }
+            productSearch.submit(newValue);
         });
-        SortedList<Product> productSortedList = new SortedList<>(productFilteredList);
-        productSortedList.comparatorProperty().bind(productsTableView.comparatorProperty());
-        productsTableView.setItems(productSortedList);
 
     }
 
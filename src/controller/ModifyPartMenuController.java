@@ -17,6 +17,7 @@ import model.InHouse;
 import model.Inventory;
 import model.Outsourced;
 import model.Part;
+import model.Price;
 
 /**
   Controller class providing the logic controls for the modify part menu. Allows the user to modify existing parts.
@@ -30,6 +31,11 @@ public class ModifyPartMenuController implements Initializable{
      */
     private Part selectedPart;
 
+    /**
+      Version of the selected part when the menu opened. A save is refused if the part was replaced or changed in place since then.
+     */
+    private int selectedPartVersion;
+
     /**
       The Machine ID or Company Name label for the part. Changing the radio button will determine which text is displayed.
      */
@@ -112,12 +118,12 @@ public class ModifyPartMenuController implements Initializable{
             int id = selectedPart.getId();
             String partName = modifyPartNameTxt.getText();
             int stock = Integer.parseInt(modifyPartInvTxt.getText());
-            double price = Double.parseDouble(modifyPartPriceCostTxt.getText());
+            long price = Price.parse(modifyPartPriceCostTxt.getText());
             int max = Integer.parseInt(modifyPartMaxTxt.getText());
             int min = Integer.parseInt(modifyPartMinTxt.getText());
             int machineId;
             String companyName;
-            boolean partAddSuccess = false;
+            Part newPart = null;
 
             if (partName.isEmpty()) {
                 alertMessage(5);
@@ -130,8 +136,7 @@ public class ModifyPartMenuController implements Initializable{
                     if (modifyPartInHouseRBtn.isSelected()) {
                         machineId = Integer.parseInt(modifyPartMachineIdOrCompTxt.getText());
                         InHouse newInHousePartAdd = new InHouse(id, stock, min, max, partName, price, machineId);
-                        Inventory.addPart(newInHousePartAdd);
-                        partAddSuccess = true;
+                        newPart = newInHousePartAdd;
                     }
                 } catch (Exception e) {
                     alertMessage(1);
@@ -139,12 +144,14 @@ public class ModifyPartMenuController implements Initializable{
                 if (modifyPartOutsourcedRBtn.isSelected()) {
                     companyName = modifyPartMachineIdOrCompTxt.getText();
                     Outsourced newOutsourcedPartAdd = new Outsourced(id, stock, min, max, partName, price, companyName);
-                    Inventory.addPart(newOutsourcedPartAdd);
-                    partAddSuccess = true;
+                    newPart = newOutsourcedPartAdd;
                 }
-                if (partAddSuccess) {
-                    Inventory.swapPartModifyMenu(selectedPart);
-                    onActionReturnToMain(event);
+                if (newPart != null) {
+                    if (Inventory.replacePart(id, newPart, selectedPartVersion)) {
+                        onActionReturnToMain(event);
+                    } else {
+                        alertMessage(6);
+                    }
                 }
             }
         } catch (Exception e) {
@@ -270,6 +277,12 @@ public class ModifyPartMenuController implements Initializable{
                 alert.setContentText("Name field must contain a valid value.");
                 alert.showAndWait();
                 break;
+            case 6:
+                alert.setTitle("Error");
+                alert.setHeaderText("Error Modifying Part");
+                alert.setContentText("This part was changed or deleted after the menu was opened. Return to the main menu and try again.");
+                alert.showAndWait();
+                break;
         }
     }
 
@@ -282,6 +295,7 @@ public class ModifyPartMenuController implements Initializable{
     public void initialize(URL url, ResourceBundle rb) {
         //the hand-off
         selectedPart = MainMenuController.getPartToModify();
+        selectedPartVersion = selectedPart.getVersion();
 
         if (selectedPart instanceof InHouse) {
             modifyPartInHouseRBtn.setSelected(true);
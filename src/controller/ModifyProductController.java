@@ -35,6 +35,10 @@ public class ModifyProductController implements Initializable{
       Product object selected from the Main Menu. This will be the product that is modified.
      */
     Product selectedProduct;
+    /**
+      Version of the selected product when the menu opened. A save is refused if the product was replaced or changed in place since then.
+     */
+    private int selectedProductVersion;
 
     /**
       List of parts associated with the product. The list will be empty if there are no associated parts, and must be empty for product deletion to occur.
@@ -191,15 +195,8 @@ public class ModifyProductController implements Initializable{
     @FXML
     void modifyProductSearch(ActionEvent event) {
 
-        ObservableList<Part> allParts = Inventory.getAllParts();
-        ObservableList<Part> partsFound = FXCollections.observableArrayList();
         String searchString = modifyProductPartSearch.getText();
-
-        for (Part part : allParts) {
-            if (String.valueOf(part.getId()).contains(searchString) || part.getPartName().contains(searchString)) {
-                partsFound.add(part);
-            }
-        }
+        ObservableList<Part> partsFound = InventoryQuery.create().nameOrId(searchString).findParts();
         modifyProductAllPartsTbl.setItems(partsFound);
         if (partsFound.size() == 0) {
             alertMessage(3);
@@ -260,6 +257,12 @@ public class ModifyProductController implements Initializable{
                 alert.setHeaderText("Part not found");
                 alert.showAndWait();
                 break;
+            case 7:
+                alert.setTitle("Error");
+                alert.setHeaderText("Issue Modifying Product");
+                alert.setContentText("This product was changed or deleted after the menu was opened. Return to the main menu and try again.");
+                alert.showAndWait();
+                break;
         }
     }
 
@@ -304,7 +307,7 @@ public class ModifyProductController implements Initializable{
         try {
             int id = selectedProduct.getId();
             String productName = modifyProductNameTxt.getText();
-            Double price = Double.parseDouble(modifyProductPriceTxt.getText());
+            long price = Price.parse(modifyProductPriceTxt.getText());
             int stock = Integer.parseInt(modifyProductInvTxt.getText());
             int min = Integer.parseInt(modifyProductMinTxt.getText());
             int max = Integer.parseInt(modifyProductMaxTxt.getText());
@@ -322,9 +325,11 @@ public class ModifyProductController implements Initializable{
                 for (Part part : assocParts) {
                     newProduct.addAssociatedPart(part);
                 }
-                Inventory.addProduct(newProduct);
-                Inventory.swapProductModifyMenu(selectedProduct);
-                onActionReturnToMain(event); //Is this the issue?
+                if (Inventory.replaceProduct(id, newProduct, selectedProductVersion)) {
+                    onActionReturnToMain(event);
+                } else {
+                    alertMessage(7);
+                }
             }
         } catch (Exception e) {
             alertMessage(4);
@@ -371,7 +376,8 @@ public class ModifyProductController implements Initializable{
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         selectedProduct = MainMenuController.getProductToModify();
-        assocParts = selectedProduct.getAllAssociatedParts();
+        selectedProductVersion = selectedProduct.getVersion();
+        assocParts = FXCollections.observableArrayList(selectedProduct.getAllAssociatedParts());
 
         modifyProductAllPartsTbl.setItems(Inventory.getAllParts());
         allPartsPartIdCol.setCellValueFactory(new PropertyValueFactory<>("id"));
@@ -387,24 +393,22 @@ public class ModifyProductController implements Initializable{
         assocPartsPriceCostPerUnitCol.setCellValueFactory(new PropertyValueFactory<>("price"));
 
         FilteredList<Part> partFilteredList = new FilteredList<>(getAllParts(), b -> true);
+        DebouncedSearch<IntHashSet> partSearch = new DebouncedSearch<>(Inventory::searchPartIds,
+                matches -> partFilteredList.setPredicate(part -> matches.contains(part.getId())));
         modifyProductPartSearch.textProperty().addListener((observable, oldValue, newValue) -> {
-            partFilteredList.setPredicate(part -> {
-                if(newValue == null || newValue.isEmpty()){
-                    return true;
-                }
-                String lowerCaseFilter = newValue.toLowerCase();
-                if (part.getPartName().toLowerCase().contains(lowerCaseFilter)) {
-                    return true;
-                }
-                else return String.valueOf(part.getId()).contains(lowerCaseFilter);
-            });
+            if(newValue == null || newValue.isEmpty()){
+                partSearch.cancel();
+                partFilteredList.setPredicate(part -> true);
+                return;
+            }
+            partSearch.submit(newValue);
         });
         SortedList<Part> sortedParts = new SortedList<>(partFilteredList);
         sortedParts.comparatorProperty().bind(modifyProductAllPartsTbl.comparatorProperty());
         modifyProductAllPartsTbl.setItems(sortedParts);
 
         selectedProduct = MainMenuController.getProductToModify();
-        assocParts = selectedProduct.getAllAssociatedParts();
+        assocParts = FXCollections.observableArrayList(selectedProduct.getAllAssociatedParts());
         modifyProductAssocPartsTbl.setItems(assocParts);
 
         modifyProductIdTxt.setText(String.valueOf(selectedProduct.getId()));
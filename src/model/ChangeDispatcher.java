@@ -0,0 +1,138 @@
+package model;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+  Runs Inventory changes on the JavaFX application thread, in the order they were submitted. The observable lists behind the table views
+  may only change on that thread, so changes made by background threads are queued and run there.
+  Before the program attaches the FX thread, and on the FX thread itself, changes run straight away in the calling thread.
+  @author Nicholas Johnson
+ */
+final class ChangeDispatcher {
+
+    /**
+      How long a waiting thread sleeps before checking whether the FX thread was detached.
+     */
+    private static final long WAIT_MILLIS = 100;
+
+    /**
+      Changes waiting for the FX thread.
+     */
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+      Set while a drain of the queue is scheduled on the FX thread, so a burst of changes schedules only one.
+     */
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    /**
+      True while changes from other threads are sent to the FX thread.
+     */
+    private volatile boolean fxThreadAttached;
+
+    /**
+      Starts or stops sending changes to the FX thread. When detaching, changes still queued are run in the calling thread first.
+      @param attached true once the FX toolkit is running, false before it stops.
+     */
+    void setFxThreadAttached(boolean attached) {
+        fxThreadAttached = attached;
+        if (!attached) {
+            drain();
+        }
+    }
+
+    /**
+      Submits a change without waiting for it to run.
+      @param change the change to run.
+     */
+    void submit(Runnable change) {
+        if (runsDirectly()) {
+            drain();
+            change.run();
+            return;
+        }
+        pending.add(change);
+        if (drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                drainScheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    /**
+      Submits a change and waits until it has run.
+      @param change the change to run.
+      @return the result of the change, or false if the waiting thread was interrupted.
+     */
+    boolean submitAndWait(BooleanSupplier change) {
+        if (runsDirectly()) {
+            drain();
+            return change.getAsBoolean();
+        }
+        FutureTask<Boolean> task = new FutureTask<>(change::getAsBoolean);
+        submit(task);
+        return await(task);
+    }
+
+    /**
+      Waits until every change submitted so far has run.
+     */
+    void awaitPending() {
+        submitAndWait(() -> true);
+    }
+
+    /**
+      Checks whether a change can run in the calling thread.
+      @return true if the FX thread is not attached or is the calling thread.
+     */
+    private boolean runsDirectly() {
+        return !fxThreadAttached || Platform.isFxApplicationThread();
+    }
+
+    /**
+      Waits for a queued change. If the FX thread is detached while waiting, the queue is run in the waiting thread instead.
+      @param task the queued change.
+      @return the result of the change, or false if the waiting thread was interrupted.
+     */
+    private boolean await(FutureTask<Boolean> task) {
+        while (true) {
+            try {
+                return task.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (!fxThreadAttached) {
+                    drain();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /**
+      Runs the queued changes in order. A change that throws is reported to the thread's exception handler and the rest still run.
+     */
+    private void drain() {
+        Runnable change;
+        while ((change = pending.poll()) != null) {
+            try {
+                change.run();
+            } catch (RuntimeException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+}
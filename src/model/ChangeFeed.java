@@ -0,0 +1,220 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+  Ring buffer of Inventory change events. Every event gets a sequence number and is written into a slot of preallocated primitive arrays,
+  so publishing does not allocate and does not depend on the FX toolkit. Readers follow the feed at their own pace with a Reader and never
+  block the writer; a reader that falls more than a full buffer behind skips the overwritten events and counts them as lost.
+
+  There can be many writers at once. Stock adjustments publish under the Inventory read lock, so several threads may publish together;
+  sequence numbers are claimed with an atomic counter and each slot is guarded by its own sequence, written last, which readers check
+  before and after reading the slot.
+
+  Ordering: events published under the write lock are in the order of the changes. Events of adjustments running at the same time are in
+  the order their sequence numbers were claimed, which need not be the order the adjustments bumped the item versions or were logged. Two
+  UPDATED events for one ID may therefore arrive in the opposite order to the version bumps. Events only say what changed, so a consumer
+  should read the current part or product from the Inventory when it handles one, not assume the event order matches the version order.
+  @author Nicholas Johnson
+ */
+public class ChangeFeed {
+
+    /**
+      Entity type of part events.
+     */
+    public static final byte PART = 1;
+
+    /**
+      Entity type of product events.
+     */
+    public static final byte PRODUCT = 2;
+
+    /**
+      Event type for an item added to the Inventory.
+     */
+    public static final byte CREATED = 1;
+
+    /**
+      Event type for an item replaced or changed in place.
+     */
+    public static final byte UPDATED = 2;
+
+    /**
+      Event type for an item removed from the Inventory.
+     */
+    public static final byte DELETED = 3;
+
+    /**
+      Event type for the whole Inventory being replaced, for example by a snapshot load. The ID is 0; readers should reload everything.
+     */
+    public static final byte RESET = 4;
+
+    /**
+      Ordered access to the slot sequence numbers.
+     */
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+      Sequence number of the event in each slot, or -1 while the slot is empty or being written.
+     */
+    private final long[] sequences;
+    private final byte[] entities;
+    private final byte[] types;
+    private final int[] ids;
+
+    /**
+      Slot count minus one. The slot count is a power of two.
+     */
+    private final int mask;
+
+    /**
+      Next sequence number to claim.
+     */
+    private final AtomicLong cursor = new AtomicLong();
+
+    /**
+      Constructor for a feed holding a number of events.
+      @param capacity number of events kept before the oldest are overwritten, rounded up to a power of two.
+     */
+    public ChangeFeed(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        sequences = new long[size];
+        Arrays.fill(sequences, -1L);
+        entities = new byte[size];
+        types = new byte[size];
+        ids = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+      Publishes an event. Safe to call from several threads at once; see the class comment for the order readers see the events in.
+      @param entity PART or PRODUCT.
+      @param type CREATED, UPDATED, DELETED or RESET.
+      @param id ID of the part or product.
+      @return the sequence number of the event.
+     */
+    public long publish(byte entity, byte type, int id) {
+        long sequence = cursor.getAndIncrement();
+        int slot = (int) sequence & mask;
+        SEQUENCE.setOpaque(sequences, slot, -1L);
+        VarHandle.storeStoreFence();
+        entities[slot] = entity;
+        types[slot] = type;
+        ids[slot] = id;
+        SEQUENCE.setRelease(sequences, slot, sequence);
+        return sequence;
+    }
+
+    /**
+      Gets the sequence number the next event will get.
+      @return the next sequence number.
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+      Gets the number of events the feed keeps.
+      @return the capacity.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+      Creates a reader that starts with the next event published.
+      @return the reader.
+     */
+    public Reader newReader() {
+        return new Reader(cursor.get());
+    }
+
+    /**
+      Receives events from a Reader. The arguments are primitives, so delivering an event does not allocate.
+     */
+    @FunctionalInterface
+    public interface Handler {
+
+        /**
+          Called for each event in sequence order.
+          @param sequence the sequence number of the event.
+          @param entity PART or PRODUCT.
+          @param type CREATED, UPDATED, DELETED or RESET.
+          @param id ID of the part or product.
+         */
+        void onChange(long sequence, byte entity, byte type, int id);
+    }
+
+    /**
+      Position of one consumer in the feed. A reader is used by one thread at a time; each consumer makes its own.
+     */
+    public class Reader {
+
+        /**
+          Sequence number of the next event to read.
+         */
+        private long next;
+
+        /**
+          Number of events overwritten before this reader got to them.
+         */
+        private long lost;
+
+        private Reader(long start) {
+            next = start;
+        }
+
+        /**
+          Reads the events that are ready, up to a limit. Stops at the first event that is claimed but not yet fully written.
+          @param handler receives the events.
+          @param limit most events to read.
+          @return number of events read.
+         */
+        public int poll(Handler handler, int limit) {
+            int count = 0;
+            while (count < limit) {
+                int slot = (int) next & mask;
+                long published = (long) SEQUENCE.getAcquire(sequences, slot);
+                if (published < next) {
+                    break;
+                }
+                if (published > next) {
+                    long oldest = published - mask;
+                    lost += oldest - next;
+                    next = oldest;
+                    continue;
+                }
+                byte entity = entities[slot];
+                byte type = types[slot];
+                int id = ids[slot];
+                VarHandle.loadLoadFence();
+                if ((long) SEQUENCE.getOpaque(sequences, slot) != next) {
+                    continue;
+                }
+                handler.onChange(next, entity, type, id);
+                next++;
+                count++;
+            }
+            return count;
+        }
+
+        /**
+          Gets the sequence number of the next event this reader will read.
+          @return the next sequence number.
+         */
+        public long getNextSequence() {
+            return next;
+        }
+
+        /**
+          Gets the number of events that were overwritten before this reader read them.
+          @return the lost event count.
+         */
+        public long getLostCount() {
+            return lost;
+        }
+    }
+}
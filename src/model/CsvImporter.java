@@ -0,0 +1,440 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+  Streaming importer for parts and products stored in CSV files. The file is read one line at a time and rows are added to the Inventory
+  in chunks, so memory use depends on the chunk size and not on the size of the file.
+
+  Each row is "type,name,price,stock,min,max,extra". The type is InHouse, Outsourced or Product. The extra column holds the machine ID of an
+  InHouse part, the company name of an Outsourced part, or the IDs of a product's associated parts separated by ';'. Fields may be quoted
+  with '"'. Blank lines, lines starting with '#' and a header row starting with "type" are skipped, as is a UTF-8 byte order mark.
+
+  Rows are checked the same way the add menus check user input: the name must not be empty, min must be between 0 and max, and the
+  inventory level must be between min and max. Rows that fail are counted and skipped. IDs are taken from the Inventory ID allocators.
+  A part row may give its ID in the file in an eighth column, so products can use parts from earlier in the same file. In the associated
+  part IDs of a product, "@12" means the part given file ID 12 and a plain "12" means the Inventory part with ID 12. A product row whose
+  associated part IDs do not all resolve is rejected. File IDs are remembered for the whole import, up to a limit, so memory stays bounded
+  however large the file is; part rows giving a file ID once the limit is reached are rejected.
+  @author Nicholas Johnson
+ */
+public class CsvImporter {
+
+    /**
+      Default number of rows added to the Inventory at a time.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    /**
+      Default number of file part IDs remembered by one import.
+     */
+    public static final int DEFAULT_MAX_FILE_IDS = 1_000_000;
+
+    /**
+      Prefix marking a file part ID in the associated part IDs of a product.
+     */
+    private static final char FILE_ID_PREFIX = '@';
+
+    /**
+      Most error messages kept in a result. Later errors are only counted.
+     */
+    private static final int MAX_ERRORS = 100;
+
+    /**
+      Number of rows added to the Inventory at a time.
+     */
+    private final int chunkSize;
+
+    /**
+      Most file part IDs remembered by one import.
+     */
+    private final int maxFileIds;
+
+    /**
+      Constructor for an importer using the default chunk size.
+     */
+    public CsvImporter() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+      Constructor for an importer with a chosen chunk size.
+      @param chunkSize number of rows added to the Inventory at a time.
+     */
+    public CsvImporter(int chunkSize) {
+        this(chunkSize, DEFAULT_MAX_FILE_IDS);
+    }
+
+    /**
+      Constructor for an importer with a chosen chunk size and file part ID limit.
+      @param chunkSize number of rows added to the Inventory at a time.
+      @param maxFileIds most file part IDs remembered by one import.
+     */
+    public CsvImporter(int chunkSize, int maxFileIds) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be greater than 0");
+        }
+        if (maxFileIds < 0) {
+            throw new IllegalArgumentException("File ID limit must not be negative");
+        }
+        this.chunkSize = chunkSize;
+        this.maxFileIds = maxFileIds;
+    }
+
+    /**
+      Imports a UTF-8 CSV file.
+      @param file path of the file.
+      @return counts and throughput of the import.
+      @throws IOException if the file cannot be read.
+     */
+    public ImportResult importFile(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importCsv(reader);
+        }
+    }
+
+    /**
+      Imports CSV rows from a reader. The reader is not closed.
+      @param source the CSV text.
+      @return counts and throughput of the import.
+      @throws IOException if the reader fails.
+     */
+    public ImportResult importCsv(Reader source) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source, 1 << 16);
+        ImportResult result = new ImportResult();
+        long start = System.nanoTime();
+        List<Part> partChunk = new ArrayList<>(chunkSize);
+        List<Product> productChunk = new ArrayList<>();
+        List<int[]> associatedIds = new ArrayList<>();
+        List<Integer> productLines = new ArrayList<>();
+        IdIndex<Part> fileParts = new IdIndex<>();
+        List<String> fields = new ArrayList<>(8);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            if (line.isEmpty() || line.startsWith("#") || (lineNumber == 1 && line.regionMatches(true, 0, "type", 0, 4))) {
+                continue;
+            }
+            result.rowsRead++;
+            try {
+                splitFields(line, fields);
+                if (fields.size() < 6) {
+                    throw new IllegalArgumentException("expected at least 6 columns");
+                }
+                String type = fields.get(0).trim();
+                if (type.equalsIgnoreCase("Product")) {
+                    int[] partIds = parseAssociatedIds(fields, fileParts);
+                    productChunk.add(parseProduct(fields));
+                    associatedIds.add(partIds);
+                    productLines.add(lineNumber);
+                } else {
+                    Integer fileId = parseFileId(fields);
+                    if (fileId != null && fileParts.containsId(fileId)) {
+                        throw new IllegalArgumentException("part ID " + fileId + " is used twice in the file");
+                    }
+                    if (fileId != null && fileParts.size() >= maxFileIds) {
+                        throw new IllegalArgumentException("more than " + maxFileIds + " part IDs given in the file");
+                    }
+                    Part part = parsePart(type, fields);
+                    partChunk.add(part);
+                    if (fileId != null) {
+                        fileParts.put(fileId, part);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                result.reject(lineNumber, e.getMessage());
+                continue;
+            }
+            if (partChunk.size() + productChunk.size() >= chunkSize) {
+                flush(partChunk, productChunk, associatedIds, productLines, result);
+            }
+        }
+        flush(partChunk, productChunk, associatedIds, productLines, result);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+      Adds a chunk of rows to the Inventory with one list change for the parts and one for the products. Parts go first, and are waited
+      for when the import runs off the FX thread, so products in the same chunk can use them as associated parts. The products are
+      waited for too, so no more than one chunk is ever queued for the FX thread however fast the file is read.
+      A product with an associated part that is not in the Inventory by then is rejected.
+      @param partChunk parts waiting to be added, emptied afterwards.
+      @param productChunk products waiting to be added, emptied afterwards.
+      @param associatedIds Inventory IDs of the associated parts of each waiting product, emptied afterwards.
+      @param productLines line number of each waiting product, emptied afterwards.
+      @param result result to count the added and rejected rows in.
+     */
+    private static void flush(List<Part> partChunk, List<Product> productChunk, List<int[]> associatedIds, List<Integer> productLines,
+                              ImportResult result) {
+        Inventory.addParts(partChunk);
+        Inventory.awaitPendingChanges();
+        List<Product> resolved = new ArrayList<>(productChunk.size());
+        for (int i = 0; i < productChunk.size(); i++) {
+            int[] partIds = associatedIds.get(i);
+            Part[] parts = new Part[partIds.length];
+            int missing = -1;
+            for (int k = 0; k < partIds.length && missing < 0; k++) {
+                parts[k] = Inventory.lookupPart(partIds[k]);
+                if (parts[k] == null) {
+                    missing = partIds[k];
+                }
+            }
+            if (missing >= 0) {
+                result.reject(productLines.get(i), "associated part " + missing + " is not in the Inventory");
+                continue;
+            }
+            Product product = productChunk.get(i);
+            for (Part part : parts) {
+                product.addAssociatedPart(part);
+            }
+            resolved.add(product);
+        }
+        Inventory.addProducts(resolved);
+        Inventory.awaitPendingChanges();
+        result.rowsImported += partChunk.size() + resolved.size();
+        partChunk.clear();
+        productChunk.clear();
+        associatedIds.clear();
+        productLines.clear();
+    }
+
+    /**
+      Builds a part from a row after checking its values.
+      @param type InHouse or Outsourced.
+      @param fields the row fields.
+      @return the new part.
+     */
+    private static Part parsePart(String type, List<String> fields) {
+        boolean inHouse = type.equalsIgnoreCase("InHouse");
+        if (!inHouse && !type.equalsIgnoreCase("Outsourced")) {
+            throw new IllegalArgumentException("unknown type " + type);
+        }
+        String partName = fields.get(1).trim();
+        long price = parsePrice(fields.get(2));
+        int stock = parseInt(fields.get(3), "inventory");
+        int min = parseInt(fields.get(4), "min");
+        int max = parseInt(fields.get(5), "max");
+        String extra = fields.size() > 6 ? fields.get(6).trim() : "";
+        validate(partName, stock, min, max);
+        if (inHouse) {
+            int machineId = parseInt(extra, "machine ID");
+            return new InHouse(Inventory.nextPartId(), stock, min, max, partName, price, machineId);
+        }
+        return new Outsourced(Inventory.nextPartId(), stock, min, max, partName, price, extra);
+    }
+
+    /**
+      Builds a product from a row after checking its values. Associated parts are added when the chunk is flushed.
+      @param fields the row fields.
+      @return the new product.
+     */
+    private static Product parseProduct(List<String> fields) {
+        String productName = fields.get(1).trim();
+        long price = parsePrice(fields.get(2));
+        int stock = parseInt(fields.get(3), "inventory");
+        int min = parseInt(fields.get(4), "min");
+        int max = parseInt(fields.get(5), "max");
+        validate(productName, stock, min, max);
+        return new Product(Inventory.nextProductId(), productName, price, stock, min, max);
+    }
+
+    /**
+      Reads the ID a part row gives the part in the file.
+      @param fields the row fields.
+      @return the file ID, or null if the row has none.
+     */
+    private static Integer parseFileId(List<String> fields) {
+        if (fields.size() <= 7 || fields.get(7).trim().isEmpty()) {
+            return null;
+        }
+        return parseInt(fields.get(7), "part ID");
+    }
+
+    /**
+      Reads the associated part IDs of a product row and resolves file IDs to the Inventory IDs their parts were given.
+      @param fields the row fields.
+      @param fileParts parts by the IDs given in the file.
+      @return the Inventory IDs of the associated parts, empty if the row has none.
+     */
+    private static int[] parseAssociatedIds(List<String> fields, IdIndex<Part> fileParts) {
+        if (fields.size() <= 6 || fields.get(6).trim().isEmpty()) {
+            return new int[0];
+        }
+        String[] partIds = fields.get(6).split(";");
+        int[] ids = new int[partIds.length];
+        int count = 0;
+        for (String partId : partIds) {
+            String text = partId.trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            if (text.charAt(0) == FILE_ID_PREFIX) {
+                int fileId = parseInt(text.substring(1), "associated part ID");
+                Part part = fileParts.get(fileId);
+                if (part == null) {
+                    throw new IllegalArgumentException("no part row with part ID " + fileId + " before this row");
+                }
+                ids[count++] = part.getId();
+            } else {
+                ids[count++] = parseInt(text, "associated part ID");
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    /**
+      Applies the checks used by the add and modify menus.
+      @param name name of the part or product.
+      @param stock inventory level.
+      @param min minimum stock.
+      @param max maximum stock.
+     */
+    private static void validate(String name, int stock, int min, int max) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("name is empty");
+        } else if ((min < 0) || (min > max)) {
+            throw new IllegalArgumentException("min must be between 0 and max");
+        } else if (!((min <= stock) && (max >= stock))) {
+            throw new IllegalArgumentException("inventory must be between min and max");
+        }
+    }
+
+    private static int parseInt(String text, String field) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + field + " '" + text + "'");
+        }
+    }
+
+    private static long parsePrice(String text) {
+        try {
+            return Price.parse(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid price '" + text + "'");
+        }
+    }
+
+    /**
+      Splits a CSV line into fields. Quoted fields may contain commas, and a doubled quote inside quotes is read as one quote.
+      @param line the line to split.
+      @param fields list that receives the fields, cleared first.
+     */
+    static void splitFields(String line, List<String> fields) {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+    }
+
+    /**
+      Outcome of an import: how many rows were read, added and rejected, and how fast.
+     */
+    public static class ImportResult {
+
+        private long rowsRead;
+        private long rowsImported;
+        private long rowsRejected;
+        private long elapsedNanos;
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+          Counts a rejected row and keeps its message if there is room.
+          @param lineNumber line of the row in the file.
+          @param message reason the row was rejected.
+         */
+        private void reject(int lineNumber, String message) {
+            rowsRejected++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("Line " + lineNumber + ": " + message);
+            }
+        }
+
+        /**
+          Gets the number of data rows read from the file.
+          @return rows read.
+         */
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        /**
+          Gets the number of rows added to the Inventory.
+          @return rows added.
+         */
+        public long getRowsImported() {
+            return rowsImported;
+        }
+
+        /**
+          Gets the number of rows skipped because they failed a check.
+          @return rows rejected.
+         */
+        public long getRowsRejected() {
+            return rowsRejected;
+        }
+
+        /**
+          Gets the time the import took.
+          @return elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+          Gets the import throughput.
+          @return rows read per second.
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        /**
+          Gets the messages of the first rejected rows. At most 100 messages are kept.
+          @return error messages.
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows read, %d imported, %d rejected in %.1f ms (%.0f rows/s)",
+                    rowsRead, rowsImported, rowsRejected, elapsedNanos / 1_000_000.0, getRowsPerSecond());
+        }
+    }
+}
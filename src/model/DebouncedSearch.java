@@ -0,0 +1,108 @@
+package model;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+  Runs the search of a search box off the FX thread. Each text typed is held for a short delay, and typing again within the delay replaces
+  it, so a burst of keystrokes runs one search. The search runs on a background thread and its result is handed to the FX thread, but only
+  if no newer text was submitted in the meantime; results of stale searches are dropped, so the table only ever shows the latest one.
+  @param <R> the search result.
+  @author Nicholas Johnson
+ */
+public class DebouncedSearch<R> {
+
+    /**
+      Delay after the last keystroke before a search runs, in milliseconds.
+     */
+    public static final long DEFAULT_DELAY_MILLIS = 150;
+
+    /**
+      Thread shared by every search box. Searches run one at a time; a stale one is dropped when it finishes.
+     */
+    private static final ScheduledExecutorService executor = createExecutor();
+
+    private final Function<String, R> search;
+    private final Consumer<R> publisher;
+    private final long delayMillis;
+
+    /**
+      Number of the latest text submitted. A result is only published if its number is still the latest.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+      The search waiting for its delay or running, if any.
+     */
+    private Future<?> pending;
+
+    /**
+      Constructor for a search with the default delay.
+      @param search runs the search for a text on a background thread.
+      @param publisher shows a result; runs on the FX thread.
+     */
+    public DebouncedSearch(Function<String, R> search, Consumer<R> publisher) {
+        this(search, publisher, DEFAULT_DELAY_MILLIS);
+    }
+
+    /**
+      Constructor for a search.
+      @param search runs the search for a text on a background thread.
+      @param publisher shows a result; runs on the FX thread.
+      @param delayMillis delay after the last submit before the search runs, in milliseconds.
+     */
+    public DebouncedSearch(Function<String, R> search, Consumer<R> publisher, long delayMillis) {
+        this.search = search;
+        this.publisher = publisher;
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+      Submits the text of the search box. Any search still waiting or running for an earlier text is cancelled.
+      @param text the search text.
+     */
+    public synchronized void submit(String text) {
+        long submitted = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(true);
+        }
+        pending = executor.schedule(() -> {
+            R result = search.apply(text);
+            if (generation.get() == submitted) {
+                Platform.runLater(() -> {
+                    if (generation.get() == submitted) {
+                        publisher.accept(result);
+                    }
+                });
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+      Cancels any search waiting or running, so its result is never published. Used when the search box is cleared.
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    private static ScheduledExecutorService createExecutor() {
+        ScheduledThreadPoolExecutor searchExecutor = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "inventory-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        searchExecutor.setRemoveOnCancelPolicy(true);
+        return searchExecutor;
+    }
+}
@@ -0,0 +1,229 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+  Hands out part or product IDs in leased ranges. Each thread takes a range of IDs at a time and hands them out without touching any
+  shared counter, so importers running on several threads do not contend for IDs.
+
+  A durable allocator keeps a high-water mark file: the end of the last range leased by any process. The file is locked while a range is
+  leased and forced to disk before any ID of the range is used, so several program instances sharing the file never hand out the same
+  ID, and no ID is reused after a restart. When the allocator is closed, the unused IDs of the last range it leased are given back if no
+  other instance leased a range after it, so the next session starts with them. Other IDs left in a range when a thread or the program
+  ends are skipped, so IDs may have gaps.
+  An allocator without a file leases from the in-memory counter only.
+  @author Nicholas Johnson
+ */
+public class IdAllocator implements AutoCloseable {
+
+    /**
+      Number of IDs a thread leases at a time unless another size is given.
+     */
+    public static final int DEFAULT_LEASE_SIZE = 64;
+
+    /**
+      In-process counter of the next unleased ID. The Inventory raises it past IDs loaded from a snapshot or log, so leases start above them.
+     */
+    private final AtomicInteger counter;
+
+    /**
+      Number of IDs leased at a time.
+     */
+    private final int leaseSize;
+
+    /**
+      Open high-water mark file, or null for an allocator that only uses the counter.
+     */
+    private final FileChannel channel;
+
+    /**
+      Current lease of each thread. Starts as an empty lease, so the first call leases a range.
+     */
+    private final ThreadLocal<Lease> leases = ThreadLocal.withInitial(() -> new Lease(0, 0));
+
+    /**
+      End of the last range this allocator wrote to the high-water mark file, and the thread lease holding that range, or null if the
+      range was leased with leaseRange. Guarded by this allocator.
+     */
+    private int lastLeaseEnd;
+    private Lease lastLease;
+
+    /**
+      Constructor for an allocator that only uses the in-memory counter.
+      @param counter counter of the next unleased ID.
+      @param leaseSize number of IDs leased at a time.
+     */
+    public IdAllocator(AtomicInteger counter, int leaseSize) {
+        if (leaseSize <= 0) {
+            throw new IllegalArgumentException("Lease size must be greater than 0");
+        }
+        this.counter = counter;
+        this.leaseSize = leaseSize;
+        this.channel = null;
+    }
+
+    /**
+      Constructor for an allocator that records its high-water mark in a file. The file is created if it does not exist.
+      @param counter counter of the next unleased ID.
+      @param leaseSize number of IDs leased at a time.
+      @param highWaterMarkFile file holding the end of the last leased range.
+      @throws IOException if the file cannot be opened.
+     */
+    public IdAllocator(AtomicInteger counter, int leaseSize, Path highWaterMarkFile) throws IOException {
+        if (leaseSize <= 0) {
+            throw new IllegalArgumentException("Lease size must be greater than 0");
+        }
+        this.counter = counter;
+        this.leaseSize = leaseSize;
+        this.channel = FileChannel.open(highWaterMarkFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+      Gets the next ID from the calling thread's lease, leasing a new range when it runs out.
+      @return an ID no other thread or process will get.
+     */
+    public int nextId() {
+        Lease lease = leases.get();
+        int id = lease.next.getAndIncrement();
+        if (id < lease.end) {
+            return id;
+        }
+        int start = leaseRange(leaseSize);
+        lease = new Lease(start + 1, start + leaseSize);
+        leases.set(lease);
+        if (channel != null) {
+            synchronized (this) {
+                if (lastLeaseEnd == lease.end) {
+                    lastLease = lease;
+                }
+            }
+        }
+        return start;
+    }
+
+    /**
+      Leases a range of IDs for the caller to hand out, for example to number a whole import batch.
+      @param count number of IDs in the range.
+      @return the first ID of the range. The range ends before the first ID plus the count.
+     */
+    public int leaseRange(int count) {
+        if (channel == null) {
+            return counter.getAndAdd(count);
+        }
+        synchronized (this) {
+            try {
+                FileLock fileLock = channel.lock();
+                try {
+                    int start = Math.max(readHighWaterMark(), counter.get());
+                    int end = Math.addExact(start, count);
+                    ByteBuffer mark = ByteBuffer.allocate(Integer.BYTES).putInt(0, end);
+                    while (mark.hasRemaining()) {
+                        channel.write(mark, mark.position());
+                    }
+                    channel.force(false);
+                    counter.accumulateAndGet(end, Math::max);
+                    lastLeaseEnd = end;
+                    lastLease = null;
+                    return start;
+                } finally {
+                    fileLock.release();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not lease IDs", e);
+            }
+        }
+    }
+
+    /**
+      Lowers the high-water mark to the first unused ID of a range, if the mark is still the end of that range.
+      @param unused first unused ID of the range.
+      @param end end of the range.
+     */
+    private void giveBack(int unused, int end) {
+        try {
+            FileLock fileLock = channel.lock();
+            try {
+                if (readHighWaterMark() == end) {
+                    ByteBuffer mark = ByteBuffer.allocate(Integer.BYTES).putInt(0, unused);
+                    while (mark.hasRemaining()) {
+                        channel.write(mark, mark.position());
+                    }
+                    channel.force(false);
+                }
+            } finally {
+                fileLock.release();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not give back unused IDs: " + e.getMessage());
+        }
+    }
+
+    /**
+      Gets the high-water mark recorded in the file.
+      @return the end of the last leased range, or 0 if nothing was leased yet.
+      @throws IOException if the file cannot be read.
+     */
+    private int readHighWaterMark() throws IOException {
+        ByteBuffer mark = ByteBuffer.allocate(Integer.BYTES);
+        while (mark.hasRemaining()) {
+            if (channel.read(mark, mark.position()) < 0) {
+                return 0;
+            }
+        }
+        return mark.getInt(0);
+    }
+
+    /**
+      Gives back the unused IDs of the last range leased by nextId and closes the high-water mark file. The IDs are only given back if
+      the file still ends at that range, so a range another instance leased since is never handed out twice. The unused IDs are claimed
+      from the lease with one atomic swap, so the thread owning the lease can keep calling nextId while this runs: each ID goes either to
+      that thread or back to the file, never both. IDs of other leases stay unused.
+     */
+    @Override
+    public void close() {
+        if (channel != null) {
+            synchronized (this) {
+                if (lastLease != null) {
+                    int unused = lastLease.next.getAndSet(lastLease.end);
+                    if (unused < lastLease.end) {
+                        giveBack(unused, lastLease.end);
+                    }
+                }
+                lastLease = null;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Could not close ID file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+      Range of IDs leased by one thread. The cursor is atomic so close can claim the rest of the range while the owning thread hands IDs out.
+     */
+    private static final class Lease {
+
+        /**
+          Next ID to hand out. Moves past the end once the range is used up or claimed by close.
+         */
+        final AtomicInteger next;
+
+        /**
+          End of the range, exclusive.
+         */
+        final int end;
+
+        Lease(int next, int end) {
+            this.next = new AtomicInteger(next);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+  Hash index keyed by primitive int ID. Used by the Inventory so part and product lookups by ID do not need to walk the full lists.
+  Keys are stored in an int array with open addressing and linear probing, so no Integer objects are created on lookups.
+  @param <T> type of the indexed records.
+  @author Nicholas Johnson
+ */
+public class IdIndex<T> {
+
+    /**
+      Smallest table size. The table always has a power of two length so the probe position can be masked.
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+      Keys of the table. A slot is only in use when the matching value slot is not null.
+     */
+    private int[] keys;
+
+    /**
+      Values of the table. A null value marks an empty slot.
+     */
+    private Object[] values;
+
+    /**
+      Number of records currently in the index.
+     */
+    private int size;
+
+    /**
+      Constructor for an empty index. The table grows as records are added.
+     */
+    public IdIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+      Constructor for an index sized for an expected number of records. Avoids rehashing while a large catalog is loaded.
+      @param expectedSize number of records the index should hold without growing.
+     */
+    public IdIndex(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+      Gets the record stored for an ID. Runs in constant time on average and does not allocate.
+      @param id the ID to look up.
+      @return the record, or null if the ID is not indexed.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        int mask = keys.length - 1;
+        int slot = slotFor(id, mask);
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == id) {
+                return (T) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+      Checks whether an ID is in the index.
+      @param id the ID to look up.
+      @return true if a record is stored for the ID.
+     */
+    public boolean containsId(int id) {
+        return get(id) != null;
+    }
+
+    /**
+      Stores a record for an ID. Any record already stored for the ID is replaced.
+      @param id the ID of the record.
+      @param value the record to store, must not be null.
+      @return the record that was replaced, or null if the ID was not indexed.
+     */
+    @SuppressWarnings("unchecked")
+    public T put(int id, T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Indexed value cannot be null");
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        int mask = keys.length - 1;
+        int slot = slotFor(id, mask);
+        Object current;
+        while ((current = values[slot]) != null) {
+            if (keys[slot] == id) {
+                values[slot] = value;
+                return (T) current;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        values[slot] = value;
+        size++;
+        return null;
+    }
+
+    /**
+      Removes the record stored for an ID.
+      @param id the ID to remove.
+      @return the removed record, or null if the ID was not indexed.
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(int id) {
+        int mask = keys.length - 1;
+        int slot = slotFor(id, mask);
+        Object current;
+        while ((current = values[slot]) != null) {
+            if (keys[slot] == id) {
+                deleteSlot(slot, mask);
+                return (T) current;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+      Removes the record for an ID only if it is the expected record. This keeps the index correct when a modified record
+      with the same ID has already replaced the old one.
+      @param id the ID to remove.
+      @param expected the record that must currently be stored.
+      @return true if the record was removed.
+     */
+    public boolean remove(int id, T expected) {
+        int mask = keys.length - 1;
+        int slot = slotFor(id, mask);
+        Object current;
+        while ((current = values[slot]) != null) {
+            if (keys[slot] == id) {
+                if (current != expected) {
+                    return false;
+                }
+                deleteSlot(slot, mask);
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+      Gets the number of records in the index.
+      @return the record count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+      Removes every record from the index. The table keeps its current capacity.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+      Empties a slot and shifts later entries of the same probe run back, so no tombstones are left behind.
+      @param slot the slot to empty.
+      @param mask table length minus one.
+     */
+    private void deleteSlot(int slot, int mask) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = slotFor(keys[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+        size--;
+    }
+
+    /**
+      Rebuilds the table with a new capacity. Called when the table becomes half full.
+      @param capacity the new table length, a power of two.
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotFor(oldKeys[i], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+      Finds the home slot of an ID. The ID is mixed first because part and product IDs are sequential.
+      @param id the ID.
+      @param mask table length minus one.
+      @return the home slot.
+     */
+    private static int slotFor(int id, int mask) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -2,15 +2,11 @@ package model;
 
 /**
   models an InHouse Part. Inhouse parts are unique from outsourced parts in that they have a machine ID field instead of a Company Name field.
+  The machine ID is kept in the machine ID column of the part store.
   @author Nicholas Johnson
  */
 public class InHouse extends Part {
 
-    /**
-      machine ID for the part. This value is unique to Inhouse parts.
-     */
-    int machineId;
-
     /**
       Constructor for new InHouse object. The object contains a unique parameter for machineID and also has an automatically generated Part ID number.
       @param id ID for the part.
@@ -22,8 +18,33 @@ public class InHouse extends Part {
       @param machineId machine ID for the part.
      */
     public InHouse(int id, int stock, int min, int max, String partName, double price, int machineId) {
-        super(id, stock, min, max, partName, price);
-        setMachineId(machineId);
+        this(id, stock, min, max, partName, Price.ofDouble(price), machineId);
+    }
+
+    /**
+      Constructor for new InHouse object with an exact price. An int price argument selects this constructor, so whole dollar prices given
+      to the other constructor must be written as doubles.
+      @param id ID for the part.
+      @param stock inventory level of the part.
+      @param min minimum stock requirement for part.
+      @param max maximum stock requirement for part.
+      @param partName name of the part.
+      @param priceCents price of the part in cents.
+      @param machineId machine ID for the part.
+     */
+    public InHouse(int id, int stock, int min, int max, String partName, long priceCents, int machineId) {
+        super(id, stock, min, max, partName, priceCents);
+        store.setType(row, PartStore.TYPE_IN_HOUSE);
+        store.setMachineId(row, machineId);
+    }
+
+
+    /**
+      Constructor for a view over an InHouse row that is already in the part store. Used when parts are loaded in bulk from a snapshot.
+      @param row the store row of the part.
+     */
+    InHouse(int row) {
+        super(row);
     }
 
 
@@ -33,7 +54,9 @@ public class InHouse extends Part {
      */
     public int getMachineId()
     {
-    return machineId;
+    int machineId = store.getMachineId(row);
+    Detached copy = detached();
+    return copy == null ? machineId : copy.machineId;
     }
 
     /**
@@ -42,7 +65,14 @@ public class InHouse extends Part {
      */
     public void setMachineId(int machineId)
     {
-     this.machineId = machineId;
-
+     synchronized (store) {
+         Detached copy = detached();
+         if (copy != null) {
+             copy.machineId = machineId;
+             return;
+         }
+         store.setMachineId(row, machineId);
+     }
+     Inventory.partDetailsChanged(this);
     }
 }
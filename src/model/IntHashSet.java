@@ -0,0 +1,193 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+  Set of primitive int values. Used for ID sets inside the Inventory indexes so IDs are not boxed into Integer objects.
+  Values are stored with open addressing and linear probing.
+  @author Nicholas Johnson
+ */
+public class IntHashSet {
+
+    /**
+      Smallest table size. The table always has a power of two length.
+     */
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+      Stored values. A slot is only in use when the matching used flag is set.
+     */
+    private int[] values;
+
+    /**
+      Slot usage flags. Needed because every int value, including 0, is a valid ID.
+     */
+    private boolean[] used;
+
+    /**
+      Number of values in the set.
+     */
+    private int size;
+
+    /**
+      Constructor for an empty set. The table grows as values are added.
+     */
+    public IntHashSet() {
+        values = new int[MIN_CAPACITY];
+        used = new boolean[MIN_CAPACITY];
+    }
+
+    /**
+      Adds a value to the set.
+      @param value the value to add.
+      @return true if the value was not already in the set.
+     */
+    public boolean add(int value) {
+        if ((size + 1) * 2 > values.length) {
+            resize(values.length << 1);
+        }
+        int mask = values.length - 1;
+        int slot = slotFor(value, mask);
+        while (used[slot]) {
+            if (values[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        values[slot] = value;
+        used[slot] = true;
+        size++;
+        return true;
+    }
+
+    /**
+      Checks whether a value is in the set. Does not allocate.
+      @param value the value to look for.
+      @return true if the value is in the set.
+     */
+    public boolean contains(int value) {
+        int mask = values.length - 1;
+        int slot = slotFor(value, mask);
+        while (used[slot]) {
+            if (values[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+      Removes a value from the set. Later entries of the same probe run are shifted back so no tombstones are left behind.
+      @param value the value to remove.
+      @return true if the value was in the set.
+     */
+    public boolean remove(int value) {
+        int mask = values.length - 1;
+        int slot = slotFor(value, mask);
+        while (used[slot]) {
+            if (values[slot] == value) {
+                int gap = slot;
+                int next = (gap + 1) & mask;
+                while (used[next]) {
+                    int home = slotFor(values[next], mask);
+                    if (((next - home) & mask) >= ((next - gap) & mask)) {
+                        values[gap] = values[next];
+                        gap = next;
+                    }
+                    next = (next + 1) & mask;
+                }
+                used[gap] = false;
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+      Gets the number of values in the set.
+      @return the value count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+      Checks whether the set is empty.
+      @return true if the set has no values.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+      Removes every value from the set.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+      Passes every value in the set to an action. The order is not defined.
+      @param action the action to run for each value.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < values.length; i++) {
+            if (used[i]) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    /**
+      Copies the values into a new array. The order is not defined.
+      @return array of the values in the set.
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (used[i]) {
+                result[count++] = values[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+      Rebuilds the table with a new capacity. Called when the table becomes half full.
+      @param capacity the new table length, a power of two.
+     */
+    private void resize(int capacity) {
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        values = new int[capacity];
+        used = new boolean[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotFor(oldValues[i], mask);
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    /**
+      Finds the home slot of a value. The value is mixed first because IDs are sequential.
+      @param value the value.
+      @param mask table length minus one.
+      @return the home slot.
+     */
+    private static int slotFor(int value, int mask) {
+        int h = value * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
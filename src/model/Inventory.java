@@ -4,17 +4,37 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Part;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 /**
 Inventory of Parts and Products.
 Data is persistent for application.
+The Inventory can be used from any thread. Changes are made under a write lock and, once the FX thread is attached, are run on the FX
+thread in the order they were made, so the table views only see list changes on that thread. Lookups use optimistic or shared reads
+and do not block each other.
 *@author Nicholas Johnson
  */
 public class Inventory {
 
 
+    /**
+      Column store holding the data of every part. Parts in allParts are views over rows of this store.
+     */
+    private static final PartStore partStore = new PartStore();
     /**
       The list of all parts in the Inventory. This includes Inhouse and Outsourced Parts.
      */
@@ -39,10 +59,89 @@ public class Inventory {
       Starting value for product ID numbers. As new products are added the value will increment.
      */
     private static final AtomicInteger productsIdGenerator = new AtomicInteger(10000);
+    /**
+      Hands out part IDs in leased ranges. Uses only the in-memory counter until the program attaches a durable allocator.
+     */
+    private static volatile IdAllocator partIdAllocator = new IdAllocator(partsIdGenerator, IdAllocator.DEFAULT_LEASE_SIZE);
+    /**
+      Hands out product IDs in leased ranges. Works the same way as partIdAllocator.
+     */
+    private static volatile IdAllocator productIdAllocator = new IdAllocator(productsIdGenerator, IdAllocator.DEFAULT_LEASE_SIZE);
+    /**
+      Index of parts by ID. Kept in step with allParts so ID lookups do not need to scan the list.
+     */
+    private static final IdIndex<Part> partIndex = new IdIndex<>();
+    /**
+      Index of products by ID. Kept in step with allProducts so ID lookups do not need to scan the list.
+     */
+    private static final IdIndex<Product> productIndex = new IdIndex<>();
+    /**
+      Trigram index of part names. Narrows name searches down to the parts that can match.
+     */
+    private static final TrigramIndex partNameIndex = new TrigramIndex();
+    /**
+      Trigram index of product names. Narrows name searches down to the products that can match.
+     */
+    private static final TrigramIndex productNameIndex = new TrigramIndex();
+    /**
+      Where-used index from part ID to the IDs of the products that have the part as an associated part. Only the product indexed for each
+      product ID is counted, so a product being edited in the modify menu is not counted twice.
+     */
+    private static final IdIndex<IntHashSet> whereUsed = new IdIndex<>();
+    /**
+      IDs of the indexed parts and products in ascending order. Page through query results by ID.
+     */
+    private static final SortedIdSet partIds = new SortedIdSet();
+    private static final SortedIdSet productIds = new SortedIdSet();
+    /**
+      Parts grouped by headroom, their inventory level less their minimum. Finds the parts that need reordering without a scan.
+     */
+    private static final StockLevelIndex partLevels = new StockLevelIndex();
+    /**
+      Products grouped by headroom. Works the same way as partLevels.
+     */
+    private static final StockLevelIndex productLevels = new StockLevelIndex();
+    /**
+      Parts ordered by price, inventory level and headroom. Answer range lookups in sorted order without a scan.
+     */
+    private static final SortedIndex partsByPrice = new SortedIndex();
+    private static final SortedIndex partsByStock = new SortedIndex();
+    private static final SortedIndex partsByHeadroom = new SortedIndex();
+    /**
+      Products ordered by price, inventory level and headroom. Work the same way as the part indexes.
+     */
+    private static final SortedIndex productsByPrice = new SortedIndex();
+    private static final SortedIndex productsByStock = new SortedIndex();
+    private static final SortedIndex productsByHeadroom = new SortedIndex();
+    /**
+      Feed of part and product changes for consumers that do not use the observable lists.
+     */
+    private static final ChangeFeed changeFeed = new ChangeFeed(1 << 16);
+    /**
+      Set while a snapshot is restored, so the restored items do not each publish an event. One reset event is published instead.
+     */
+    private static boolean feedSuppressed;
+    /**
+      Set when the name indexes were skipped during a snapshot load. They are built on the first name search, so startup does not pay for them.
+     */
+    private static volatile boolean nameIndexesStale;
+    /**
+      Log that records every change for replay on the next start. Null until the program attaches one, so changes are not logged.
+     */
+    private static WriteAheadLog writeAheadLog;
+    /**
+      Guards the lists, the indexes and the live flags of the part store. Changes take the write lock, lookups use optimistic or shared reads.
+     */
+    private static final StampedLock lock = new StampedLock();
+    /**
+      Runs changes on the FX thread in the order they were made.
+     */
+    private static final ChangeDispatcher dispatcher = new ChangeDispatcher();
 
 
     /**
       Getter for the Part ID number. This method returns the next ID number.
+      The counter is the in-process high-water mark of part IDs; new parts should take their ID from nextPartId.
       @return A new ID number that is one higher than the most recent entry. The system allows for 9999 parts.
      */
     public static AtomicInteger getPartsIdGenerator() {
@@ -51,17 +150,108 @@ public class Inventory {
 
     /**
      Getter for the Product ID number. This method returns the next ID number.
+     The counter is the in-process high-water mark of product IDs; new products should take their ID from nextProductId.
      @return A new ID number that is one higher than the most recent entry. The system begins product numbers at 10000.
      */
     public static AtomicInteger getProductsIdGenerator(){
         return productsIdGenerator;
     }
+
+    /**
+      Gets a unique ID for a new part from the calling thread's leased range.
+      @return the new part ID.
+     */
+    public static int nextPartId() {
+        return partIdAllocator.nextId();
+    }
+
+    /**
+      Gets a unique ID for a new product from the calling thread's leased range.
+      @return the new product ID.
+     */
+    public static int nextProductId() {
+        return productIdAllocator.nextId();
+    }
+
+    /**
+      Replaces the ID allocators, for example with allocators that keep a durable high-water mark. Attach them after the snapshot and log
+      are loaded, so leases start above the IDs already in use.
+      @param partIds allocator for part IDs, built on getPartsIdGenerator.
+      @param productIds allocator for product IDs, built on getProductsIdGenerator.
+     */
+    public static void setIdAllocators(IdAllocator partIds, IdAllocator productIds) {
+        partIdAllocator = partIds;
+        productIdAllocator = productIds;
+    }
+    /**
+      Getter for the part store. Reports and other scans can read the primitive columns directly instead of walking the parts list.
+      Only rows marked live belong to parts in the Inventory.
+      @return the part store.
+     */
+    public static PartStore getPartStore() {
+        return partStore;
+    }
+
+    /**
+      Attaches the log that records every change made to the Inventory. Attach it after the log has been replayed.
+      @param log the log to write changes to, or null to stop logging.
+     */
+    public static void setWriteAheadLog(WriteAheadLog log) {
+        writeAheadLog = log;
+    }
+
+    /**
+      Sends changes made by other threads to the FX thread. Call when the FX toolkit has started; until then changes run in the calling thread.
+     */
+    public static void attachFxThread() {
+        dispatcher.setFxThreadAttached(true);
+    }
+
+    /**
+      Stops sending changes to the FX thread and runs any that are still queued. Call before the FX toolkit stops.
+     */
+    public static void detachFxThread() {
+        dispatcher.setFxThreadAttached(false);
+    }
+
+    /**
+      Waits until the changes made so far by any thread are in the lists and indexes. Changes made off the FX thread run later on the
+      FX thread, so a background thread that needs to look up what it just added calls this first.
+     */
+    public static void awaitPendingChanges() {
+        dispatcher.awaitPending();
+    }
+
+    /**
+      Getter for the change feed. Every part and product that is added, replaced, changed in place or deleted publishes an event.
+      @return the change feed.
+     */
+    public static ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    /**
+      Getter for the attached change log.
+      @return the log, or null if changes are not being logged.
+     */
+    public static WriteAheadLog getWriteAheadLog() {
+        return writeAheadLog;
+    }
+
     /**
       Adds part to Inventory. The part will appear in the all parts table views.
       @param newPart Part object being added to Inventory.
      */
     public static void addPart(Part newPart) {
-        if (newPart != null) allParts.add(newPart);
+        write(() -> {
+            if (newPart != null) {
+                allParts.add(newPart);
+                partStore.setPosition(newPart.getRow(), allParts.size() - 1);
+                partStore.setLive(newPart.getRow(), true);
+                indexPart(newPart);
+                if (writeAheadLog != null) writeAheadLog.logAddPart(newPart);
+            }
+        });
     }
 
     /**
@@ -69,159 +259,2259 @@ public class Inventory {
       @param newProduct Product object being added to Inventory.
      */
     public static void addProduct(Product newProduct){
-        if (newProduct != null) allProducts.add(newProduct);
+        write(() -> {
+            if (newProduct != null) {
+                allProducts.add(newProduct);
+                newProduct.setListPosition(allProducts.size() - 1);
+                indexProduct(newProduct);
+                if (writeAheadLog != null) writeAheadLog.logAddProduct(newProduct);
+            }
+        });
     }
 
 
     /**
-      Searches product list by ID. If a match exists it is returned.
+      Adds several parts to Inventory with one list change, so the table views filter and sort once for the whole batch.
+      @param newParts Part objects being added to Inventory. Null entries are skipped.
+     */
+    public static void addParts(Collection<? extends Part> newParts) {
+        List<Part> batch = new ArrayList<>(newParts.size());
+        for (Part part : newParts) {
+            if (part != null) batch.add(part);
+        }
+        write(() -> {
+            int position = allParts.size();
+            allParts.addAll(batch);
+            for (Part part : batch) {
+                partStore.setPosition(part.getRow(), position++);
+                partStore.setLive(part.getRow(), true);
+                indexPart(part);
+                if (writeAheadLog != null) writeAheadLog.logAddPart(part);
+            }
+        });
+    }
+
+    /**
+      Adds several products to Inventory with one list change. Works the same way as addParts.
+      @param newProducts Product objects being added to Inventory. Null entries are skipped.
+     */
+    public static void addProducts(Collection<? extends Product> newProducts) {
+        List<Product> batch = new ArrayList<>(newProducts.size());
+        for (Product product : newProducts) {
+            if (product != null) batch.add(product);
+        }
+        write(() -> {
+            int position = allProducts.size();
+            allProducts.addAll(batch);
+            for (Product product : batch) {
+                product.setListPosition(position++);
+                indexProduct(product);
+                if (writeAheadLog != null) writeAheadLog.logAddProduct(product);
+            }
+        });
+    }
+
+
+    /**
+      Searches product list by ID. If a match exists it is returned. The product is read from the ID index, so the list is not scanned.
+      The read is optimistic and only falls back to the read lock if a change ran at the same time.
       @param productId unique product ID.
       @return the product if found, else null is returned.
      */
     public static Product lookupProduct(int productId){
-        ObservableList<Product> productObservableList = Inventory.getAllProducts();
-        for (Product product : productObservableList) {
-            if(product.getId() == productId) {
-                return product;
+        long stamp = lock.tryOptimisticRead();
+        Product product = null;
+        try {
+            product = productIndex.get(productId);
+        } catch (RuntimeException e) {
+            stamp = 0;
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                product = productIndex.get(productId);
+            } finally {
+                lock.unlockRead(stamp);
             }
         }
-        return null;
+        return product;
     }
 
     /**
-      Searches parts list by ID. If a match exists it is returned.
+      Searches parts list by ID. If a match exists it is returned. The part is read from the ID index, so the list is not scanned.
+      The read is optimistic and only falls back to the read lock if a change ran at the same time.
       @param partId unique product ID.
       @return the part if a matching record is found, else null is returned.
      */
     public static Part lookupPart(int partId) {
-        for (Part part : Inventory.getAllParts()) {
-            if (part.getId() == partId) {
-                return part;
+        long stamp = lock.tryOptimisticRead();
+        Part part = null;
+        try {
+            part = partIndex.get(partId);
+        } catch (RuntimeException e) {
+            stamp = 0;
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                part = partIndex.get(partId);
+            } finally {
+                lock.unlockRead(stamp);
             }
         }
-        return null;
+        return part;
     }
 
 
     /**
       Searches products list by Product Name. If one or multiple matches are found they are returned to the user.
+      Only the products returned by the name index are checked, so the whole list is not scanned for searches of three or more characters.
       @param productName name of the product.
-      @return a list of products matching the string input.
+      @return a list of products matching the string input, ordered by ID for indexed searches.
      */
     public static ObservableList<Product> lookupProduct(String productName){
-       ObservableList<Product> productsFound = FXCollections.observableArrayList();
-       for (Product product : Inventory.getAllProducts()) {
-           if (product.getProductName().toLowerCase().contains(productName.toLowerCase())) {
-               productsFound.add(product);
-           }
-       }
-       return productsFound;
+        return InventoryQuery.create().nameContains(productName).findProducts();
     }
 
     /**
       Searches parts list by Part Name. If one or multiple matches are found they are returned to the user.
+      Only the parts returned by the name index are checked, so the whole list is not scanned for searches of three or more characters.
       @param partName the name of the part.
-      @return a list of parts matching the string input.
+      @return a list of parts matching the string input, ordered by ID for indexed searches.
      */
     public static ObservableList<Part> lookupPart(String partName){
+        return InventoryQuery.create().nameContains(partName).findParts();
+    }
+
+    /**
+      Finds the IDs of the parts a search box text matches: parts whose name contains the text, ignoring case, and when the text is a
+      number, the part with that ID. This is the same rule as InventoryQuery.nameOrId, so a search box and its search button agree.
+      Safe to call from any thread, so search boxes can run it off the FX thread.
+      @param text the search text.
+      @return the matching part IDs.
+     */
+    public static IntHashSet searchPartIds(String text) {
+        IntHashSet matches = new IntHashSet();
+        for (Part part : InventoryQuery.create().nameOrId(text).findParts()) {
+            matches.add(part.getId());
+        }
+        return matches;
+    }
+
+    /**
+      Finds the IDs of the products a search box text matches. Works the same way as searchPartIds.
+      @param text the search text.
+      @return the matching product IDs.
+     */
+    public static IntHashSet searchProductIds(String text) {
+        IntHashSet matches = new IntHashSet();
+        for (Product product : InventoryQuery.create().nameOrId(text).findProducts()) {
+            matches.add(product.getId());
+        }
+        return matches;
+    }
+
+    /**
+      Searches products by name one page at a time. Unlike lookupProduct, a broad search does not copy every match; call next on the page
+      for the rest.
+      @param productName text the product name contains, ignoring case.
+      @param pageSize the most products on a page.
+      @return the first page of matching products, in ascending ID order.
+     */
+    public static InventoryPage<Product> lookupProductPage(String productName, int pageSize) {
+        return InventoryQuery.create().nameContains(productName).findProductsPage(pageSize);
+    }
+
+    /**
+      Searches parts by name one page at a time. Unlike lookupPart, a broad search does not copy every match; call next on the page for
+      the rest.
+      @param partName text the part name contains, ignoring case.
+      @param pageSize the most parts on a page.
+      @return the first page of matching parts, in ascending ID order.
+     */
+    public static InventoryPage<Part> lookupPartPage(String partName, int pageSize) {
+        return InventoryQuery.create().nameContains(partName).findPartsPage(pageSize);
+    }
+
+    /**
+      Runs a query over the parts. The candidates come from an index when the query allows it, otherwise the parts list is scanned, and
+      each candidate is checked against the compiled query.
+      @param query the query.
+      @return the matching parts, in list order, or in the order of the index that supplied the candidates.
+     */
+    static ObservableList<Part> findParts(InventoryQuery query) {
         ObservableList<Part> partsFound = FXCollections.observableArrayList();
-        for (Part part : Inventory.getAllParts()) {
-            if (part.getPartName().toLowerCase().contains(partName.toLowerCase())) {
-                partsFound.add(part);
+        IntPredicate filter = query.compilePartFilter(partStore);
+        if (query.usesNameIndex()) {
+            buildStaleNameIndexes();
+        }
+        long stamp = lock.readLock();
+        try {
+            int[] candidates = candidateIds(query, partNameIndex, partLevels, partsByPrice, partsByStock);
+            if (candidates == null) {
+                for (Part part : allParts) {
+                    if (filter.test(part.getRow())) {
+                        partsFound.add(part);
+                    }
+                }
+                return partsFound;
+            }
+            for (int partId : candidates) {
+                Part part = partIndex.get(partId);
+                if (part != null && filter.test(part.getRow())) {
+                    partsFound.add(part);
+                }
             }
+            return partsFound;
+        } finally {
+            lock.unlockRead(stamp);
         }
-        return partsFound;
     }
 
     /**
-      Gets a list of all parts in the Inventory. This includes Inhouse and Outsourced parts.
-      @return List of all parts.
+      Runs a query over the products. Works the same way as findParts.
+      @param query the query.
+      @return the matching products, in list order, or in the order of the index that supplied the candidates.
      */
-    public static ObservableList<Part> getAllParts() {
-        return allParts;
+    static ObservableList<Product> findProducts(InventoryQuery query) {
+        ObservableList<Product> productsFound = FXCollections.observableArrayList();
+        Predicate<Product> filter = query.compileProductFilter();
+        if (query.usesNameIndex()) {
+            buildStaleNameIndexes();
+        }
+        long stamp = lock.readLock();
+        try {
+            int[] candidates = candidateIds(query, productNameIndex, productLevels, productsByPrice, productsByStock);
+            if (candidates == null) {
+                for (Product product : allProducts) {
+                    if (filter.test(product)) {
+                        productsFound.add(product);
+                    }
+                }
+                return productsFound;
+            }
+            for (int productId : candidates) {
+                Product product = productIndex.get(productId);
+                if (product != null && filter.test(product)) {
+                    productsFound.add(product);
+                }
+            }
+            return productsFound;
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
-      Gets a list of all products in the Inventory. The user can then add or modify products as necessary.
-      @return List of all products.
+      Reads a page of the parts matching a query, in ascending ID order. When the query has an ID or a name the name index can look up,
+      the candidates from that index are paged. They are sorted once and kept with the query, so later pages start from a binary search
+      until the name index changes. Otherwise the part IDs are walked in order from the start ID and each part is checked until the page
+      is full, so a broad query reads little more than one page of parts.
+      @param query the query. It should not be changed while paging.
+      @param pageSize the most parts on the page.
+      @param fromId the lowest ID the page may start at.
+      @return the page.
+      @throws IllegalArgumentException if the page size is not positive.
      */
-    public static ObservableList<Product> getAllProducts() {
-        return allProducts;
+    static InventoryPage<Part> findPartsPage(InventoryQuery query, int pageSize, long fromId) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        IntPredicate filter = query.compilePartFilter(partStore);
+        if (query.usesNameIndex()) {
+            buildStaleNameIndexes();
+        }
+        List<Part> partsFound = new ArrayList<>(Math.min(pageSize, 1024));
+        boolean hasMore = false;
+        long stamp = lock.readLock();
+        try {
+            int[] candidates = sortedCandidateIds(query, partNameIndex);
+            int[] ids = candidates != null ? candidates : new int[Math.min(pageSize + 1, 1024)];
+            int first = candidates != null ? firstAtOrAbove(candidates, fromId) : 0;
+            int count = candidates != null ? candidates.length : partIds.idsFrom(fromId, ids);
+            while (count > first && !hasMore) {
+                for (int i = first; i < count && !hasMore; i++) {
+                    Part part = partIndex.get(ids[i]);
+                    if (part != null && filter.test(part.getRow())) {
+                        if (partsFound.size() == pageSize) {
+                            hasMore = true;
+                        } else {
+                            partsFound.add(part);
+                        }
+                    }
+                }
+                count = candidates != null ? 0 : partIds.idsFrom(ids[count - 1] + 1L, ids);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        int cursor = partsFound.isEmpty() ? 0 : partsFound.get(partsFound.size() - 1).getId();
+        return new InventoryPage<>(partsFound, hasMore, cursor, after -> findPartsPage(query, pageSize, after + 1L));
     }
 
+    /**
+      Reads a page of the products matching a query, in ascending ID order. Works the same way as findPartsPage.
+      @param query the query. It should not be changed while paging.
+      @param pageSize the most products on the page.
+      @param fromId the lowest ID the page may start at.
+      @return the page.
+      @throws IllegalArgumentException if the page size is not positive.
+     */
+    static InventoryPage<Product> findProductsPage(InventoryQuery query, int pageSize, long fromId) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        Predicate<Product> filter = query.compileProductFilter();
+        if (query.usesNameIndex()) {
+            buildStaleNameIndexes();
+        }
+        List<Product> productsFound = new ArrayList<>(Math.min(pageSize, 1024));
+        boolean hasMore = false;
+        long stamp = lock.readLock();
+        try {
+            int[] candidates = sortedCandidateIds(query, productNameIndex);
+            int[] ids = candidates != null ? candidates : new int[Math.min(pageSize + 1, 1024)];
+            int first = candidates != null ? firstAtOrAbove(candidates, fromId) : 0;
+            int count = candidates != null ? candidates.length : productIds.idsFrom(fromId, ids);
+            while (count > first && !hasMore) {
+                for (int i = first; i < count && !hasMore; i++) {
+                    Product product = productIndex.get(ids[i]);
+                    if (product != null && filter.test(product)) {
+                        if (productsFound.size() == pageSize) {
+                            hasMore = true;
+                        } else {
+                            productsFound.add(product);
+                        }
+                    }
+                }
+                count = candidates != null ? 0 : productIds.idsFrom(ids[count - 1] + 1L, ids);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        int cursor = productsFound.isEmpty() ? 0 : productsFound.get(productsFound.size() - 1).getId();
+        return new InventoryPage<>(productsFound, hasMore, cursor, after -> findProductsPage(query, pageSize, after + 1L));
+    }
 
     /**
-      Replaces product in the products list. The product will now appear in the products tableviews in the place of the old product.
-      @param index Index of the product that will be replaced.
-      @param selectedProduct replacement product.
+      Gets the candidate IDs of a paged query in ascending order without duplicates. Name candidates are kept with the query, so the pages
+      after the first reuse them while the name index is unchanged. Called with the read lock held.
+      @param query the query.
+      @param nameIndex the name index of the items queried.
+      @return the sorted candidate IDs, or null if the query has neither an ID nor a name the name index can look up.
      */
-    public static void updateProduct(int index, Product selectedProduct){
-        allProducts.set(index, selectedProduct);
+    private static int[] sortedCandidateIds(InventoryQuery query, TrigramIndex nameIndex) {
+        if (query.hasId()) {
+            return new int[] {query.getId()};
+        }
+        int[] kept = query.pagedCandidates(nameIndex);
+        if (kept != null) {
+            return kept;
+        }
+        int[] candidates = idOrNameCandidateIds(query, nameIndex);
+        if (candidates == null) {
+            return null;
+        }
+        Integer idValue = query.nameOrIdValue();
+        if (idValue != null && candidates.length > 1) {
+            int[] sorted = Arrays.copyOfRange(candidates, 1, candidates.length);
+            int position = Arrays.binarySearch(sorted, idValue);
+            candidates = new int[sorted.length + 1];
+            int insertAt = position < 0 ? -position - 1 : position;
+            System.arraycopy(sorted, 0, candidates, 0, insertAt);
+            candidates[insertAt] = idValue;
+            System.arraycopy(sorted, insertAt, candidates, insertAt + 1, sorted.length - insertAt);
+        }
+        query.keepPagedCandidates(nameIndex, candidates);
+        return candidates;
     }
 
     /**
-      Replaces part in the parts list. The new part will now appear in the old one's place.
-      @param index Index of part that will be replaced.
-      @param selectedPart the replacement part.
+      Finds where a page starts in sorted candidate IDs.
+      @param sorted the candidate IDs in ascending order.
+      @param fromId the lowest ID the page may start at.
+      @return the index of the first ID at or above the start ID.
      */
-    public static void updatePart(int index, Part selectedPart){
-        allParts.set(index, selectedPart);
+    private static int firstAtOrAbove(int[] sorted, long fromId) {
+        if (fromId > Integer.MAX_VALUE) {
+            return sorted.length;
+        }
+        if (fromId < Integer.MIN_VALUE) {
+            return 0;
+        }
+        int position = Arrays.binarySearch(sorted, (int) fromId);
+        if (position < 0) {
+            return -position - 1;
+        }
+        while (position > 0 && sorted[position - 1] == fromId) {
+            position--;
+        }
+        return position;
     }
 
     /**
-      Deletes part from the parts list. The part will no longer appear in the parts table views.
-      @param selectedPart the part that will be removed.
-      @return boolean indicator of part removal status.
+      Picks the IDs a query has to check from the most selective index it can use. Called with the read lock held.
+      @param query the query.
+      @param nameIndex the name index of the items queried.
+      @param levels the stock level index of the items queried.
+      @param byPrice the price index of the items queried.
+      @param byStock the inventory level index of the items queried.
+      @return the candidate IDs, or null if no index applies and the list must be scanned.
      */
-    public static boolean deletePart(Part selectedPart){
+    private static int[] candidateIds(InventoryQuery query, TrigramIndex nameIndex, StockLevelIndex levels, SortedIndex byPrice,
+                                      SortedIndex byStock) {
+        int[] candidates = idOrNameCandidateIds(query, nameIndex);
+        if (candidates != null || query.indexedName() != null) {
+            return candidates;
+        }
+        if (query.isAtOrBelowMin()) {
+            return levels.idsWithin(0);
+        }
+        if (query.hasPriceRange()) {
+            return byPrice.idsBetween(query.getMinPriceCents(), query.getMaxPriceCents(), false);
+        }
+        if (query.hasStockRange()) {
+            return byStock.idsBetween(query.getMinStock(), query.getMaxStock(), false);
+        }
+        return null;
+    }
+
+    /**
+      Picks the IDs a query has to check from its ID or from the name index. Called with the read lock held.
+      @param query the query.
+      @param nameIndex the name index of the items queried.
+      @return the candidate IDs, or null if the query has neither an ID nor a name the name index can look up.
+     */
+    private static int[] idOrNameCandidateIds(InventoryQuery query, TrigramIndex nameIndex) {
+        if (query.hasId()) {
+            return new int[] {query.getId()};
+        }
+        String name = query.indexedName();
+        int[] nameCandidates = name == null || nameIndexesStale ? null : nameIndex.candidates(name);
+        Integer idValue = query.nameOrIdValue();
+        if (nameCandidates != null && idValue != null) {
+            int[] candidates = new int[nameCandidates.length + 1];
+            candidates[0] = idValue;
+            int count = 1;
+            for (int candidate : nameCandidates) {
+                if (candidate != idValue) {
+                    candidates[count++] = candidate;
+                }
+            }
+            return Arrays.copyOf(candidates, count);
+        }
+        return nameCandidates;
+    }
+
+    /**
+      Finds the products that use a part as an associated part. Read from the where-used index, so the products are not scanned.
+      @param partId the ID of the part.
+      @return the products using the part, ordered by ID. Empty if no product uses it.
+     */
+    public static ObservableList<Product> lookupProductsUsingPart(int partId) {
+        ObservableList<Product> productsFound = FXCollections.observableArrayList();
+        long stamp = lock.readLock();
         try {
-            allParts.remove(selectedPart);
-        } catch (Exception e){
-            return false;
+            IntHashSet productIds = whereUsed.get(partId);
+            if (productIds != null) {
+                int[] ids = productIds.toArray();
+                Arrays.sort(ids);
+                for (int productId : ids) {
+                    productsFound.add(productIndex.get(productId));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
         }
-            return true;
+        return productsFound;
     }
 
     /**
-      Swaps part from main menu with the modified part after the part is saved. The new part will now appear in the part table views.
-      @param selectedPart the part to be swapped.
-      @return boolean indicator of swap status.
+      Checks whether any product uses a part as an associated part.
+      @param partId the ID of the part.
+      @return true if at least one product uses the part.
      */
-    public static boolean swapPartModifyMenu(Part selectedPart){
-        if(allParts.contains(selectedPart)){
-            allParts.remove(selectedPart);
-            return true;
-        } else {
-            return false;
+    public static boolean isPartUsed(int partId) {
+        long stamp = lock.readLock();
+        try {
+            return whereUsed.containsId(partId);
+        } finally {
+            lock.unlockRead(stamp);
         }
     }
 
     /**
-      Swaps product from main menu with the modified product after the product is saved. The product will now appear in the product table views.
-      @param selectedProduct the part to be swapped.
-      @return boolean indicator of swap status.
+      Updates the price index and the parts cost of the products that use a part after its price changed. Only the products found in the where-used index are
+      recalculated. The indexes are updated, the change logged and published under the write lock, so the logged values cannot be overtaken
+      by a stock adjustment or interleave with a replace or delete. Parts that are not in the Inventory are skipped without taking the lock.
+      Called by Part, must not be called while holding the Inventory lock.
+      @param part the part whose price changed.
      */
-    public static boolean swapProductModifyMenu(Product selectedProduct){
-        if(allProducts.contains(selectedProduct)){
-            allProducts.remove(selectedProduct);
-            return true;
-        } else {
-            return false;
+    static void partPriceChanged(Part part) {
+        if (lookupPart(part.getId()) != part) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (partIndex.get(part.getId()) != part) {
+                return;
+            }
+            partStore.incrementVersion(part.getRow());
+            synchronized (partLevels) {
+                partsByPrice.update(part.getId(), part.getPriceCents());
+            }
+            if (writeAheadLog != null) writeAheadLog.logSetPart(part);
+            publishChange(ChangeFeed.PART, ChangeFeed.UPDATED, part.getId());
+            IntHashSet productIds = whereUsed.get(part.getId());
+            if (productIds != null) {
+                for (int productId : productIds.toArray()) {
+                    productIndex.get(productId).updatePartsCost();
+                    publishChange(ChangeFeed.PRODUCT, ChangeFeed.UPDATED, productId);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
         }
     }
 
     /**
-      Removes product from products list. The product will no longer appear in the tableviews.
-      @param selectedProduct product that will be removed.
-      @return boolean indicator of product removal status.
+      Updates the price index after the price of a product changed. Works the same way as partPriceChanged.
+      Called by Product, must not be called while holding the Inventory lock.
+      @param product the changed product.
      */
-    public static boolean deleteProduct(Product selectedProduct){
+    static void productPriceChanged(Product product) {
+        if (lookupProduct(product.getId()) != product) {
+            return;
+        }
+        long stamp = lock.writeLock();
         try {
-            allProducts.remove(selectedProduct);
-        }catch (Exception e) {
-            return false;
+            if (productIndex.get(product.getId()) == product) {
+                product.incrementVersion();
+                synchronized (productLevels) {
+                    productsByPrice.update(product.getId(), product.getPriceCents());
+                }
+                if (writeAheadLog != null) writeAheadLog.logSetProduct(product);
+                publishChange(ChangeFeed.PRODUCT, ChangeFeed.UPDATED, product.getId());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+      Moves a renamed part in the name index from its old name to its new one, bumps its version and logs it. Parts that are not in the
+      Inventory are skipped. Called by Part, must not be called while holding the Inventory lock.
+      @param part the renamed part.
+      @param oldName the name the part had before.
+     */
+    static void partNameChanged(Part part, String oldName) {
+        if (lookupPart(part.getId()) != part) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (partIndex.get(part.getId()) == part) {
+                if (!nameIndexesStale) {
+                    partNameIndex.remove(part.getId(), oldName);
+                    partNameIndex.add(part.getId(), part.getPartName());
+                }
+                partStore.incrementVersion(part.getRow());
+                if (writeAheadLog != null) writeAheadLog.logSetPart(part);
+                publishChange(ChangeFeed.PART, ChangeFeed.UPDATED, part.getId());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+      Moves a renamed product in the name index. Works the same way as partNameChanged.
+      Called by Product, must not be called while holding the Inventory lock.
+      @param product the renamed product.
+      @param oldName the name the product had before.
+     */
+    static void productNameChanged(Product product, String oldName) {
+        if (lookupProduct(product.getId()) != product) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (productIndex.get(product.getId()) == product) {
+                if (!nameIndexesStale) {
+                    productNameIndex.remove(product.getId(), oldName);
+                    productNameIndex.add(product.getId(), product.getProductName());
+                }
+                product.incrementVersion();
+                if (writeAheadLog != null) writeAheadLog.logSetProduct(product);
+                publishChange(ChangeFeed.PRODUCT, ChangeFeed.UPDATED, product.getId());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+      Records a change to the machine ID or company name of a part. No index holds these fields, so the part version is bumped and the change
+      logged and published. Parts that are not in the Inventory are skipped. Called by InHouse and Outsourced, must not be called while holding
+      the Inventory lock.
+      @param part the changed part.
+     */
+    static void partDetailsChanged(Part part) {
+        if (lookupPart(part.getId()) != part) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (partIndex.get(part.getId()) == part) {
+                partStore.incrementVersion(part.getRow());
+                if (writeAheadLog != null) writeAheadLog.logSetPart(part);
+                publishChange(ChangeFeed.PART, ChangeFeed.UPDATED, part.getId());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+      Records a part added to the associated parts of a product. Products that are not in the Inventory are skipped; their associated parts
+      are indexed when they are added. Called by Product, must not be called while holding the Inventory lock.
+      @param product the product.
+      @param part the associated part.
+     */
+    static void associatedPartAdded(Product product, Part part) {
+        if (lookupProduct(product.getId()) != product) {
+            return;
+        }
+        write(() -> {
+            if (productIndex.get(product.getId()) == product) {
+                Part added = part;
+                if (part.isFreed()) {
+                    added = part.copy();
+                    synchronized (product) {
+                        ObservableList<Part> associatedParts = product.getAllAssociatedParts();
+                        int i = associatedParts.lastIndexOf(part);
+                        if (i >= 0) {
+                            associatedParts.set(i, added);
+                        }
+                    }
+                }
+                addWhereUsed(added.getId(), product.getId());
+                if (writeAheadLog != null) writeAheadLog.logAddAssociatedPart(product, added);
+                publishChange(ChangeFeed.PRODUCT, ChangeFeed.UPDATED, product.getId());
+            }
+        });
+    }
+
+    /**
+      Records a part removed from the associated parts of a product. The product keeps its where-used entry if it still has another
+      associated part with the same ID. Called by Product, must not be called while holding the Inventory lock.
+      @param product the product.
+      @param part the removed part.
+     */
+    static void associatedPartRemoved(Product product, Part part) {
+        if (lookupProduct(product.getId()) != product) {
+            return;
+        }
+        write(() -> {
+            if (productIndex.get(product.getId()) == product) {
+                if (writeAheadLog != null) writeAheadLog.logRemoveAssociatedPart(product, part);
+                for (Part associatedPart : product.getAllAssociatedParts()) {
+                    if (associatedPart.getId() == part.getId()) {
+                        publishChange(ChangeFeed.PRODUCT, ChangeFeed.UPDATED, product.getId());
+                        return;
+                    }
+                }
+                removeWhereUsed(part.getId(), product.getId());
+                publishChange(ChangeFeed.PRODUCT, ChangeFeed.UPDATED, product.getId());
+            }
+        });
+    }
+
+    /**
+      Finds the parts at or below their minimum stock, the parts that need reordering. Read from the stock level index, so the parts are not scanned.
+      @return the parts at or below their minimum, ordered by ID.
+     */
+    public static ObservableList<Part> lookupPartsAtOrBelowMin() {
+        return lookupPartsWithinHeadroom(0);
+    }
+
+    /**
+      Finds the parts whose inventory level is at most a given amount above their minimum.
+      @param headroom the largest inventory level above the minimum to include.
+      @return the matching parts, ordered by ID.
+     */
+    public static ObservableList<Part> lookupPartsWithinHeadroom(int headroom) {
+        ObservableList<Part> partsFound = FXCollections.observableArrayList();
+        int[] ids = partLevels.idsWithin(headroom);
+        long stamp = lock.readLock();
+        try {
+            for (int partId : ids) {
+                Part part = partIndex.get(partId);
+                if (part != null && (long) part.getStock() - part.getMin() <= headroom) {
+                    partsFound.add(part);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return partsFound;
+    }
+
+    /**
+      Finds the parts priced within a range, in price order. Read from the price index, so the parts are not scanned or sorted.
+      @param minCents lowest price to include, in cents.
+      @param maxCents highest price to include, in cents.
+      @param descending true for the highest price first.
+      @return the matching parts.
+     */
+    public static ObservableList<Part> lookupPartsByPrice(long minCents, long maxCents, boolean descending) {
+        return partsFromIndex(partsByPrice.idsBetween(minCents, maxCents, descending), minCents, maxCents, Part::getPriceCents);
+    }
+
+    /**
+      Finds the parts whose inventory level is within a range, in inventory level order.
+      @param min lowest inventory level to include.
+      @param max highest inventory level to include.
+      @param descending true for the highest level first.
+      @return the matching parts.
+     */
+    public static ObservableList<Part> lookupPartsByStock(int min, int max, boolean descending) {
+        return partsFromIndex(partsByStock.idsBetween(min, max, descending), min, max, Part::getStock);
+    }
+
+    /**
+      Finds the parts whose headroom, inventory level less minimum, is within a range, in headroom order.
+      @param min lowest headroom to include.
+      @param max highest headroom to include.
+      @param descending true for the largest headroom first.
+      @return the matching parts.
+     */
+    public static ObservableList<Part> lookupPartsByHeadroom(int min, int max, boolean descending) {
+        return partsFromIndex(partsByHeadroom.idsBetween(min, max, descending), min, max, part -> (long) part.getStock() - part.getMin());
+    }
+
+    /**
+      Finds the products priced within a range, in price order. Works the same way as lookupPartsByPrice.
+      @param minCents lowest price to include, in cents.
+      @param maxCents highest price to include, in cents.
+      @param descending true for the highest price first.
+      @return the matching products.
+     */
+    public static ObservableList<Product> lookupProductsByPrice(long minCents, long maxCents, boolean descending) {
+        return productsFromIndex(productsByPrice.idsBetween(minCents, maxCents, descending), minCents, maxCents, Product::getPriceCents);
+    }
+
+    /**
+      Finds the products whose inventory level is within a range, in inventory level order.
+      @param min lowest inventory level to include.
+      @param max highest inventory level to include.
+      @param descending true for the highest level first.
+      @return the matching products.
+     */
+    public static ObservableList<Product> lookupProductsByStock(int min, int max, boolean descending) {
+        return productsFromIndex(productsByStock.idsBetween(min, max, descending), min, max, Product::getStock);
+    }
+
+    /**
+      Finds the products whose headroom is within a range, in headroom order.
+      @param min lowest headroom to include.
+      @param max highest headroom to include.
+      @param descending true for the largest headroom first.
+      @return the matching products.
+     */
+    public static ObservableList<Product> lookupProductsByHeadroom(int min, int max, boolean descending) {
+        return productsFromIndex(productsByHeadroom.idsBetween(min, max, descending), min, max,
+                product -> (long) product.getStock() - product.getMin());
+    }
+
+    /**
+      Turns IDs read from a sorted index into parts, keeping the index order. Each part's key is checked again under the read lock,
+      because a stock adjustment may have moved it since the index was read.
+      @param ids the IDs from the index.
+      @param low lowest key to include.
+      @param high highest key to include.
+      @param key reads the indexed key of a part.
+      @return the parts.
+     */
+    private static ObservableList<Part> partsFromIndex(int[] ids, long low, long high, ToLongFunction<Part> key) {
+        ObservableList<Part> partsFound = FXCollections.observableArrayList();
+        long stamp = lock.readLock();
+        try {
+            for (int partId : ids) {
+                Part part = partIndex.get(partId);
+                if (part != null && key.applyAsLong(part) >= low && key.applyAsLong(part) <= high) {
+                    partsFound.add(part);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return partsFound;
+    }
+
+    /**
+      Turns IDs read from a sorted index into products, keeping the index order. Works the same way as partsFromIndex.
+      @param ids the IDs from the index.
+      @param low lowest key to include.
+      @param high highest key to include.
+      @param key reads the indexed key of a product.
+      @return the products.
+     */
+    private static ObservableList<Product> productsFromIndex(int[] ids, long low, long high, ToLongFunction<Product> key) {
+        ObservableList<Product> productsFound = FXCollections.observableArrayList();
+        long stamp = lock.readLock();
+        try {
+            for (int productId : ids) {
+                Product product = productIndex.get(productId);
+                if (product != null && key.applyAsLong(product) >= low && key.applyAsLong(product) <= high) {
+                    productsFound.add(product);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return productsFound;
+    }
+
+    /**
+      Finds the products at or below their minimum stock. Works the same way as lookupPartsAtOrBelowMin.
+      @return the products at or below their minimum, ordered by ID.
+     */
+    public static ObservableList<Product> lookupProductsAtOrBelowMin() {
+        return lookupProductsWithinHeadroom(0);
+    }
+
+    /**
+      Finds the products whose inventory level is at most a given amount above their minimum.
+      @param headroom the largest inventory level above the minimum to include.
+      @return the matching products, ordered by ID.
+     */
+    public static ObservableList<Product> lookupProductsWithinHeadroom(int headroom) {
+        ObservableList<Product> productsFound = FXCollections.observableArrayList();
+        int[] ids = productLevels.idsWithin(headroom);
+        long stamp = lock.readLock();
+        try {
+            for (int productId : ids) {
+                Product product = productIndex.get(productId);
+                if (product != null && (long) product.getStock() - product.getMin() <= headroom) {
+                    productsFound.add(product);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return productsFound;
+    }
+
+    /**
+      Finds the parts with the highest stock value, inventory level times price. The part store columns are offered to a bounded heap, so
+      this is O(n log k) and the parts are neither copied nor sorted.
+      @param k the number of parts to find.
+      @return the top k parts, highest value first; parts with the same value are ordered by ID.
+     */
+    public static ObservableList<Part> topPartsByValue(int k) {
+        TopK top = new TopK(k);
+        rankPartsByValue(top);
+        return partsById(top.drainIds());
+    }
+
+    /**
+      Finds the products with the highest stock value, inventory level times price. Works the same way as topPartsByValue.
+      @param k the number of products to find.
+      @return the top k products, highest value first; products with the same value are ordered by ID.
+     */
+    public static ObservableList<Product> topProductsByValue(int k) {
+        TopK top = new TopK(k);
+        rankProductsByValue(top);
+        return productsById(top.drainIds());
+    }
+
+    /**
+      Finds the parts furthest below their minimum stock. Read from the front of the headroom index, so only k parts are looked at.
+      @param k the number of parts to find.
+      @return up to k parts whose inventory level is below their minimum, largest shortage first; ties are ordered by ID.
+     */
+    public static ObservableList<Part> partsFurthestBelowMin(int k) {
+        TopK top = new TopK(k);
+        rankPartsByShortage(top);
+        return partsById(top.drainIds());
+    }
+
+    /**
+      Finds the products furthest below their minimum stock. Works the same way as partsFurthestBelowMin.
+      @param k the number of products to find.
+      @return up to k products whose inventory level is below their minimum, largest shortage first; ties are ordered by ID.
+     */
+    public static ObservableList<Product> productsFurthestBelowMin(int k) {
+        TopK top = new TopK(k);
+        rankProductsByShortage(top);
+        return productsById(top.drainIds());
+    }
+
+    /**
+      Creates a tracker that keeps the parts with the highest stock value current as the Inventory changes.
+      @param k the number of parts to rank.
+      @return the tracker.
+     */
+    public static TopKTracker<Part> trackTopPartsByValue(int k) {
+        return new TopKTracker<>(changeFeed, ChangeFeed.PART, k, Inventory::partValueCents, Inventory::lookupPart,
+                Inventory::rankPartsByValue);
+    }
+
+    /**
+      Creates a tracker that keeps the products with the highest stock value current as the Inventory changes.
+      @param k the number of products to rank.
+      @return the tracker.
+     */
+    public static TopKTracker<Product> trackTopProductsByValue(int k) {
+        return new TopKTracker<>(changeFeed, ChangeFeed.PRODUCT, k, Inventory::productValueCents, Inventory::lookupProduct,
+                Inventory::rankProductsByValue);
+    }
+
+    /**
+      Creates a tracker that keeps the parts furthest below their minimum stock current as the Inventory changes.
+      @param k the number of parts to rank.
+      @return the tracker.
+     */
+    public static TopKTracker<Part> trackPartsFurthestBelowMin(int k) {
+        return new TopKTracker<>(changeFeed, ChangeFeed.PART, k, Inventory::partShortage, Inventory::lookupPart,
+                Inventory::rankPartsByShortage);
+    }
+
+    /**
+      Creates a tracker that keeps the products furthest below their minimum stock current as the Inventory changes.
+      @param k the number of products to rank.
+      @return the tracker.
+     */
+    public static TopKTracker<Product> trackProductsFurthestBelowMin(int k) {
+        return new TopKTracker<>(changeFeed, ChangeFeed.PRODUCT, k, Inventory::productShortage, Inventory::lookupProduct,
+                Inventory::rankProductsByShortage);
+    }
+
+    /**
+      Offers every part to a heap by stock value, scanning the part store columns under the read lock.
+      @param top the heap.
+     */
+    private static void rankPartsByValue(TopK top) {
+        long stamp = lock.readLock();
+        try {
+            partStore.forEachLiveRow(row -> top.offer((long) partStore.getStockVolatile(row) * partStore.getPriceCents(row),
+                    partStore.getId(row)));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+      Offers every product to a heap by stock value under the read lock.
+      @param top the heap.
+     */
+    private static void rankProductsByValue(TopK top) {
+        long stamp = lock.readLock();
+        try {
+            for (Product product : allProducts) {
+                top.offer(product.getStockVolatile() * product.getPriceCents(), product.getId());
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+      Offers the parts furthest below their minimum to a heap by shortage. Only as many parts as the heap keeps are read from the front of
+      the headroom index; each shortage is read again from the part, since an adjustment may have moved it since the index was read.
+      @param top the heap.
+     */
+    private static void rankPartsByShortage(TopK top) {
+        for (int partId : partsByHeadroom.idsBetween(Long.MIN_VALUE, -1, false, top.getLimit())) {
+            top.offer(partShortage(partId), partId);
+        }
+    }
+
+    /**
+      Offers the products furthest below their minimum to a heap by shortage. Works the same way as rankPartsByShortage.
+      @param top the heap.
+     */
+    private static void rankProductsByShortage(TopK top) {
+        for (int productId : productsByHeadroom.idsBetween(Long.MIN_VALUE, -1, false, top.getLimit())) {
+            top.offer(productShortage(productId), productId);
+        }
+    }
+
+    /**
+      Gets the stock value of a part, the top-K key of the value rankings.
+      @param partId the ID of the part.
+      @return the value in cents, or TopK.ABSENT if no part has the ID.
+     */
+    private static long partValueCents(int partId) {
+        Part part = lookupPart(partId);
+        return part == null ? TopK.ABSENT : (long) part.getStock() * part.getPriceCents();
+    }
+
+    /**
+      Gets the stock value of a product, the top-K key of the value rankings.
+      @param productId the ID of the product.
+      @return the value in cents, or TopK.ABSENT if no product has the ID.
+     */
+    private static long productValueCents(int productId) {
+        Product product = lookupProduct(productId);
+        return product == null ? TopK.ABSENT : product.getStockVolatile() * product.getPriceCents();
+    }
+
+    /**
+      Gets how far a part is below its minimum stock, the top-K key of the shortage rankings.
+      @param partId the ID of the part.
+      @return the minimum less the inventory level, or TopK.ABSENT if no part has the ID or it is not below its minimum.
+     */
+    private static long partShortage(int partId) {
+        Part part = lookupPart(partId);
+        long shortage = part == null ? 0 : (long) part.getMin() - part.getStock();
+        return shortage > 0 ? shortage : TopK.ABSENT;
+    }
+
+    /**
+      Gets how far a product is below its minimum stock. Works the same way as partShortage.
+      @param productId the ID of the product.
+      @return the minimum less the inventory level, or TopK.ABSENT if no product has the ID or it is not below its minimum.
+     */
+    private static long productShortage(int productId) {
+        Product product = lookupProduct(productId);
+        long shortage = product == null ? 0 : (long) product.getMin() - product.getStockVolatile();
+        return shortage > 0 ? shortage : TopK.ABSENT;
+    }
+
+    /**
+      Turns IDs into parts under the read lock, keeping their order. IDs of parts deleted since they were read are skipped.
+      @param ids the part IDs.
+      @return the parts.
+     */
+    private static ObservableList<Part> partsById(int[] ids) {
+        ObservableList<Part> partsFound = FXCollections.observableArrayList();
+        long stamp = lock.readLock();
+        try {
+            for (int partId : ids) {
+                Part part = partIndex.get(partId);
+                if (part != null) {
+                    partsFound.add(part);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return partsFound;
+    }
+
+    /**
+      Turns IDs into products under the read lock, keeping their order. Works the same way as partsById.
+      @param ids the product IDs.
+      @return the products.
+     */
+    private static ObservableList<Product> productsById(int[] ids) {
+        ObservableList<Product> productsFound = FXCollections.observableArrayList();
+        long stamp = lock.readLock();
+        try {
+            for (int productId : ids) {
+                Product product = productIndex.get(productId);
+                if (product != null) {
+                    productsFound.add(product);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return productsFound;
+    }
+
+    /**
+      Adds a listener told when a part reaches or falls below its minimum stock, or rises back above it.
+      @param listener the listener to add.
+     */
+    public static void addPartReorderListener(ReorderListener listener) {
+        partLevels.addListener(listener);
+    }
+
+    /**
+      Removes a part reorder listener.
+      @param listener the listener to remove.
+     */
+    public static void removePartReorderListener(ReorderListener listener) {
+        partLevels.removeListener(listener);
+    }
+
+    /**
+      Adds a listener told when a product reaches or falls below its minimum stock, or rises back above it.
+      @param listener the listener to add.
+     */
+    public static void addProductReorderListener(ReorderListener listener) {
+        productLevels.addListener(listener);
+    }
+
+    /**
+      Removes a product reorder listener.
+      @param listener the listener to remove.
+     */
+    public static void removeProductReorderListener(ReorderListener listener) {
+        productLevels.removeListener(listener);
+    }
+
+    /**
+      Updates the stock level index after the inventory level or limits of a part changed, and logs the part. Parts that are not in the Inventory
+      are skipped. The write lock keeps stock adjustments out while the new level is logged, so replay ends at the same level.
+      Called by Part, must not be called while holding the Inventory lock.
+      @param part the changed part.
+     */
+    static void partStockChanged(Part part) {
+        if (lookupPart(part.getId()) != part) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (partIndex.get(part.getId()) != part) {
+                return;
+            }
+            partStore.incrementVersion(part.getRow());
+            updatePartLevel(part);
+            if (writeAheadLog != null) writeAheadLog.logSetPart(part);
+            publishChange(ChangeFeed.PART, ChangeFeed.UPDATED, part.getId());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        partLevels.publishCrossings();
+    }
+
+    /**
+      Updates the stock level index after the inventory level or limits of a product changed. Works the same way as partStockChanged.
+      @param product the changed product.
+     */
+    static void productStockChanged(Product product) {
+        if (lookupProduct(product.getId()) != product) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (productIndex.get(product.getId()) != product) {
+                return;
+            }
+            product.incrementVersion();
+            updateProductLevel(product);
+            if (writeAheadLog != null) writeAheadLog.logSetProduct(product);
+            publishChange(ChangeFeed.PRODUCT, ChangeFeed.UPDATED, product.getId());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        productLevels.publishCrossings();
+    }
+
+    /**
+      Gets a list of all parts in the Inventory. This includes Inhouse and Outsourced parts.
+      The list changes on the FX thread, so other threads should use copyAllParts instead.
+      @return List of all parts.
+     */
+    public static ObservableList<Part> getAllParts() {
+        return allParts;
+    }
+
+    /**
+      Gets a list of all products in the Inventory. The user can then add or modify products as necessary.
+      The list changes on the FX thread, so other threads should use copyAllProducts instead.
+      @return List of all products.
+     */
+    public static ObservableList<Product> getAllProducts() {
+        return allProducts;
+    }
+
+    /**
+      Creates a list of the parts in ID order that loads them a page at a time, for table views of large catalogs. Use it on the FX thread.
+      @return the paged list.
+     */
+    public static PagedObservableList<Part> getPagedParts() {
+        return new PagedObservableList<>(new IdOrderSource<>(ChangeFeed.PART, partIds, partIndex), allParts);
+    }
+
+    /**
+      Creates a list of the products in ID order that loads them a page at a time. Works the same way as getPagedParts.
+      @return the paged list.
+     */
+    public static PagedObservableList<Product> getPagedProducts() {
+        return new PagedObservableList<>(new IdOrderSource<>(ChangeFeed.PRODUCT, productIds, productIndex), allProducts);
+    }
+
+
+    /**
+      Copies the parts list under the read lock. Safe to call from any thread.
+      @return a copy of the parts list.
+     */
+    public static List<Part> copyAllParts() {
+        long stamp = lock.readLock();
+        try {
+            return new ArrayList<>(allParts);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+      Copies the products list under the read lock. Safe to call from any thread.
+      @return a copy of the products list.
+     */
+    public static List<Product> copyAllProducts() {
+        long stamp = lock.readLock();
+        try {
+            return new ArrayList<>(allProducts);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+      Gets the total value of the parts in the Inventory, the sum of stock times price. The sum is exact and runs over the part store columns.
+      @return the value in cents.
+     */
+    public static long getPartsValueCents() {
+        long stamp = lock.readLock();
+        try {
+            return partStore.totalValueCents();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+      Gets the total value of the products in the Inventory, the sum of stock times price.
+      @return the value in cents.
+     */
+    public static long getProductsValueCents() {
+        long stamp = lock.readLock();
+        try {
+            long total = 0;
+            for (Product product : allProducts) {
+                total += product.getStockVolatile() * product.getPriceCents();
+            }
+            return total;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+      Values the whole Inventory under the read lock: stock value by part type and for products, and the at or below min counts.
+      @return the valuation.
+     */
+    public static InventoryValuation getValuation() {
+        long stamp = lock.readLock();
+        try {
+            return InventoryValuation.compute(partStore, allProducts);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+      Computes the supplier, machine and at risk product reports in parallel. The rows are copied under the read lock and the reports are
+      computed after it is released, so changes only wait for the copy.
+      @return the reports.
+     */
+    public static InventoryReport getReport() {
+        InventoryReport.Rows rows;
+        long stamp = lock.readLock();
+        try {
+            rows = InventoryReport.copyRows(partStore, allProducts, partIndex);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return InventoryReport.compute(rows);
+    }
+
+    /**
+      Replaces product in the products list. The product will now appear in the products tableviews in the place of the old product.
+      @param index Index of the product that will be replaced.
+      @param selectedProduct replacement product.
+     */
+    public static void updateProduct(int index, Product selectedProduct){
+        write(() -> {
+            Product oldProduct = allProducts.set(index, selectedProduct);
+            selectedProduct.setListPosition(index);
+            unindexProduct(oldProduct);
+            indexProduct(selectedProduct);
+            if (writeAheadLog != null) writeAheadLog.logUpdateProduct(index, selectedProduct);
+        });
+    }
+
+    /**
+      Replaces part in the parts list. The new part will now appear in the old one's place.
+      @param index Index of part that will be replaced.
+      @param selectedPart the replacement part.
+     */
+    public static void updatePart(int index, Part selectedPart){
+        write(() -> {
+            Part oldPart = allParts.set(index, selectedPart);
+            partStore.setPosition(selectedPart.getRow(), index);
+            partStore.setLive(oldPart.getRow(), false);
+            partStore.setLive(selectedPart.getRow(), true);
+            unindexPart(oldPart);
+            indexPart(selectedPart);
+            freePartRow(oldPart);
+            if (writeAheadLog != null) writeAheadLog.logUpdatePart(index, selectedPart);
+        });
+    }
+
+    /**
+      Replaces the part with an ID in its place in the parts list. The part is found through the ID index and its last known list position,
+      so the edit is one list set and shows as a single replaced row in the table views. The replacement gets the next version stamp.
+      @param partId ID of the part being replaced.
+      @param replacement the replacement part.
+      @param expectedVersion version of the part the replacement was made from, as returned by getVersion.
+      @return true if the part was replaced, false if no part has the ID or it was replaced or changed in place since the expected version.
+     */
+    public static boolean replacePart(int partId, Part replacement, int expectedVersion) {
+        return writeAndWait(() -> {
+            Part oldPart = partIndex.get(partId);
+            if (replacement == null || oldPart == null || oldPart.getVersion() != expectedVersion) {
+                return false;
+            }
+            int index = partPosition(oldPart);
+            if (index < 0) {
+                return false;
+            }
+            allParts.set(index, replacement);
+            partStore.setPosition(replacement.getRow(), index);
+            partStore.setLive(oldPart.getRow(), false);
+            partStore.setLive(replacement.getRow(), true);
+            IntHashSet orphanedIds = new IntHashSet();
+            indexPart(replacement);
+            dropPartIndex(oldPart, orphanedIds);
+            reindexParts(orphanedIds);
+            freePartRow(oldPart);
+            if (writeAheadLog != null) writeAheadLog.logUpdatePart(index, replacement);
+            return true;
+        });
+    }
+
+    /**
+      Replaces the product with an ID in its place in the products list. Works the same way as replacePart.
+      @param productId ID of the product being replaced.
+      @param replacement the replacement product.
+      @param expectedVersion version of the product the replacement was made from, as returned by getVersion.
+      @return true if the product was replaced, false if no product has the ID or it was replaced or changed in place since the expected version.
+     */
+    public static boolean replaceProduct(int productId, Product replacement, int expectedVersion) {
+        return writeAndWait(() -> {
+            Product oldProduct = productIndex.get(productId);
+            if (replacement == null || oldProduct == null || oldProduct.getVersion() != expectedVersion) {
+                return false;
+            }
+            int index = productPosition(oldProduct);
+            if (index < 0) {
+                return false;
+            }
+            allProducts.set(index, replacement);
+            replacement.setListPosition(index);
+            IntHashSet orphanedIds = new IntHashSet();
+            indexProduct(replacement);
+            dropProductIndex(oldProduct, orphanedIds);
+            reindexProducts(orphanedIds);
+            if (writeAheadLog != null) writeAheadLog.logUpdateProduct(index, replacement);
+            return true;
+        });
+    }
+
+    /**
+      Adds a delta to the inventory level of a part, such as parts received or picked, without replacing the part. Adjustments take only the
+      read lock and change the level with a compare-and-set loop, so adjustments from many threads run together and never overwrite each other.
+      A result outside min and max is rejected, the same check the part menus apply when saving.
+      @param partId ID of the part.
+      @param delta amount to add to the inventory level, negative to remove stock.
+      @return true if the level was changed, false if no part has the ID or the new level would be outside min and max.
+     */
+    public static boolean adjustPartStock(int partId, int delta) {
+        return adjustPartStock(partId, delta, true);
+    }
+
+    /**
+      Adds a delta to the inventory level of a part. The change log replays adjustments without the min and max check: they were accepted
+      when made, and adjustments logged at the same time may be in a different order than they were applied.
+      The level is changed and logged while holding the read lock, so an adjustment is logged on the same side of a replace, delete or swap
+      as it was applied and the log replays to the same levels.
+      @param partId ID of the part.
+      @param delta amount to add to the inventory level.
+      @param checkLimits true to reject a result outside min and max.
+      @return true if the level was changed.
+     */
+    static boolean adjustPartStock(int partId, int delta, boolean checkLimits) {
+        long stamp = lock.readLock();
+        try {
+            Part part = partIndex.get(partId);
+            if (part == null) {
+                return false;
+            }
+            int row = part.getRow();
+            int stock;
+            long newStock;
+            do {
+                stock = partStore.getStockVolatile(row);
+                newStock = (long) stock + delta;
+                if (checkLimits && (newStock < partStore.getMin(row) || newStock > partStore.getMax(row))) {
+                    return false;
+                }
+            } while (!partStore.compareAndSetStock(row, stock, (int) newStock));
+            if (writeAheadLog != null) writeAheadLog.logAdjustPartStock(partId, delta);
+            partStore.incrementVersion(row);
+            updatePartLevel(part);
+            publishChange(ChangeFeed.PART, ChangeFeed.UPDATED, partId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        partLevels.publishCrossings();
+        return true;
+    }
+
+    /**
+      Adds a delta to the inventory level of a product without replacing the product. Works the same way as adjustPartStock.
+      @param productId ID of the product.
+      @param delta amount to add to the inventory level, negative to remove stock.
+      @return true if the level was changed, false if no product has the ID or the new level would be outside min and max.
+     */
+    public static boolean adjustProductStock(int productId, int delta) {
+        return adjustProductStock(productId, delta, true);
+    }
+
+    /**
+      Adds a delta to the inventory level of a product. Works the same way as the adjustPartStock used by the change log.
+      @param productId ID of the product.
+      @param delta amount to add to the inventory level.
+      @param checkLimits true to reject a result outside min and max.
+      @return true if the level was changed.
+     */
+    static boolean adjustProductStock(int productId, int delta, boolean checkLimits) {
+        long stamp = lock.readLock();
+        try {
+            Product product = productIndex.get(productId);
+            if (product == null) {
+                return false;
+            }
+            int stock;
+            long newStock;
+            do {
+                stock = product.getStockVolatile();
+                newStock = (long) stock + delta;
+                if (checkLimits && (newStock < product.getMin() || newStock > product.getMax())) {
+                    return false;
+                }
+            } while (!product.compareAndSetStock(stock, (int) newStock));
+            if (writeAheadLog != null) writeAheadLog.logAdjustProductStock(productId, delta);
+            product.incrementVersion();
+            updateProductLevel(product);
+            publishChange(ChangeFeed.PRODUCT, ChangeFeed.UPDATED, productId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        productLevels.publishCrossings();
+        return true;
+    }
+
+    /**
+      Deletes part from the parts list. The part will no longer appear in the parts table views.
+      @param selectedPart the part that will be removed.
+      @return boolean indicator of part removal status.
+     */
+    public static boolean deletePart(Part selectedPart){
+        return writeAndWait(() -> {
+            try {
+                int index = partPosition(selectedPart);
+                if (index >= 0) {
+                    allParts.remove(index);
+                    partStore.setLive(selectedPart.getRow(), false);
+                    unindexPart(selectedPart);
+                    freePartRow(selectedPart);
+                    if (writeAheadLog != null) writeAheadLog.logDeletePart(index);
+                }
+            } catch (Exception e){
+                return false;
+            }
+                return true;
+        });
+    }
+
+    /**
+      Swaps part from main menu with the modified part after the part is saved. The new part will now appear in the part table views.
+      @param selectedPart the part to be swapped.
+      @return boolean indicator of swap status.
+     */
+    public static boolean swapPartModifyMenu(Part selectedPart){
+        return writeAndWait(() -> {
+            int index = partPosition(selectedPart);
+            if(index >= 0){
+                allParts.remove(index);
+                partStore.setLive(selectedPart.getRow(), false);
+                unindexPart(selectedPart);
+                freePartRow(selectedPart);
+                if (writeAheadLog != null) writeAheadLog.logSwapPart(index);
+                return true;
+            } else {
+                return false;
+            }
+        });
+    }
+
+    /**
+      Swaps product from main menu with the modified product after the product is saved. The product will now appear in the product table views.
+      @param selectedProduct the part to be swapped.
+      @return boolean indicator of swap status.
+     */
+    public static boolean swapProductModifyMenu(Product selectedProduct){
+        return writeAndWait(() -> {
+            int index = productPosition(selectedProduct);
+            if(index >= 0){
+                allProducts.remove(index);
+                unindexProduct(selectedProduct);
+                if (writeAheadLog != null) writeAheadLog.logSwapProduct(index);
+                return true;
+            } else {
+                return false;
+            }
+        });
+    }
+
+    /**
+      Removes product from products list. The product will no longer appear in the tableviews.
+      @param selectedProduct product that will be removed.
+      @return boolean indicator of product removal status.
+     */
+    public static boolean deleteProduct(Product selectedProduct){
+        return writeAndWait(() -> {
+            try {
+                int index = productPosition(selectedProduct);
+                if (index >= 0) {
+                    allProducts.remove(index);
+                    unindexProduct(selectedProduct);
+                    if (writeAheadLog != null) writeAheadLog.logDeleteProduct(index);
+                }
+            }catch (Exception e) {
+                return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+      Replaces parts by ID with one list change. Each replacement takes the list position of the part currently indexed for its ID.
+      @param replacements the replacement parts keyed by the ID of the part they replace.
+      @return true if every ID matched a part, false if some were not found. Matching IDs are replaced either way.
+     */
+    public static boolean updateParts(Map<Integer, ? extends Part> replacements) {
+        return writeAndWait(() -> {
+            List<Part> updated = new ArrayList<>(allParts);
+            int[] positions = new int[replacements.size()];
+            Part[] oldParts = new Part[replacements.size()];
+            int found = 0;
+            for (int i = 0; i < updated.size() && found < positions.length; i++) {
+                Part oldPart = updated.get(i);
+                Part newPart = replacements.get(oldPart.getId());
+                if (newPart != null && partIndex.get(oldPart.getId()) == oldPart) {
+                    updated.set(i, newPart);
+                    positions[found] = i;
+                    oldParts[found++] = oldPart;
+                }
+            }
+            if (found > 0) {
+                allParts.setAll(updated);
+                IntHashSet orphanedIds = new IntHashSet();
+                for (int n = 0; n < found; n++) {
+                    Part newPart = updated.get(positions[n]);
+                    partStore.setPosition(newPart.getRow(), positions[n]);
+                    partStore.setLive(oldParts[n].getRow(), false);
+                    partStore.setLive(newPart.getRow(), true);
+                    indexPart(newPart);
+                    dropPartIndex(oldParts[n], orphanedIds);
+                    if (writeAheadLog != null) writeAheadLog.logUpdatePart(positions[n], newPart);
+                }
+                reindexParts(orphanedIds);
+                for (int n = 0; n < found; n++) {
+                    freePartRow(oldParts[n]);
+                }
+            }
+            return found == replacements.size();
+        });
+    }
+
+    /**
+      Replaces products by ID with one list change. Works the same way as updateParts.
+      @param replacements the replacement products keyed by the ID of the product they replace.
+      @return true if every ID matched a product, false if some were not found. Matching IDs are replaced either way.
+     */
+    public static boolean updateProducts(Map<Integer, ? extends Product> replacements) {
+        return writeAndWait(() -> {
+            List<Product> updated = new ArrayList<>(allProducts);
+            int[] positions = new int[replacements.size()];
+            Product[] oldProducts = new Product[replacements.size()];
+            int found = 0;
+            for (int i = 0; i < updated.size() && found < positions.length; i++) {
+                Product oldProduct = updated.get(i);
+                Product newProduct = replacements.get(oldProduct.getId());
+                if (newProduct != null && productIndex.get(oldProduct.getId()) == oldProduct) {
+                    updated.set(i, newProduct);
+                    positions[found] = i;
+                    oldProducts[found++] = oldProduct;
+                }
+            }
+            if (found > 0) {
+                allProducts.setAll(updated);
+                IntHashSet orphanedIds = new IntHashSet();
+                for (int n = 0; n < found; n++) {
+                    Product newProduct = updated.get(positions[n]);
+                    newProduct.setListPosition(positions[n]);
+                    indexProduct(newProduct);
+                    dropProductIndex(oldProducts[n], orphanedIds);
+                    if (writeAheadLog != null) writeAheadLog.logUpdateProduct(positions[n], newProduct);
+                }
+                reindexProducts(orphanedIds);
+            }
+            return found == replacements.size();
+        });
+    }
+
+    /**
+      Deletes several parts with one list change. Parts that are not in the Inventory are ignored.
+      @param selectedParts the parts that will be removed.
+      @return boolean indicator of part removal status.
+     */
+    public static boolean deleteParts(Collection<? extends Part> selectedParts) {
+        return writeAndWait(() -> {
+            try {
+                Set<Part> removing = Collections.newSetFromMap(new IdentityHashMap<>());
+                removing.addAll(selectedParts);
+                int[] positions = new int[removing.size()];
+                int found = 0;
+                for (int i = 0; i < allParts.size() && found < positions.length; i++) {
+                    if (removing.contains(allParts.get(i))) {
+                        positions[found++] = i;
+                    }
+                }
+                if (found == 0) {
+                    return true;
+                }
+                allParts.removeAll(removing);
+                IntHashSet orphanedIds = new IntHashSet();
+                for (Part part : removing) {
+                    partStore.setLive(part.getRow(), false);
+                    dropPartIndex(part, orphanedIds);
+                }
+                reindexParts(orphanedIds);
+                for (Part part : removing) {
+                    freePartRow(part);
+                }
+                if (writeAheadLog != null) {
+                    for (int n = found - 1; n >= 0; n--) {
+                        writeAheadLog.logDeletePart(positions[n]);
+                    }
+                }
+            } catch (Exception e) {
+                return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+      Deletes several products with one list change. Works the same way as deleteParts.
+      @param selectedProducts the products that will be removed.
+      @return boolean indicator of product removal status.
+     */
+    public static boolean deleteProducts(Collection<? extends Product> selectedProducts) {
+        return writeAndWait(() -> {
+            try {
+                Set<Product> removing = Collections.newSetFromMap(new IdentityHashMap<>());
+                removing.addAll(selectedProducts);
+                int[] positions = new int[removing.size()];
+                int found = 0;
+                for (int i = 0; i < allProducts.size() && found < positions.length; i++) {
+                    if (removing.contains(allProducts.get(i))) {
+                        positions[found++] = i;
+                    }
+                }
+                if (found == 0) {
+                    return true;
+                }
+                allProducts.removeAll(removing);
+                IntHashSet orphanedIds = new IntHashSet();
+                for (Product product : removing) {
+                    dropProductIndex(product, orphanedIds);
+                }
+                reindexProducts(orphanedIds);
+                if (writeAheadLog != null) {
+                    for (int n = found - 1; n >= 0; n--) {
+                        writeAheadLog.logDeleteProduct(positions[n]);
+                    }
+                }
+            } catch (Exception e) {
+                return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+      Replaces the whole Inventory with parts and products loaded from a snapshot. Each list is set with one change, and nothing is
+      written to the change log because the snapshot already holds the data.
+      @param parts the parts, in list order.
+      @param products the products, in list order.
+     */
+    static void restore(List<Part> parts, List<Product> products) {
+        write(() -> {
+            for (Part part : allParts) {
+                partStore.setLive(part.getRow(), false);
+            }
+            partIndex.clear();
+            productIndex.clear();
+            partNameIndex.clear();
+            productNameIndex.clear();
+            whereUsed.clear();
+            partIds.clear();
+            productIds.clear();
+            partLevels.clear();
+            productLevels.clear();
+            partsByPrice.clear();
+            partsByStock.clear();
+            partsByHeadroom.clear();
+            productsByPrice.clear();
+            productsByStock.clear();
+            productsByHeadroom.clear();
+            nameIndexesStale = true;
+            feedSuppressed = true;
+            allParts.setAll(parts);
+            allProducts.setAll(products);
+            for (int i = 0; i < parts.size(); i++) {
+                Part part = parts.get(i);
+                partStore.setPosition(part.getRow(), i);
+                partStore.setLive(part.getRow(), true);
+                indexPart(part);
+                partsIdGenerator.accumulateAndGet(part.getId() + 1, Math::max);
+            }
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                product.setListPosition(i);
+                indexProduct(product);
+                productsIdGenerator.accumulateAndGet(product.getId() + 1, Math::max);
+            }
+            feedSuppressed = false;
+            publishChange(ChangeFeed.PART, ChangeFeed.RESET, 0);
+            publishChange(ChangeFeed.PRODUCT, ChangeFeed.RESET, 0);
+        });
+    }
+
+    /**
+      Runs a change under the write lock. Off the FX thread the change is queued for the FX thread and the call returns straight away.
+      @param change the change to run.
+     */
+    private static void write(Runnable change) {
+        dispatcher.submit(() -> {
+            long stamp = lock.writeLock();
+            try {
+                change.run();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            publishCrossings();
+        });
+    }
+
+    /**
+      Runs a change under the write lock and waits for its result. Off the FX thread the change is queued for the FX thread.
+      @param change the change to run.
+      @return the result of the change.
+     */
+    private static boolean writeAndWait(BooleanSupplier change) {
+        return dispatcher.submitAndWait(() -> {
+            long stamp = lock.writeLock();
+            try {
+                return change.getAsBoolean();
+            } finally {
+                lock.unlockWrite(stamp);
+                publishCrossings();
+            }
+        });
+    }
+
+    /**
+      Builds the name indexes if a snapshot load skipped them. Only the part or product currently indexed for each ID is added.
+     */
+    private static void buildStaleNameIndexes() {
+        if (!nameIndexesStale) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (nameIndexesStale) {
+                buildNameIndexes();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+      Adds every indexed part and product to the name indexes. Called with the write lock held.
+     */
+    private static void buildNameIndexes() {
+        for (Part part : allParts) {
+            if (partIndex.get(part.getId()) == part) {
+                partNameIndex.add(part.getId(), part.getPartName());
+            }
+        }
+        for (Product product : allProducts) {
+            if (productIndex.get(product.getId()) == product) {
+                productNameIndex.add(product.getId(), product.getProductName());
+            }
+        }
+        nameIndexesStale = false;
+    }
+
+    /**
+      Finds the parts list position of a part. The position stored with the part is checked first; it is only out of date after an
+      earlier part was removed, and then the list is searched and the stored position corrected.
+      @param part the part to find.
+      @return the position, or -1 if the part is not in the parts list.
+     */
+    private static int partPosition(Part part) {
+        int position = partStore.getPosition(part.getRow());
+        if (position < allParts.size() && allParts.get(position) == part) {
+            return position;
+        }
+        position = allParts.indexOf(part);
+        if (position >= 0) partStore.setPosition(part.getRow(), position);
+        return position;
+    }
+
+    /**
+      Finds the products list position of a product. Works the same way as partPosition.
+      @param product the product to find.
+      @return the position, or -1 if the product is not in the products list.
+     */
+    private static int productPosition(Product product) {
+        int position = product.getListPosition();
+        if (position < allProducts.size() && allProducts.get(position) == product) {
+            return position;
+        }
+        position = allProducts.indexOf(product);
+        if (position >= 0) product.setListPosition(position);
+        return position;
+    }
+
+    /**
+      Adds a part to the ID and name indexes. If a part with the same ID was indexed, such as the original part during a modify, its name is dropped from the name index.
+      @param part the part that was added to the parts list.
+     */
+    private static void indexPart(Part part) {
+        Part replacedPart = partIndex.put(part.getId(), part);
+        partIds.add(part.getId());
+        if (replacedPart == null) {
+            publishChange(ChangeFeed.PART, ChangeFeed.CREATED, part.getId());
+        } else if (replacedPart != part) {
+            partStore.setVersion(part.getRow(), replacedPart.getVersion() + 1);
+            if (!nameIndexesStale) partNameIndex.remove(replacedPart.getId(), replacedPart.getPartName());
+            publishChange(ChangeFeed.PART, ChangeFeed.UPDATED, part.getId());
+            replaceAssociatedPart(replacedPart, part);
+        }
+        if (!nameIndexesStale) partNameIndex.add(part.getId(), part.getPartName());
+        partsByPrice.update(part.getId(), part.getPriceCents());
+        updatePartLevel(part);
+    }
+
+    /**
+      Adds a product to the ID and name indexes. Works the same way as indexPart.
+      @param product the product that was added to the products list.
+     */
+    private static void indexProduct(Product product) {
+        Product replacedProduct = productIndex.put(product.getId(), product);
+        productIds.add(product.getId());
+        if (replacedProduct == null) {
+            publishChange(ChangeFeed.PRODUCT, ChangeFeed.CREATED, product.getId());
+        } else if (replacedProduct != product) {
+            product.setVersion(replacedProduct.getVersion() + 1);
+            if (!nameIndexesStale) productNameIndex.remove(replacedProduct.getId(), replacedProduct.getProductName());
+            removeWhereUsed(replacedProduct);
+            publishChange(ChangeFeed.PRODUCT, ChangeFeed.UPDATED, product.getId());
+        }
+        if (!nameIndexesStale) productNameIndex.add(product.getId(), product.getProductName());
+        resolveAssociatedParts(product);
+        addWhereUsed(product);
+        productsByPrice.update(product.getId(), product.getPriceCents());
+        updateProductLevel(product);
+    }
+
+    /**
+      Removes a part from the ID and name indexes after it leaves the parts list. If the modify menu already added a replacement with the
+      same ID, the indexes point at the replacement and are left alone. If another part with the same ID is still listed, it takes the index entry.
+      @param removedPart the part that was removed from the parts list.
+     */
+    private static void unindexPart(Part removedPart) {
+        if (removedPart != null && partIndex.remove(removedPart.getId(), removedPart)) {
+            partIds.remove(removedPart.getId());
+            if (!nameIndexesStale) partNameIndex.remove(removedPart.getId(), removedPart.getPartName());
+            removePartLevel(removedPart.getId());
+            publishChange(ChangeFeed.PART, ChangeFeed.DELETED, removedPart.getId());
+            for (Part part : allParts) {
+                if (part.getId() == removedPart.getId()) {
+                    indexPart(part);
+                }
+            }
+        }
+    }
+
+    /**
+      Removes a product from the ID and name indexes after it leaves the products list. Works the same way as unindexPart.
+      @param removedProduct the product that was removed from the products list.
+     */
+    private static void unindexProduct(Product removedProduct) {
+        if (removedProduct != null && productIndex.remove(removedProduct.getId(), removedProduct)) {
+            productIds.remove(removedProduct.getId());
+            if (!nameIndexesStale) productNameIndex.remove(removedProduct.getId(), removedProduct.getProductName());
+            removeWhereUsed(removedProduct);
+            removeProductLevel(removedProduct.getId());
+            publishChange(ChangeFeed.PRODUCT, ChangeFeed.DELETED, removedProduct.getId());
+            for (Product product : allProducts) {
+                if (product.getId() == removedProduct.getId()) {
+                    indexProduct(product);
+                }
+            }
+        }
+    }
+
+    /**
+      Removes a part from the ID and name indexes without looking for a listed duplicate. Used by the batch operations, which look for
+      duplicates of every removed ID in one pass with reindexParts.
+      @param removedPart the part that was removed or replaced.
+      @param orphanedIds collects the IDs whose index entry was dropped.
+     */
+    private static void dropPartIndex(Part removedPart, IntHashSet orphanedIds) {
+        if (partIndex.remove(removedPart.getId(), removedPart)) {
+            partIds.remove(removedPart.getId());
+            if (!nameIndexesStale) partNameIndex.remove(removedPart.getId(), removedPart.getPartName());
+            removePartLevel(removedPart.getId());
+            publishChange(ChangeFeed.PART, ChangeFeed.DELETED, removedPart.getId());
+            orphanedIds.add(removedPart.getId());
+        }
+    }
+
+    /**
+      Removes a product from the ID and name indexes without looking for a listed duplicate. Works the same way as dropPartIndex.
+      @param removedProduct the product that was removed or replaced.
+      @param orphanedIds collects the IDs whose index entry was dropped.
+     */
+    private static void dropProductIndex(Product removedProduct, IntHashSet orphanedIds) {
+        if (productIndex.remove(removedProduct.getId(), removedProduct)) {
+            productIds.remove(removedProduct.getId());
+            if (!nameIndexesStale) productNameIndex.remove(removedProduct.getId(), removedProduct.getProductName());
+            removeWhereUsed(removedProduct);
+            removeProductLevel(removedProduct.getId());
+            publishChange(ChangeFeed.PRODUCT, ChangeFeed.DELETED, removedProduct.getId());
+            orphanedIds.add(removedProduct.getId());
+        }
+    }
+
+    /**
+      Indexes the listed parts whose ID lost its index entry, in one pass over the parts list.
+      @param orphanedIds IDs collected by dropPartIndex.
+     */
+    private static void reindexParts(IntHashSet orphanedIds) {
+        if (orphanedIds.isEmpty()) {
+            return;
+        }
+        for (Part part : allParts) {
+            if (orphanedIds.contains(part.getId()) && partIndex.get(part.getId()) != part) {
+                indexPart(part);
+            }
+        }
+    }
+
+    /**
+      Indexes the listed products whose ID lost its index entry, in one pass over the products list.
+      @param orphanedIds IDs collected by dropProductIndex.
+     */
+    private static void reindexProducts(IntHashSet orphanedIds) {
+        if (orphanedIds.isEmpty()) {
+            return;
+        }
+        for (Product product : allProducts) {
+            if (orphanedIds.contains(product.getId()) && productIndex.get(product.getId()) != product) {
+                indexProduct(product);
+            }
+        }
+    }
+
+    /**
+      Adds every associated part of a product to the where-used index.
+      @param product the indexed product.
+     */
+    private static void addWhereUsed(Product product) {
+        for (Part part : product.getAllAssociatedParts()) {
+            addWhereUsed(part.getId(), product.getId());
+        }
+    }
+
+    /**
+      Points the products that use a replaced part at its replacement and recalculates their parts cost. The products are found through the
+      where-used index. Called under the write lock.
+      @param replacedPart the part that was replaced.
+      @param part the replacement part.
+     */
+    private static void replaceAssociatedPart(Part replacedPart, Part part) {
+        IntHashSet productIds = whereUsed.get(part.getId());
+        if (productIds == null) {
+            return;
+        }
+        for (int productId : productIds.toArray()) {
+            Product product = productIndex.get(productId);
+            ObservableList<Part> associatedParts = product.getAllAssociatedParts();
+            for (int i = 0; i < associatedParts.size(); i++) {
+                if (associatedParts.get(i) == replacedPart) {
+                    associatedParts.set(i, part);
+                }
+            }
+            product.updatePartsCost();
+            publishChange(ChangeFeed.PRODUCT, ChangeFeed.UPDATED, productId);
+        }
+    }
+
+    /**
+      Points the associated parts of a product being indexed at the parts currently in the Inventory, so a product saved from an editor
+      that loaded an older copy of a part does not keep it. Parts that are no longer in the Inventory are kept, and a kept part whose row was
+      freed is swapped for a copy with a row of its own. Called under the write lock.
+      @param product the product being indexed.
+     */
+    private static void resolveAssociatedParts(Product product) {
+        ObservableList<Part> associatedParts = product.getAllAssociatedParts();
+        boolean changed = false;
+        for (int i = 0; i < associatedParts.size(); i++) {
+            Part part = associatedParts.get(i);
+            Part current = partIndex.get(part.getId());
+            if (current == null && part.isFreed()) {
+                current = part.copy();
+            }
+            if (current != null && current != part) {
+                associatedParts.set(i, current);
+                changed = true;
+            }
+        }
+        if (changed) {
+            product.updatePartsCost();
+        }
+    }
+
+    /**
+      Frees the store row of a part the Inventory dropped, instead of waiting for the part to be garbage collected. The part keeps a copy of
+      its values, so an editor or list still holding it is not affected. The row is kept while the part is listed again or a product in the
+      Inventory lists it, since those are read through their rows by the scans. Called under the write lock.
+      @param part the dropped part.
+     */
+    private static void freePartRow(Part part) {
+        if (partStore.isLive(part.getRow()) || partIndex.get(part.getId()) == part) {
+            return;
+        }
+        IntHashSet productIds = whereUsed.get(part.getId());
+        if (productIds != null) {
+            for (int productId : productIds.toArray()) {
+                Product product = productIndex.get(productId);
+                synchronized (product) {
+                    if (product.getAllAssociatedParts().contains(part)) {
+                        return;
+                    }
+                }
+            }
+        }
+        part.free();
+    }
+
+    /**
+      Removes every associated part of a product from the where-used index.
+      @param product the product that is no longer indexed.
+     */
+    private static void removeWhereUsed(Product product) {
+        for (Part part : product.getAllAssociatedParts()) {
+            removeWhereUsed(part.getId(), product.getId());
+        }
+    }
+
+    /**
+      Adds one part and product pair to the where-used index.
+      @param partId ID of the associated part.
+      @param productId ID of the product using it.
+     */
+    private static void addWhereUsed(int partId, int productId) {
+        IntHashSet productIds = whereUsed.get(partId);
+        if (productIds == null) {
+            productIds = new IntHashSet();
+            whereUsed.put(partId, productIds);
+        }
+        productIds.add(productId);
+    }
+
+    /**
+      Removes one part and product pair from the where-used index. The part's entry is dropped when no product uses it.
+      @param partId ID of the associated part.
+      @param productId ID of the product that stopped using it.
+     */
+    private static void removeWhereUsed(int partId, int productId) {
+        IntHashSet productIds = whereUsed.get(partId);
+        if (productIds != null) {
+            productIds.remove(productId);
+            if (productIds.isEmpty()) {
+                whereUsed.remove(partId);
+            }
+        }
+    }
+
+    /**
+      Moves a part to the stock level bucket for its current headroom, and to its place in the stock and headroom indexes. The stock is read inside the index lock, so when adjustments race
+      the last update always records the final level.
+      @param part the indexed part.
+     */
+    private static void updatePartLevel(Part part) {
+        synchronized (partLevels) {
+            int stock = partStore.getStockVolatile(part.getRow());
+            long headroom = (long) stock - partStore.getMin(part.getRow());
+            partLevels.update(part.getId(), headroom);
+            partsByStock.update(part.getId(), stock);
+            partsByHeadroom.update(part.getId(), headroom);
+        }
+    }
+
+    /**
+      Removes a part from the stock level index and the sorted indexes.
+      @param partId the ID of the part.
+     */
+    private static void removePartLevel(int partId) {
+        synchronized (partLevels) {
+            partLevels.remove(partId);
+            partsByPrice.remove(partId);
+            partsByStock.remove(partId);
+            partsByHeadroom.remove(partId);
+        }
+    }
+
+    /**
+      Moves a product to the stock level bucket for its current headroom. Works the same way as updatePartLevel.
+      @param product the indexed product.
+     */
+    private static void updateProductLevel(Product product) {
+        synchronized (productLevels) {
+            int stock = product.getStockVolatile();
+            long headroom = (long) stock - product.getMin();
+            productLevels.update(product.getId(), headroom);
+            productsByStock.update(product.getId(), stock);
+            productsByHeadroom.update(product.getId(), headroom);
+        }
+    }
+
+    /**
+      Removes a product from the stock level index and the sorted indexes.
+      @param productId the ID of the product.
+     */
+    private static void removeProductLevel(int productId) {
+        synchronized (productLevels) {
+            productLevels.remove(productId);
+            productsByPrice.remove(productId);
+            productsByStock.remove(productId);
+            productsByHeadroom.remove(productId);
+        }
+    }
+
+    /**
+      Delivers queued reorder point crossings to the listeners. Called after the Inventory lock is released.
+     */
+    private static void publishCrossings() {
+        partLevels.publishCrossings();
+        productLevels.publishCrossings();
+    }
+
+    /**
+      Publishes a change to the change feed unless a snapshot is being restored. Every event goes through here, so nothing is published
+      while a restore has the feed suppressed. Called with the read or write lock held; the flag only changes under the write lock.
+      @param entity ChangeFeed.PART or ChangeFeed.PRODUCT.
+      @param type the event type.
+      @param id ID of the part or product.
+     */
+    private static void publishChange(byte entity, byte type, int id) {
+        if (!feedSuppressed) {
+            changeFeed.publish(entity, type, id);
+        }
+    }
+
+    /**
+      Reads parts or products by position in ID order for a PagedObservableList, from the ID set and the ID index under the read lock.
+      @param <T> Part or Product.
+     */
+    private static final class IdOrderSource<T> implements PagedObservableList.Source<T> {
+
+        private final byte entity;
+        private final SortedIdSet ids;
+        private final IdIndex<T> index;
+        private ChangeFeed.Reader reader;
+
+        IdOrderSource(byte entity, SortedIdSet ids, IdIndex<T> index) {
+            this.entity = entity;
+            this.ids = ids;
+            this.index = index;
+        }
+
+        @Override
+        public int size() {
+            long stamp = lock.readLock();
+            try {
+                return ids.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public int load(int position, Object[] items) {
+            int[] buffer = new int[items.length];
+            long stamp = lock.readLock();
+            try {
+                int count = ids.idsAt(position, buffer);
+                for (int i = 0; i < count; i++) {
+                    items[i] = index.get(buffer[i]);
+                }
+                return count;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+          Reads the feed and the IDs under the read lock. Adds, deletes and replaces publish under the write lock, so every one of them
+          that the IDs show has been read from the feed.
+         */
+        @Override
+        public void readChanges(PagedObservableList.Changes changes) {
+            long stamp = lock.readLock();
+            try {
+                changes.clear();
+                if (reader == null) {
+                    reader = changeFeed.newReader();
+                    changes.reset = true;
+                } else {
+                    long lost = reader.getLostCount();
+                    reader.poll((sequence, changedEntity, type, id) -> {
+                        if (changedEntity == entity) {
+                            changes.record(id, type);
+                        }
+                    }, Integer.MAX_VALUE);
+                    changes.reset |= reader.getLostCount() != lost;
+                }
+                changes.size = ids.size();
+                if (!changes.reset) {
+                    changes.sortById();
+                    for (int i = 0; i < changes.count; i++) {
+                        changes.present[i] = ids.contains(changes.ids[i]);
+                        changes.positions[i] = ids.rank(changes.ids[i]);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
         }
-        return true;
     }
 
 }
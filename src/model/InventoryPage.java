@@ -0,0 +1,72 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+/**
+  One page of the parts or products matching an InventoryQuery, in ascending ID order. The cursor is the ID of the last item on the page;
+  the next page starts after it, so pages stay in order while items are added or deleted in between, and no match is returned twice.
+  Reading a page checks only as many items as it takes to fill it, so its cost depends on the page size rather than the number of matches.
+  @param <T> Part or Product.
+  @author Nicholas Johnson
+ */
+public final class InventoryPage<T> {
+
+    private final List<T> items;
+    private final boolean hasMore;
+    private final int cursor;
+    private final IntFunction<InventoryPage<T>> nextPage;
+
+    /**
+      Constructor for a page.
+      @param items the items on the page, in ID order.
+      @param hasMore true if more items match after the last one.
+      @param cursor the ID of the last item, or 0 for an empty page.
+      @param nextPage reads the page after an ID.
+     */
+    InventoryPage(List<T> items, boolean hasMore, int cursor, IntFunction<InventoryPage<T>> nextPage) {
+        this.items = Collections.unmodifiableList(items);
+        this.hasMore = hasMore;
+        this.cursor = cursor;
+        this.nextPage = nextPage;
+    }
+
+    /**
+      Gets the items on the page.
+      @return the items, in ascending ID order.
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+      Checks whether more items matched the query after this page.
+      @return true if there is a next page.
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+      Gets the continuation cursor, the ID of the last item on the page. Pass it to findPartsPage or findProductsPage of the same query
+      to read the next page later.
+      @return the cursor.
+     */
+    public int getCursor() {
+        return cursor;
+    }
+
+    /**
+      Reads the next page of the same query with the same page size.
+      @return the next page.
+      @throws NoSuchElementException if this is the last page.
+     */
+    public InventoryPage<T> next() {
+        if (!hasMore) {
+            throw new NoSuchElementException("No page after ID " + cursor);
+        }
+        return nextPage.apply(cursor);
+    }
+}
@@ -0,0 +1,462 @@
+package model;
+
+import javafx.collections.ObservableList;
+
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+  Query over the parts or products of the Inventory, built by chaining conditions; every condition must hold for an item to match.
+  The same query serves the search boxes, reports and code that runs without the UI.
+
+  A query is compiled into a predicate made only of the conditions that were set. Part conditions read the part store columns by row, so
+  parts are checked without going through the Part objects, and a supplier is compared by its name dictionary reference. When running,
+  the Inventory takes its candidates from an index if a condition allows it: the ID index for an ID, the name index for a name of three
+  or more characters, the stock level index for items at or below their minimum, and the price or stock index for a price or stock range.
+  Otherwise the list is scanned.
+  @author Nicholas Johnson
+ */
+public final class InventoryQuery {
+
+    private boolean hasId;
+    private int id;
+    private String nameContains;
+    private String namePrefix;
+    private String nameOrIdText;
+    private boolean nameOrIdHasId;
+    private int nameOrIdValue;
+    private long minPriceCents = Long.MIN_VALUE;
+    private long maxPriceCents = Long.MAX_VALUE;
+    private int minStock = Integer.MIN_VALUE;
+    private int maxStock = Integer.MAX_VALUE;
+    private boolean atOrBelowMin;
+    private byte partType;
+    private String supplier;
+    private boolean hasMachineId;
+    private int machineId;
+
+    /**
+      Candidate IDs from the last page read, kept so later pages of the same query do not look them up and sort them again.
+     */
+    private volatile PagedCandidates pagedCandidates;
+
+    private InventoryQuery() {
+    }
+
+    /**
+      Starts a query that matches everything.
+      @return the new query.
+     */
+    public static InventoryQuery create() {
+        return new InventoryQuery();
+    }
+
+    /**
+      Matches the item with an ID.
+      @param id the ID.
+      @return this query.
+     */
+    public InventoryQuery id(int id) {
+        this.hasId = true;
+        this.id = id;
+        this.pagedCandidates = null;
+        return this;
+    }
+
+    /**
+      Matches items whose name contains a text, ignoring case.
+      @param text the text to look for.
+      @return this query.
+     */
+    public InventoryQuery nameContains(String text) {
+        this.nameContains = text.toLowerCase();
+        this.pagedCandidates = null;
+        return this;
+    }
+
+    /**
+      Matches items whose name starts with a text, ignoring case.
+      @param prefix the start of the name.
+      @return this query.
+     */
+    public InventoryQuery namePrefix(String prefix) {
+        this.namePrefix = prefix.toLowerCase();
+        this.pagedCandidates = null;
+        return this;
+    }
+
+    /**
+      Matches what a search box asks for: items whose name contains the text, ignoring case, or whose ID is the text read as a number.
+      When the name index supplies the candidates, the ID match comes first in the results.
+      @param text the search text.
+      @return this query.
+     */
+    public InventoryQuery nameOrId(String text) {
+        this.nameOrIdText = text.toLowerCase();
+        try {
+            this.nameOrIdValue = Integer.parseInt(text.trim());
+            this.nameOrIdHasId = true;
+        } catch (NumberFormatException e) {
+            this.nameOrIdHasId = false;
+        }
+        this.pagedCandidates = null;
+        return this;
+    }
+
+    /**
+      Matches items priced within a range.
+      @param minCents lowest price, in cents.
+      @param maxCents highest price, in cents.
+      @return this query.
+     */
+    public InventoryQuery priceBetween(long minCents, long maxCents) {
+        this.minPriceCents = minCents;
+        this.maxPriceCents = maxCents;
+        return this;
+    }
+
+    /**
+      Matches items whose inventory level is within a range.
+      @param min lowest inventory level.
+      @param max highest inventory level.
+      @return this query.
+     */
+    public InventoryQuery stockBetween(int min, int max) {
+        this.minStock = min;
+        this.maxStock = max;
+        return this;
+    }
+
+    /**
+      Matches items whose inventory level is at or below their minimum stock.
+      @return this query.
+     */
+    public InventoryQuery atOrBelowMin() {
+        this.atOrBelowMin = true;
+        return this;
+    }
+
+    /**
+      Matches InHouse parts. Only applies to parts.
+      @return this query.
+     */
+    public InventoryQuery inHouse() {
+        this.partType = PartStore.TYPE_IN_HOUSE;
+        return this;
+    }
+
+    /**
+      Matches Outsourced parts. Only applies to parts.
+      @return this query.
+     */
+    public InventoryQuery outsourced() {
+        this.partType = PartStore.TYPE_OUTSOURCED;
+        return this;
+    }
+
+    /**
+      Matches Outsourced parts from a company, by exact company name. Only applies to parts.
+      @param companyName the company name.
+      @return this query.
+     */
+    public InventoryQuery supplier(String companyName) {
+        this.partType = PartStore.TYPE_OUTSOURCED;
+        this.supplier = companyName;
+        return this;
+    }
+
+    /**
+      Matches InHouse parts made on a machine. Only applies to parts.
+      @param machineId the machine ID.
+      @return this query.
+     */
+    public InventoryQuery machine(int machineId) {
+        this.partType = PartStore.TYPE_IN_HOUSE;
+        this.hasMachineId = true;
+        this.machineId = machineId;
+        return this;
+    }
+
+    /**
+      Runs the query over the parts.
+      @return the matching parts, in parts list order, or in the order of the index that supplied the candidates.
+     */
+    public ObservableList<Part> findParts() {
+        return Inventory.findParts(this);
+    }
+
+    /**
+      Runs the query over the products.
+      @return the matching products, in products list order, or in the order of the index that supplied the candidates.
+      @throws IllegalStateException if a part only condition was set.
+     */
+    public ObservableList<Product> findProducts() {
+        return Inventory.findProducts(this);
+    }
+
+    /**
+      Runs the query over the parts one page at a time.
+      @param pageSize the most parts on a page.
+      @return the first page of matching parts, in ascending ID order.
+      @throws IllegalArgumentException if the page size is not positive.
+     */
+    public InventoryPage<Part> findPartsPage(int pageSize) {
+        return Inventory.findPartsPage(this, pageSize, Long.MIN_VALUE);
+    }
+
+    /**
+      Continues paging the parts from a cursor, such as one kept from an earlier page.
+      @param pageSize the most parts on a page.
+      @param cursor the cursor of the previous page; the page starts after this ID.
+      @return the page of matching parts after the cursor, in ascending ID order.
+      @throws IllegalArgumentException if the page size is not positive.
+     */
+    public InventoryPage<Part> findPartsPage(int pageSize, int cursor) {
+        return Inventory.findPartsPage(this, pageSize, cursor + 1L);
+    }
+
+    /**
+      Runs the query over the products one page at a time.
+      @param pageSize the most products on a page.
+      @return the first page of matching products, in ascending ID order.
+      @throws IllegalArgumentException if the page size is not positive.
+      @throws IllegalStateException if a part only condition was set.
+     */
+    public InventoryPage<Product> findProductsPage(int pageSize) {
+        return Inventory.findProductsPage(this, pageSize, Long.MIN_VALUE);
+    }
+
+    /**
+      Continues paging the products from a cursor, such as one kept from an earlier page.
+      @param pageSize the most products on a page.
+      @param cursor the cursor of the previous page; the page starts after this ID.
+      @return the page of matching products after the cursor, in ascending ID order.
+      @throws IllegalArgumentException if the page size is not positive.
+      @throws IllegalStateException if a part only condition was set.
+     */
+    public InventoryPage<Product> findProductsPage(int pageSize, int cursor) {
+        return Inventory.findProductsPage(this, pageSize, cursor + 1L);
+    }
+
+    /**
+      Checks whether the query has a name condition, so the name index may be used.
+      @return true if a name condition is set.
+     */
+    boolean usesNameIndex() {
+        return indexedName() != null;
+    }
+
+    /**
+      Gets the lower case text the name index should look up: the search box text, the contained text or the prefix.
+      @return the text, or null if no name condition is set.
+     */
+    String indexedName() {
+        if (nameOrIdText != null) {
+            return nameOrIdText;
+        }
+        return nameContains != null ? nameContains : namePrefix;
+    }
+
+    boolean hasId() {
+        return hasId;
+    }
+
+    /**
+      Gets the sorted candidate IDs kept by an earlier page, if they came from the same index in the same state.
+      @param nameIndex the name index the candidates must come from.
+      @return the candidate IDs in ascending order, or null if none are kept or the index changed since.
+     */
+    int[] pagedCandidates(TrigramIndex nameIndex) {
+        PagedCandidates kept = pagedCandidates;
+        return kept != null && kept.nameIndex == nameIndex && kept.modCount == nameIndex.modCount() ? kept.ids : null;
+    }
+
+    /**
+      Keeps the sorted candidate IDs of a page for the pages after it.
+      @param nameIndex the name index the candidates came from.
+      @param ids the candidate IDs in ascending order.
+     */
+    void keepPagedCandidates(TrigramIndex nameIndex, int[] ids) {
+        pagedCandidates = new PagedCandidates(nameIndex, nameIndex.modCount(), ids);
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+      Gets the ID a search box text matched as a number.
+      @return the ID, or null if the query has no search text or it is not a number.
+     */
+    Integer nameOrIdValue() {
+        return nameOrIdText != null && nameOrIdHasId ? nameOrIdValue : null;
+    }
+
+    boolean isAtOrBelowMin() {
+        return atOrBelowMin;
+    }
+
+    boolean hasPriceRange() {
+        return minPriceCents != Long.MIN_VALUE || maxPriceCents != Long.MAX_VALUE;
+    }
+
+    long getMinPriceCents() {
+        return minPriceCents;
+    }
+
+    long getMaxPriceCents() {
+        return maxPriceCents;
+    }
+
+    boolean hasStockRange() {
+        return minStock != Integer.MIN_VALUE || maxStock != Integer.MAX_VALUE;
+    }
+
+    int getMinStock() {
+        return minStock;
+    }
+
+    int getMaxStock() {
+        return maxStock;
+    }
+
+    /**
+      Compiles the query into a predicate over part store rows. Only the conditions that were set are checked.
+      @param store the part store.
+      @return the predicate.
+     */
+    IntPredicate compilePartFilter(PartStore store) {
+        IntPredicate filter = null;
+        if (hasId) {
+            int wanted = id;
+            filter = andRow(filter, row -> store.getId(row) == wanted);
+        }
+        if (nameOrIdText != null) {
+            String text = nameOrIdText;
+            if (nameOrIdHasId) {
+                int wanted = nameOrIdValue;
+                filter = andRow(filter, row -> store.getId(row) == wanted || store.getPartName(row).toLowerCase().contains(text));
+            } else {
+                filter = andRow(filter, row -> store.getPartName(row).toLowerCase().contains(text));
+            }
+        }
+        if (nameContains != null) {
+            String text = nameContains;
+            filter = andRow(filter, row -> store.getPartName(row).toLowerCase().contains(text));
+        }
+        if (namePrefix != null) {
+            String prefix = namePrefix;
+            filter = andRow(filter, row -> store.getPartName(row).regionMatches(true, 0, prefix, 0, prefix.length()));
+        }
+        if (hasPriceRange()) {
+            long low = minPriceCents;
+            long high = maxPriceCents;
+            filter = andRow(filter, row -> {
+                long price = store.getPriceCents(row);
+                return price >= low && price <= high;
+            });
+        }
+        if (hasStockRange()) {
+            int low = minStock;
+            int high = maxStock;
+            filter = andRow(filter, row -> {
+                int stock = store.getStockVolatile(row);
+                return stock >= low && stock <= high;
+            });
+        }
+        if (atOrBelowMin) {
+            filter = andRow(filter, row -> store.getStockVolatile(row) <= store.getMin(row));
+        }
+        if (partType != 0) {
+            byte type = partType;
+            filter = andRow(filter, row -> store.getType(row) == type);
+        }
+        if (supplier != null) {
+            int companyRef = store.getNames().lookup(supplier);
+            if (companyRef == NameDictionary.NO_NAME) {
+                return row -> false;
+            }
+            filter = andRow(filter, row -> store.getCompanyNameRef(row) == companyRef);
+        }
+        if (hasMachineId) {
+            int wanted = machineId;
+            filter = andRow(filter, row -> store.getMachineId(row) == wanted);
+        }
+        return filter == null ? row -> true : filter;
+    }
+
+    /**
+      Compiles the query into a predicate over products. Only the conditions that were set are checked.
+      @return the predicate.
+      @throws IllegalStateException if a part only condition was set.
+     */
+    Predicate<Product> compileProductFilter() {
+        if (partType != 0) {
+            throw new IllegalStateException("Part type, supplier and machine conditions only apply to parts");
+        }
+        Predicate<Product> filter = null;
+        if (hasId) {
+            int wanted = id;
+            filter = andProduct(filter, product -> product.getId() == wanted);
+        }
+        if (nameOrIdText != null) {
+            String text = nameOrIdText;
+            if (nameOrIdHasId) {
+                int wanted = nameOrIdValue;
+                filter = andProduct(filter, product -> product.getId() == wanted
+                        || product.getProductName().toLowerCase().contains(text));
+            } else {
+                filter = andProduct(filter, product -> product.getProductName().toLowerCase().contains(text));
+            }
+        }
+        if (nameContains != null) {
+            String text = nameContains;
+            filter = andProduct(filter, product -> product.getProductName().toLowerCase().contains(text));
+        }
+        if (namePrefix != null) {
+            String prefix = namePrefix;
+            filter = andProduct(filter, product -> product.getProductName().regionMatches(true, 0, prefix, 0, prefix.length()));
+        }
+        if (hasPriceRange()) {
+            long low = minPriceCents;
+            long high = maxPriceCents;
+            filter = andProduct(filter, product -> product.getPriceCents() >= low && product.getPriceCents() <= high);
+        }
+        if (hasStockRange()) {
+            int low = minStock;
+            int high = maxStock;
+            filter = andProduct(filter, product -> {
+                int stock = product.getStockVolatile();
+                return stock >= low && stock <= high;
+            });
+        }
+        if (atOrBelowMin) {
+            filter = andProduct(filter, product -> product.getStockVolatile() <= product.getMin());
+        }
+        return filter == null ? product -> true : filter;
+    }
+
+    private static IntPredicate andRow(IntPredicate filter, IntPredicate condition) {
+        return filter == null ? condition : filter.and(condition);
+    }
+
+    private static Predicate<Product> andProduct(Predicate<Product> filter, Predicate<Product> condition) {
+        return filter == null ? condition : filter.and(condition);
+    }
+
+    /**
+      Sorted candidate IDs and the state of the name index they were read from.
+     */
+    private static final class PagedCandidates {
+
+        final TrigramIndex nameIndex;
+        final int modCount;
+        final int[] ids;
+
+        PagedCandidates(TrigramIndex nameIndex, int modCount, int[] ids) {
+            this.nameIndex = nameIndex;
+            this.modCount = modCount;
+            this.ids = ids;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+  Catalog reports computed in parallel: the stock value of the Outsourced parts of each supplier, the number of InHouse parts made on each
+  machine, and the products at risk of running out. The result is an immutable snapshot; it does not change when the Inventory does.
+
+  The rows the reports need are copied into arrays under the Inventory read lock, which is a plain sequential copy, and the reports are
+  computed from the copy after the lock is released, so changes only wait for the copy. The copied part rows are scanned with a parallel
+  stream, so the fork/join common pool splits them across the available cores and each worker fills its own totals, which are merged
+  pairwise. Products are checked against the copied parts by ID, so a part that was replaced is read as the part that replaced it.
+  @author Nicholas Johnson
+ */
+public final class InventoryReport {
+
+    private final Map<String, Long> valueBySupplierCents;
+    private final Map<Integer, Integer> partsByMachine;
+    private final List<Integer> productsAtRisk;
+    private final long elapsedNanos;
+
+    private InventoryReport(Map<String, Long> valueBySupplierCents, Map<Integer, Integer> partsByMachine, List<Integer> productsAtRisk,
+                            long elapsedNanos) {
+        this.valueBySupplierCents = Collections.unmodifiableMap(valueBySupplierCents);
+        this.partsByMachine = Collections.unmodifiableMap(partsByMachine);
+        this.productsAtRisk = Collections.unmodifiableList(productsAtRisk);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+      Copies the rows the reports need. The caller holds the Inventory read lock. The company names of the copied parts are retained in
+      the name dictionary until the reports are computed, so they are not reused in the meantime.
+      @param store the part store; only live rows are copied.
+      @param products the products.
+      @param parts the current parts by ID.
+      @return the copied rows.
+     */
+    static Rows copyRows(PartStore store, List<Product> products, IdIndex<Part> parts) {
+        long start = System.nanoTime();
+        Rows rows = new Rows(store, products.size());
+        store.forEachLiveRow(rows::addPart);
+        rows.companyRefs.forEach(store.getNames()::retain);
+        for (Product product : products) {
+            rows.addProduct(product, parts);
+        }
+        rows.copyNanos = System.nanoTime() - start;
+        return rows;
+    }
+
+    /**
+      Computes the reports from copied rows. Runs without the Inventory lock.
+      @param rows the rows copied by copyRows.
+      @return the reports.
+     */
+    static InventoryReport compute(Rows rows) {
+        long start = System.nanoTime();
+        PartTotals totals = IntStream.range(0, rows.partCount).parallel()
+                .collect(PartTotals::new, (partTotals, part) -> partTotals.add(rows, part), PartTotals::merge);
+        Map<String, Long> valueBySupplier = new HashMap<>();
+        NameDictionary names = rows.names;
+        for (Map.Entry<Integer, long[]> supplier : totals.valueByCompanyRef.entrySet()) {
+            valueBySupplier.merge(String.valueOf(names.get(supplier.getKey())), supplier.getValue()[0], Long::sum);
+        }
+        rows.companyRefs.forEach(names::release);
+        Map<Integer, Integer> partsByMachine = new HashMap<>();
+        for (Map.Entry<Integer, int[]> machine : totals.countByMachine.entrySet()) {
+            partsByMachine.put(machine.getKey(), machine.getValue()[0]);
+        }
+        IntHashSet lowPartIds = rows.lowDeletedPartIds;
+        for (int part = 0; part < rows.partCount; part++) {
+            if (rows.partStocks[part] <= rows.partMins[part]) {
+                lowPartIds.add(rows.partIds[part]);
+            }
+        }
+        List<Integer> productsAtRisk = IntStream.range(0, rows.productCount).parallel()
+                .filter(product -> isAtRisk(rows, product, lowPartIds))
+                .mapToObj(product -> rows.productIds[product])
+                .collect(Collectors.toList());
+        return new InventoryReport(valueBySupplier, partsByMachine, productsAtRisk, rows.copyNanos + System.nanoTime() - start);
+    }
+
+    /**
+      Checks whether a product may run out: its own inventory level is at or below its minimum, or one of its associated parts is.
+      @param rows the copied rows.
+      @param product index of the product in the copy.
+      @param lowPartIds IDs of the parts at or below their minimum.
+      @return true if the product is at risk.
+     */
+    private static boolean isAtRisk(Rows rows, int product, IntHashSet lowPartIds) {
+        if (rows.productStocks[product] <= rows.productMins[product]) {
+            return true;
+        }
+        for (int i = rows.associatedStarts[product]; i < rows.associatedStarts[product + 1]; i++) {
+            if (lowPartIds.contains(rows.associatedIds[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+      Gets the stock value of the Outsourced parts of each supplier.
+      @return value in cents by company name.
+     */
+    public Map<String, Long> getValueBySupplierCents() {
+        return valueBySupplierCents;
+    }
+
+    /**
+      Gets the number of InHouse parts made on each machine.
+      @return part count by machine ID.
+     */
+    public Map<Integer, Integer> getPartsByMachine() {
+        return partsByMachine;
+    }
+
+    /**
+      Gets the products that are at or below their minimum stock or use a part that is, in products list order.
+      @return the product IDs.
+     */
+    public List<Integer> getProductsAtRisk() {
+        return productsAtRisk;
+    }
+
+    /**
+      Gets the time the reports took to compute.
+      @return elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+      Part and product rows copied under the Inventory read lock. Associated part IDs of all products are kept in one array, with the
+      start of each product's IDs in associatedStarts.
+     */
+    static final class Rows {
+
+        private final PartStore store;
+        private final NameDictionary names;
+        private int partCount;
+        private int[] partIds;
+        private int[] partStocks;
+        private int[] partMins;
+        private long[] partPriceCents;
+        private byte[] partTypes;
+        private int[] partMachineIds;
+        private int[] partCompanyRefs;
+        private final IntHashSet companyRefs = new IntHashSet();
+
+        private int productCount;
+        private final int[] productIds;
+        private final int[] productStocks;
+        private final int[] productMins;
+        private final int[] associatedStarts;
+        private int[] associatedIds = new int[16];
+        private final IntHashSet lowDeletedPartIds = new IntHashSet();
+        private long copyNanos;
+
+        private Rows(PartStore store, int productCount) {
+            this.store = store;
+            this.names = store.getNames();
+            int capacity = Math.max(16, store.rowCount());
+            partIds = new int[capacity];
+            partStocks = new int[capacity];
+            partMins = new int[capacity];
+            partPriceCents = new long[capacity];
+            partTypes = new byte[capacity];
+            partMachineIds = new int[capacity];
+            partCompanyRefs = new int[capacity];
+            productIds = new int[productCount];
+            productStocks = new int[productCount];
+            productMins = new int[productCount];
+            associatedStarts = new int[productCount + 1];
+        }
+
+        private void addPart(int row) {
+            int part = partCount++;
+            partIds[part] = store.getId(row);
+            partStocks[part] = store.getStock(row);
+            partMins[part] = store.getMin(row);
+            partPriceCents[part] = store.getPriceCents(row);
+            partTypes[part] = store.getType(row);
+            partMachineIds[part] = store.getMachineId(row);
+            partCompanyRefs[part] = store.getCompanyNameRef(row);
+            if (partTypes[part] == PartStore.TYPE_OUTSOURCED) {
+                companyRefs.add(partCompanyRefs[part]);
+            }
+        }
+
+        /**
+          Copies a product and the IDs of its associated parts. Associated parts deleted from the Inventory are not in the part copy, so
+          the ones at or below their minimum are noted here.
+          @param product the product.
+          @param parts the current parts by ID.
+         */
+        private void addProduct(Product product, IdIndex<Part> parts) {
+            int index = productCount++;
+            productIds[index] = product.getId();
+            productStocks[index] = product.getStockVolatile();
+            productMins[index] = product.getMin();
+            int count = associatedStarts[index];
+            synchronized (product) {
+                for (Part part : product.getAllAssociatedParts()) {
+                    if (count == associatedIds.length) {
+                        associatedIds = Arrays.copyOf(associatedIds, count * 2);
+                    }
+                    associatedIds[count++] = part.getId();
+                    if (parts.get(part.getId()) == null && part.getStock() <= part.getMin()) {
+                        lowDeletedPartIds.add(part.getId());
+                    }
+                }
+            }
+            associatedStarts[index + 1] = count;
+        }
+    }
+
+    /**
+      Totals filled by one fork/join worker. Keyed by name dictionary reference and machine ID, so the scan does not decode names.
+     */
+    private static final class PartTotals {
+
+        private final HashMap<Integer, long[]> valueByCompanyRef = new HashMap<>();
+        private final HashMap<Integer, int[]> countByMachine = new HashMap<>();
+
+        void add(Rows rows, int part) {
+            if (rows.partTypes[part] == PartStore.TYPE_OUTSOURCED) {
+                long value = rows.partStocks[part] * rows.partPriceCents[part];
+                valueByCompanyRef.computeIfAbsent(rows.partCompanyRefs[part], ref -> new long[1])[0] += value;
+            } else {
+                countByMachine.computeIfAbsent(rows.partMachineIds[part], machineId -> new int[1])[0]++;
+            }
+        }
+
+        void merge(PartTotals other) {
+            other.valueByCompanyRef.forEach((ref, value) -> valueByCompanyRef.computeIfAbsent(ref, key -> new long[1])[0] += value[0]);
+            other.countByMachine.forEach((machineId, count) -> countByMachine.computeIfAbsent(machineId, key -> new int[1])[0] += count[0]);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+  Binary snapshot of the whole Inventory: parts, products and the parts associated with each product.
+
+  The file is written through a FileChannel and read back through a read-only MappedByteBuffer. Every section is a fixed width column
+  laid out the same way as the part store columns, so a load is a series of bulk copies from the mapping into the store pages rather than
+  a parse of each record. Values are little endian.
+
+  Layout: a 64 byte header, then the part columns (id, stock, min, max, machine ID, name, company name, price, type), the product columns
+  (id, stock, min, max, name, first association, association count, price), with prices as long cents, the association column holding part row numbers, and
+  finally the name table as end offsets followed by UTF-8 bytes. The first parts are the Inventory parts in list order, the rest are
+  parts that are only referenced as associated parts of a product.
+  @author Nicholas Johnson
+ */
+public final class InventorySnapshot {
+
+    /**
+      First four bytes of every snapshot file, "INVS".
+     */
+    public static final int MAGIC = 0x494E5653;
+
+    /**
+      Format version written by this class. Files with any other version are rejected.
+     */
+    public static final int VERSION = 2;
+
+    /**
+      Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 64;
+
+    /**
+      Size of the buffer used while writing.
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private InventorySnapshot() {
+    }
+
+    /**
+      Writes a snapshot of the current Inventory. The file is written next to its final name and moved into place once it is complete,
+      so a crash while writing leaves the previous snapshot intact.
+      @param file path of the snapshot.
+      @param logEpoch number of the change log that continues from this snapshot. Stored so startup knows which log to replay.
+      @throws IOException if the file cannot be written.
+     */
+    public static void write(Path file, long logEpoch) throws IOException {
+        PartStore store = Inventory.getPartStore();
+        List<Part> parts = Inventory.copyAllParts();
+        List<Product> products = Inventory.copyAllProducts();
+
+        int[] snapshotRowByStoreRow = new int[store.rowCount()];
+        Arrays.fill(snapshotRowByStoreRow, -1);
+        int[] storeRows = new int[parts.size()];
+        int partRows = 0;
+        for (Part part : parts) {
+            storeRows = addRow(storeRows, partRows, part.getRow());
+            snapshotRowByStoreRow[part.getRow()] = partRows++;
+        }
+        int liveParts = partRows;
+        int assocCount = 0;
+        for (Product product : products) {
+            for (Part part : product.getAllAssociatedParts()) {
+                assocCount++;
+                if (snapshotRowByStoreRow[part.getRow()] < 0) {
+                    storeRows = addRow(storeRows, partRows, part.getRow());
+                    snapshotRowByStoreRow[part.getRow()] = partRows++;
+                }
+            }
+        }
+
+        NameTable names = new NameTable(store.getNames().size());
+        int[] partNameRefs = new int[partRows];
+        int[] companyRefs = new int[partRows];
+        for (int i = 0; i < partRows; i++) {
+            partNameRefs[i] = names.refFor(store, store.getPartNameRef(storeRows[i]));
+            companyRefs[i] = names.refFor(store, store.getCompanyNameRef(storeRows[i]));
+        }
+        int[] productNameRefs = new int[products.size()];
+        for (int i = 0; i < products.size(); i++) {
+            int nameRef = products.get(i).getNameRef();
+            productNameRefs[i] = nameRef == NameDictionary.NO_NAME ? names.add("") : names.refFor(store, nameRef);
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ColumnWriter out = new ColumnWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(logEpoch);
+            out.putInt(partRows);
+            out.putInt(liveParts);
+            out.putInt(products.size());
+            out.putInt(assocCount);
+            out.putInt(names.size());
+            out.putInt(names.byteLength);
+            for (int i = 40; i < HEADER_SIZE; i++) {
+                out.putByte((byte) 0);
+            }
+
+            for (int i = 0; i < partRows; i++) out.putInt(store.getId(storeRows[i]));
+            for (int i = 0; i < partRows; i++) out.putInt(store.getStock(storeRows[i]));
+            for (int i = 0; i < partRows; i++) out.putInt(store.getMin(storeRows[i]));
+            for (int i = 0; i < partRows; i++) out.putInt(store.getMax(storeRows[i]));
+            for (int i = 0; i < partRows; i++) out.putInt(store.getMachineId(storeRows[i]));
+            for (int i = 0; i < partRows; i++) out.putInt(partNameRefs[i]);
+            for (int i = 0; i < partRows; i++) out.putInt(companyRefs[i]);
+            for (int i = 0; i < partRows; i++) out.putLong(store.getPriceCents(storeRows[i]));
+            for (int i = 0; i < partRows; i++) out.putByte(store.getType(storeRows[i]));
+
+            for (Product product : products) out.putInt(product.getId());
+            for (Product product : products) out.putInt(product.getStock());
+            for (Product product : products) out.putInt(product.getMin());
+            for (Product product : products) out.putInt(product.getMax());
+            for (int ref : productNameRefs) out.putInt(ref);
+            int firstAssoc = 0;
+            for (Product product : products) {
+                out.putInt(firstAssoc);
+                firstAssoc += product.getAllAssociatedParts().size();
+            }
+            for (Product product : products) out.putInt(product.getAllAssociatedParts().size());
+            for (Product product : products) out.putLong(product.getPriceCents());
+
+            for (Product product : products) {
+                for (Part part : product.getAllAssociatedParts()) {
+                    out.putInt(snapshotRowByStoreRow[part.getRow()]);
+                }
+            }
+
+            int endOffset = 0;
+            for (byte[] name : names.bytes) {
+                endOffset += name.length;
+                out.putInt(endOffset);
+            }
+            for (byte[] name : names.bytes) {
+                out.putBytes(name);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+      Loads a snapshot into the Inventory, replacing anything already in it. The file is memory mapped and each column is copied out of
+      the mapping in bulk. The whole file is read before the Inventory is replaced, so a damaged snapshot leaves the Inventory unchanged.
+      @param file path of the snapshot.
+      @return the number of the change log that continues from the snapshot.
+      @throws IOException if the file cannot be read, is not a snapshot of this version, or is truncated or damaged.
+     */
+    public static long load(Path file) throws IOException {
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer in = mapping.order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+            throw new IOException(file + " is not an inventory snapshot");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported inventory snapshot version " + version);
+        }
+        long logEpoch = in.getLong();
+        int partRows = in.getInt();
+        int liveParts = in.getInt();
+        int productCount = in.getInt();
+        int assocCount = in.getInt();
+        int nameCount = in.getInt();
+        in.position(HEADER_SIZE);
+        long columnBytes = (long) partRows * (7 * Integer.BYTES + Long.BYTES + 1) + (long) productCount * (7 * Integer.BYTES + Long.BYTES)
+                + (long) assocCount * Integer.BYTES + (long) nameCount * Integer.BYTES;
+        if (partRows < 0 || liveParts < 0 || liveParts > partRows || productCount < 0 || assocCount < 0 || nameCount < 0
+                || columnBytes > in.remaining()) {
+            throw new IOException(file + " is truncated or damaged");
+        }
+        try {
+            return load(in, logEpoch, partRows, liveParts, productCount, assocCount, nameCount);
+        } catch (RuntimeException e) {
+            throw new IOException(file + " is truncated or damaged", e);
+        }
+    }
+
+    /**
+      Reads the columns and names of a snapshot after its header and replaces the Inventory with them.
+      @param in the mapped buffer, positioned after the header.
+      @param logEpoch number of the change log that continues from the snapshot.
+      @param partRows number of part rows.
+      @param liveParts number of part rows in the parts list, which come first.
+      @param productCount number of products.
+      @param assocCount number of associated part entries.
+      @param nameCount number of names.
+      @return the log number.
+     */
+    private static long load(ByteBuffer in, long logEpoch, int partRows, int liveParts, int productCount, int assocCount, int nameCount) {
+
+        int[] ids = readInts(in, partRows);
+        int[] stocks = readInts(in, partRows);
+        int[] mins = readInts(in, partRows);
+        int[] maxes = readInts(in, partRows);
+        int[] machineIds = readInts(in, partRows);
+        int[] nameRefs = readInts(in, partRows);
+        int[] companyRefs = readInts(in, partRows);
+        long[] prices = readLongs(in, partRows);
+        byte[] types = new byte[partRows];
+        in.get(types);
+
+        int[] productIds = readInts(in, productCount);
+        int[] productStocks = readInts(in, productCount);
+        int[] productMins = readInts(in, productCount);
+        int[] productMaxes = readInts(in, productCount);
+        int[] productNameRefs = readInts(in, productCount);
+        int[] firstAssocs = readInts(in, productCount);
+        int[] assocCounts = readInts(in, productCount);
+        long[] productPrices = readLongs(in, productCount);
+        int[] assocRows = readInts(in, assocCount);
+
+        PartStore store = Inventory.getPartStore();
+        int[] endOffsets = readInts(in, nameCount);
+        int[] storeRefs = new int[nameCount];
+        Arrays.fill(storeRefs, NameDictionary.NO_NAME);
+        try {
+            int startOffset = 0;
+            for (int i = 0; i < nameCount; i++) {
+                byte[] name = new byte[endOffsets[i] - startOffset];
+                in.get(name);
+                storeRefs[i] = store.getNames().intern(new String(name, StandardCharsets.UTF_8));
+                startOffset = endOffsets[i];
+            }
+            for (int i = 0; i < partRows; i++) {
+                nameRefs[i] = storeRefs[nameRefs[i]];
+                companyRefs[i] = companyRefs[i] == NameDictionary.NO_NAME ? NameDictionary.NO_NAME : storeRefs[companyRefs[i]];
+            }
+            for (int i = 0; i < productCount; i++) {
+                productNameRefs[i] = storeRefs[productNameRefs[i]];
+                if (firstAssocs[i] < 0 || assocCounts[i] < 0 || firstAssocs[i] + assocCounts[i] > assocCount) {
+                    throw new IndexOutOfBoundsException("Associated parts of product " + productIds[i] + " are out of range");
+                }
+            }
+            for (int assocRow : assocRows) {
+                Objects.checkIndex(assocRow, partRows);
+            }
+
+            int firstRow = store.appendRows(partRows, ids, stocks, mins, maxes, prices, types, machineIds, nameRefs, companyRefs);
+            Part[] parts = new Part[partRows];
+            for (int i = 0; i < partRows; i++) {
+                parts[i] = Part.forRow(firstRow + i);
+            }
+            List<Product> products = new ArrayList<>(productCount);
+            for (int i = 0; i < productCount; i++) {
+                Product product = new Product(productIds[i], store.getNames().get(productNameRefs[i]), productPrices[i],
+                        productStocks[i], productMins[i], productMaxes[i]);
+                for (int k = firstAssocs[i]; k < firstAssocs[i] + assocCounts[i]; k++) {
+                    product.addAssociatedPart(parts[assocRows[k]]);
+                }
+                products.add(product);
+            }
+            Inventory.restore(Arrays.asList(parts).subList(0, liveParts), products);
+        } finally {
+            for (int storeRef : storeRefs) {
+                store.getNames().release(storeRef);
+            }
+        }
+        return logEpoch;
+    }
+
+    /**
+      Copies an int column out of the buffer and moves past it.
+      @param in the mapped buffer.
+      @param count number of values.
+      @return the column values.
+     */
+    private static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    /**
+      Copies a long column out of the buffer and moves past it.
+      @param in the mapped buffer.
+      @param count number of values.
+      @return the column values.
+     */
+    private static long[] readLongs(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + count * Long.BYTES);
+        return values;
+    }
+
+    /**
+      Stores a value in a growable int array.
+      @param rows the array.
+      @param index position to set.
+      @param value value to set.
+      @return the array, or a larger copy if it was full.
+     */
+    private static int[] addRow(int[] rows, int index, int value) {
+        if (index == rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(16, rows.length * 2));
+        }
+        rows[index] = value;
+        return rows;
+    }
+
+    /**
+      Name table of a snapshot being written. Store dictionary references are renumbered so only names still in use are written.
+     */
+    private static final class NameTable {
+
+        private final List<byte[]> bytes = new ArrayList<>();
+        private final HashMap<String, Integer> refsByName = new HashMap<>();
+        private final int[] refsByStoreRef;
+        private int byteLength;
+
+        NameTable(int storeNames) {
+            refsByStoreRef = new int[storeNames];
+            Arrays.fill(refsByStoreRef, -1);
+        }
+
+        int refFor(PartStore store, int storeRef) {
+            if (storeRef == NameDictionary.NO_NAME) {
+                return NameDictionary.NO_NAME;
+            }
+            if (refsByStoreRef[storeRef] < 0) {
+                refsByStoreRef[storeRef] = add(store.getNames().get(storeRef));
+            }
+            return refsByStoreRef[storeRef];
+        }
+
+        int add(String name) {
+            String value = name == null ? "" : name;
+            Integer ref = refsByName.get(value);
+            if (ref == null) {
+                ref = bytes.size();
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                bytes.add(encoded);
+                byteLength += encoded.length;
+                refsByName.put(value, ref);
+            }
+            return ref;
+        }
+
+        int size() {
+            return bytes.size();
+        }
+    }
+
+    /**
+      Buffered little endian writer over a file channel.
+     */
+    private static final class ColumnWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        ColumnWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putBytes(byte[] values) throws IOException {
+            int written = 0;
+            while (written < values.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), values.length - written);
+                buffer.put(values, written, length);
+                written += length;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package model;
+
+/**
+  Valuation of the Inventory at one point in time: the total stock value, stock times price, split into InHouse parts, Outsourced parts
+  and products, and how many parts and products are at or below their minimum stock. Values are exact, in cents.
+
+  Parts are valued straight from the part store columns instead of through the Part objects of the parts list, so a valuation of millions
+  of parts is one pass over primitive arrays.
+  @author Nicholas Johnson
+ */
+public final class InventoryValuation {
+
+    private final long inHouseValueCents;
+    private final long outsourcedValueCents;
+    private final long productsValueCents;
+    private final long partsAtOrBelowMin;
+    private final long productsAtOrBelowMin;
+
+    private InventoryValuation(long inHouseValueCents, long outsourcedValueCents, long productsValueCents, long partsAtOrBelowMin,
+                               long productsAtOrBelowMin) {
+        this.inHouseValueCents = inHouseValueCents;
+        this.outsourcedValueCents = outsourcedValueCents;
+        this.productsValueCents = productsValueCents;
+        this.partsAtOrBelowMin = partsAtOrBelowMin;
+        this.productsAtOrBelowMin = productsAtOrBelowMin;
+    }
+
+    /**
+      Values the parts in a part store and a list of products. The caller holds the Inventory read lock.
+      @param store the part store; only live rows are counted.
+      @param products the products.
+      @return the valuation.
+     */
+    static InventoryValuation compute(PartStore store, Iterable<Product> products) {
+        long[] partTotals = new long[3];
+        store.addValuation(partTotals);
+        long productsValue = 0;
+        long productsLow = 0;
+        for (Product product : products) {
+            int stock = product.getStockVolatile();
+            productsValue += stock * product.getPriceCents();
+            if (stock <= product.getMin()) {
+                productsLow++;
+            }
+        }
+        return new InventoryValuation(partTotals[0], partTotals[1], productsValue, partTotals[2], productsLow);
+    }
+
+    /**
+      Gets the value of the InHouse parts.
+      @return the value in cents.
+     */
+    public long getInHouseValueCents() {
+        return inHouseValueCents;
+    }
+
+    /**
+      Gets the value of the Outsourced parts.
+      @return the value in cents.
+     */
+    public long getOutsourcedValueCents() {
+        return outsourcedValueCents;
+    }
+
+    /**
+      Gets the value of all parts.
+      @return the value in cents.
+     */
+    public long getPartsValueCents() {
+        return inHouseValueCents + outsourcedValueCents;
+    }
+
+    /**
+      Gets the value of the products.
+      @return the value in cents.
+     */
+    public long getProductsValueCents() {
+        return productsValueCents;
+    }
+
+    /**
+      Gets the value of all parts and products.
+      @return the value in cents.
+     */
+    public long getTotalValueCents() {
+        return getPartsValueCents() + productsValueCents;
+    }
+
+    /**
+      Gets the number of parts whose inventory level is at or below their minimum stock.
+      @return the part count.
+     */
+    public long getPartsAtOrBelowMin() {
+        return partsAtOrBelowMin;
+    }
+
+    /**
+      Gets the number of products whose inventory level is at or below their minimum stock.
+      @return the product count.
+     */
+    public long getProductsAtOrBelowMin() {
+        return productsAtOrBelowMin;
+    }
+
+    @Override
+    public String toString() {
+        return "InHouse " + Price.format(inHouseValueCents) + ", Outsourced " + Price.format(outsourcedValueCents) + ", products "
+                + Price.format(productsValueCents) + ", " + partsAtOrBelowMin + " parts and " + productsAtOrBelowMin + " products at or below min";
+    }
+}
@@ -0,0 +1,470 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+  Dictionary of names used by the part store and the products. Each distinct name is kept once and rows refer to it by a small int reference.
+
+  Names are not kept as String objects. They are stored as UTF-8 bytes in blocks of sixteen references. The names of a block are sorted
+  and front coded: each name stores only the bytes that differ from the name before it in sorted order, so variants such as
+  "Road Bike (Red)" and "Road Bike (Blue)" share their common prefix wherever they were added. Reading a name decodes at most sixteen entries.
+
+  Blocks are immutable. Adding a name builds a new block and publishes it, so reads take no lock and run at the same time as each other and
+  as adds. The most recently read names are cached, so table views redrawing the same rows do not decode them again.
+
+  Each reference counts its holders. intern and retain add a holder and release removes one; a reference with no holders left is freed
+  and handed out again for the next new name, so names that were edited away do not stay in the dictionary.
+  @author Nicholas Johnson
+ */
+public class NameDictionary {
+
+    /**
+      Reference stored for a missing name.
+     */
+    public static final int NO_NAME = -1;
+
+    /**
+      Number of bits of a reference that select the name within its block.
+     */
+    private static final int BLOCK_SHIFT = 4;
+
+    /**
+      Number of names in a block.
+     */
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    /**
+      Mask that selects the name within its block.
+     */
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    /**
+      Number of slots in the cache of decoded names. A power of two.
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    /**
+      Ordered access to the block and cache slots, so a reader sees a block or cached name only after it is fully built.
+     */
+    private static final VarHandle BLOCK_SLOT = MethodHandles.arrayElementVarHandle(Block[].class);
+    private static final VarHandle CACHE_SLOT = MethodHandles.arrayElementVarHandle(CachedName[].class);
+
+    /**
+      Blocks by block number. Replaced by a larger copy when full.
+     */
+    private volatile Block[] blocks = new Block[16];
+
+    /**
+      Number of references handed out. Written after the block holding the newest name is published.
+     */
+    private volatile int count;
+
+    /**
+      Open addressing table used to find an existing entry when a name is added again. Slots hold the reference plus one, 0 when empty,
+      and the hash of the name so most mismatches are skipped without decoding. Only used while holding the dictionary monitor.
+     */
+    private int[] table = new int[64];
+    private int[] tableHashes = new int[64];
+
+    /**
+      Number of holders of each reference, and the freed references waiting to be handed out again. Only used while holding the dictionary monitor.
+     */
+    private int[] holders = new int[64];
+    private int[] freeRefs = new int[16];
+    private int freeCount;
+
+    /**
+      Decoded names by cache slot.
+     */
+    private final CachedName[] cache = new CachedName[CACHE_SIZE];
+
+    /**
+      Gets the reference for a name, adding the name if it is new. The caller becomes a holder of the reference and calls release when it
+      no longer stores it.
+      @param name the name to add.
+      @return the reference for the name, or NO_NAME if the name is null.
+     */
+    public synchronized int intern(String name) {
+        if (name == null) {
+            return NO_NAME;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+        int existing = find(bytes, hash);
+        if (existing != NO_NAME) {
+            holders[existing]++;
+            return existing;
+        }
+        int reference = append(bytes);
+        if ((reference + 1) << 1 > table.length) {
+            growTable();
+        }
+        insert(reference, hash);
+        if (reference == holders.length) {
+            holders = Arrays.copyOf(holders, reference * 2);
+        }
+        holders[reference] = 1;
+        CACHE_SLOT.setRelease(cache, reference & (CACHE_SIZE - 1), new CachedName(reference, name));
+        if (reference >= count) {
+            count = reference + 1;
+        }
+        return reference;
+    }
+
+    /**
+      Adds a holder to a reference, for a copy of a reference that was already returned by intern.
+      @param reference the reference, or NO_NAME.
+     */
+    public synchronized void retain(int reference) {
+        if (reference != NO_NAME) {
+            holders[reference]++;
+        }
+    }
+
+    /**
+      Removes a holder from a reference. When the last holder is gone the name is removed and the reference is reused for a later name,
+      so it must not be read again.
+      @param reference the reference, or NO_NAME.
+     */
+    public synchronized void release(int reference) {
+        if (reference == NO_NAME || --holders[reference] > 0) {
+            return;
+        }
+        byte[] bytes = blocks[reference >>> BLOCK_SHIFT].decode(reference & BLOCK_MASK);
+        remove(reference, hash(bytes));
+        CACHE_SLOT.setRelease(cache, reference & (CACHE_SIZE - 1), null);
+        if (freeCount == freeRefs.length) {
+            freeRefs = Arrays.copyOf(freeRefs, freeCount * 2);
+        }
+        freeRefs[freeCount++] = reference;
+    }
+
+    /**
+      Gets the reference for a name without adding it.
+      @param name the name to look for.
+      @return the reference for the name, or NO_NAME if the name is null or not in the dictionary.
+     */
+    public synchronized int lookup(String name) {
+        if (name == null) {
+            return NO_NAME;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return find(bytes, hash(bytes));
+    }
+
+    /**
+      Gets the name for a reference. The name is decoded unless it was read recently. Takes no lock.
+      A decoded name is only cached if the cache slot still holds what was read before decoding. A release and intern that reuse the
+      reference in the meantime store a new entry in the slot, so a name decoded from the old block never replaces it.
+      @param reference the reference returned by intern.
+      @return the name, or null for NO_NAME.
+     */
+    public String get(int reference) {
+        if (reference == NO_NAME) {
+            return null;
+        }
+        if (reference < 0 || reference >= count) {
+            throw new IndexOutOfBoundsException("No name with reference " + reference);
+        }
+        int cacheSlot = reference & (CACHE_SIZE - 1);
+        CachedName cached = (CachedName) CACHE_SLOT.getAcquire(cache, cacheSlot);
+        if (cached != null && cached.reference == reference) {
+            return cached.name;
+        }
+        Block block = (Block) BLOCK_SLOT.getAcquire(blocks, reference >>> BLOCK_SHIFT);
+        byte[] bytes = block.decode(reference & BLOCK_MASK);
+        String name = new String(bytes, StandardCharsets.UTF_8);
+        CACHE_SLOT.compareAndSet(cache, cacheSlot, cached, new CachedName(reference, name));
+        return name;
+    }
+
+    /**
+      Gets the number of references handed out, including freed references waiting to be reused. Every reference is below this number.
+      @return the reference count.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+      Gets the number of names in the dictionary, not counting freed references.
+      @return the name count.
+     */
+    public synchronized int nameCount() {
+        return count - freeCount;
+    }
+
+    /**
+      Gets the memory used by the encoded names and the lookup table, not counting cached Strings.
+      @return the size in bytes.
+     */
+    public synchronized long byteSize() {
+        Block[] current = blocks;
+        long bytes = (long) current.length * Integer.BYTES + (long) (table.length * 2 + holders.length + freeRefs.length) * Integer.BYTES;
+        for (int i = 0, blockCount = (count + BLOCK_MASK) >>> BLOCK_SHIFT; i < blockCount; i++) {
+            bytes += current[i].byteSize();
+        }
+        return bytes;
+    }
+
+    /**
+      Finds a name in the lookup table.
+      @param bytes the UTF-8 bytes of the name.
+      @param hash the hash of the name.
+      @return the reference of the name, or NO_NAME if it is not in the dictionary.
+     */
+    private int find(byte[] bytes, int hash) {
+        Block[] current = blocks;
+        int mask = table.length - 1;
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (tableHashes[slot] == hash) {
+                int reference = table[slot] - 1;
+                if (Arrays.equals(current[reference >>> BLOCK_SHIFT].decode(reference & BLOCK_MASK), bytes)) {
+                    return reference;
+                }
+            }
+        }
+        return NO_NAME;
+    }
+
+    /**
+      Adds a new name in a freed reference, or else to the last block, starting a new block when the last one is full. The block is rebuilt
+      with the name in its sorted place and published before the count is raised.
+      @param bytes the UTF-8 bytes of the name.
+      @return the reference of the new name.
+     */
+    private int append(byte[] bytes) {
+        if (freeCount > 0) {
+            int reference = freeRefs[--freeCount];
+            int blockNumber = reference >>> BLOCK_SHIFT;
+            Block[] current = blocks;
+            byte[][] names = new byte[current[blockNumber].ranks.length][];
+            current[blockNumber].decodeAll(names);
+            names[reference & BLOCK_MASK] = bytes;
+            BLOCK_SLOT.setRelease(current, blockNumber, Block.encode(names));
+            return reference;
+        }
+        int reference = count;
+        int blockNumber = reference >>> BLOCK_SHIFT;
+        int slot = reference & BLOCK_MASK;
+        Block[] current = blocks;
+        if (blockNumber == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            blocks = current;
+        }
+        byte[][] names = new byte[slot + 1][];
+        if (slot > 0) {
+            current[blockNumber].decodeAll(names);
+        }
+        names[slot] = bytes;
+        BLOCK_SLOT.setRelease(current, blockNumber, Block.encode(names));
+        return reference;
+    }
+
+    /**
+      Adds a reference to the lookup table.
+      @param reference the reference of the name.
+      @param hash the hash of the name.
+     */
+    private void insert(int reference, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = reference + 1;
+        tableHashes[slot] = hash;
+    }
+
+    /**
+      Removes a reference from the lookup table, moving later entries of the probe run back so lookups still find them.
+      @param reference the reference of the name.
+      @param hash the hash of the name.
+     */
+    private void remove(int reference, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != reference + 1) {
+            slot = (slot + 1) & mask;
+        }
+        for (int next = (slot + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int home = tableHashes[next] & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                table[slot] = table[next];
+                tableHashes[slot] = tableHashes[next];
+                slot = next;
+            }
+        }
+        table[slot] = 0;
+        tableHashes[slot] = 0;
+    }
+
+    /**
+      Doubles the lookup table and reinserts every entry.
+     */
+    private void growTable() {
+        int[] oldTable = table;
+        int[] oldHashes = tableHashes;
+        table = new int[oldTable.length * 2];
+        tableHashes = new int[oldTable.length * 2];
+        for (int slot = 0; slot < oldTable.length; slot++) {
+            if (oldTable[slot] != 0) {
+                insert(oldTable[slot] - 1, oldHashes[slot]);
+            }
+        }
+    }
+
+    /**
+      Hashes the bytes of a name, spreading the bits so nearby names do not cluster in the table.
+      @param bytes the UTF-8 bytes of the name.
+      @return the hash.
+     */
+    private static int hash(byte[] bytes) {
+        int hash = Arrays.hashCode(bytes) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+      A decoded name and the reference it belongs to. Immutable, so a cache slot can be read without a lock.
+     */
+    private static final class CachedName {
+
+        final int reference;
+        final String name;
+
+        CachedName(int reference, String name) {
+            this.reference = reference;
+            this.name = name;
+        }
+    }
+
+    /**
+      Immutable block of up to sixteen names. The names are encoded in sorted order: the first is its length followed by its bytes, and
+      every other name is the length of the prefix it shares with the name before it, the length of the rest, and the rest. Lengths are
+      variable length ints. The rank of each slot gives its place in the sorted order.
+     */
+    private static final class Block {
+
+        final byte[] data;
+        final byte[] ranks;
+        final int maxLength;
+
+        private Block(byte[] data, byte[] ranks, int maxLength) {
+            this.data = data;
+            this.ranks = ranks;
+            this.maxLength = maxLength;
+        }
+
+        /**
+          Sorts and encodes the names of a block.
+          @param names the UTF-8 bytes of the names, by slot.
+          @return the block.
+         */
+        static Block encode(byte[][] names) {
+            Integer[] order = new Integer[names.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(names[a], names[b]));
+            byte[] ranks = new byte[names.length];
+            byte[] data = new byte[16];
+            int length = 0;
+            int maxLength = 0;
+            byte[] previous = null;
+            for (int rank = 0; rank < order.length; rank++) {
+                byte[] name = names[order[rank]];
+                ranks[order[rank]] = (byte) rank;
+                maxLength = Math.max(maxLength, name.length);
+                int prefix = 0;
+                if (previous != null) {
+                    int limit = Math.min(previous.length, name.length);
+                    while (prefix < limit && previous[prefix] == name[prefix]) {
+                        prefix++;
+                    }
+                }
+                int suffix = name.length - prefix;
+                if (length + 10 + suffix > data.length) {
+                    data = Arrays.copyOf(data, Math.max(length + 10 + suffix, data.length * 2));
+                }
+                if (previous != null) {
+                    length = writeVarInt(data, length, prefix);
+                }
+                length = writeVarInt(data, length, suffix);
+                System.arraycopy(name, prefix, data, length, suffix);
+                length += suffix;
+                previous = name;
+            }
+            return new Block(Arrays.copyOf(data, length), ranks, maxLength);
+        }
+
+        /**
+          Decodes the name in a slot, walking the sorted entries up to its rank.
+          @param slot the slot within the block.
+          @return the UTF-8 bytes of the name.
+         */
+        byte[] decode(int slot) {
+            int rank = ranks[slot];
+            byte[] name = new byte[maxLength];
+            int position = 0;
+            int length = 0;
+            for (int i = 0; i <= rank; i++) {
+                int prefix = 0;
+                if (i > 0) {
+                    prefix = readVarInt(position);
+                    position = skipVarInt(position);
+                }
+                int suffix = readVarInt(position);
+                position = skipVarInt(position);
+                System.arraycopy(data, position, name, prefix, suffix);
+                position += suffix;
+                length = prefix + suffix;
+            }
+            return length == name.length ? name : Arrays.copyOf(name, length);
+        }
+
+        /**
+          Decodes every name of the block.
+          @param names receives the UTF-8 bytes of each name by slot. Its length is the number of names to decode.
+         */
+        void decodeAll(byte[][] names) {
+            for (int slot = 0; slot < ranks.length && slot < names.length; slot++) {
+                names[slot] = decode(slot);
+            }
+        }
+
+        long byteSize() {
+            return data.length + ranks.length + Integer.BYTES;
+        }
+
+        private int readVarInt(int position) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        private int skipVarInt(int position) {
+            while (data[position++] < 0) {
+                // continuation byte
+            }
+            return position;
+        }
+
+        private static int writeVarInt(byte[] data, int length, int value) {
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+            return length;
+        }
+    }
+}
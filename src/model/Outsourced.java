@@ -2,16 +2,12 @@ package model;
 
 /**
   Models an Outsourced part.
+  The company name is kept in the part store name dictionary, so parts from the same company share one copy of the name.
   @author Nicholas Johnson
  */
 
 public class Outsourced extends Part {
 
-    /**
-      Company Name for the part. This is unique to outsourced parts.
-     */
-    private String companyName;
-
     /**
       Constructor for new Outsourced object. This object contains a Company Name, where Inhouse objects instead have machine ID.
       @param id id for the part.
@@ -23,8 +19,33 @@ public class Outsourced extends Part {
       @param companyName name of the company that makes the part.
      */
     public Outsourced(int id, int stock, int min, int max, String partName, double price, String companyName) {
-        super(id, stock, min, max, partName, price);
-        setCompanyName(companyName);
+        this(id, stock, min, max, partName, Price.ofDouble(price), companyName);
+    }
+
+    /**
+      Constructor for new Outsourced object with an exact price. An int price argument selects this constructor, so whole dollar prices
+      given to the other constructor must be written as doubles.
+      @param id id for the part.
+      @param stock inventory level for the part.
+      @param min minimum stock requirements for part.
+      @param max maximum stock requirements for part.
+      @param partName Name of the part.
+      @param priceCents price for the part in cents.
+      @param companyName name of the company that makes the part.
+     */
+    public Outsourced(int id, int stock, int min, int max, String partName, long priceCents, String companyName) {
+        super(id, stock, min, max, partName, priceCents);
+        store.setType(row, PartStore.TYPE_OUTSOURCED);
+        store.setCompanyName(row, companyName);
+    }
+
+
+    /**
+      Constructor for a view over an Outsourced row that is already in the part store. Used when parts are loaded in bulk from a snapshot.
+      @param row the store row of the part.
+     */
+    Outsourced(int row) {
+        super(row);
     }
 
 
@@ -34,7 +55,9 @@ public class Outsourced extends Part {
      */
     public String getCompanyName()
     {
-        return companyName;
+        String companyName = store.getCompanyName(row);
+        Detached copy = detached();
+        return copy == null ? companyName : copy.companyName;
     }
 
     /**
@@ -43,6 +66,14 @@ public class Outsourced extends Part {
      */
     public void setCompanyName(String companyName)
     {
-       this.companyName =  companyName;
+       synchronized (store) {
+           Detached copy = detached();
+           if (copy != null) {
+               copy.companyName = companyName;
+               return;
+           }
+           store.setCompanyName(row, companyName);
+       }
+       Inventory.partDetailsChanged(this);
     }
 }
@@ -0,0 +1,256 @@
+package model;
+
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+import javafx.collections.WeakListChangeListener;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+  Read only list of the parts or products in ascending ID order that loads its items a page at a time as they are asked for. Table views
+  only ask for the rows they show, so a table bound to this list opens without sorting or copying the Inventory, and keeps no more than a
+  few pages of items of its own. The least recently used pages are dropped as the user scrolls on. The items themselves are the ones in
+  the Inventory lists, which stay in memory either way.
+
+  The list follows an Inventory list and the change feed. When the Inventory list changes, the list reads the change feed once the
+  change is finished and tells its listeners which rows were added, removed or updated, so a table keeps its selection and scroll
+  position. Many changes made together, such as an import chunk, are passed on as one change. The whole list is only reported as replaced
+  when the feed was reset or overrun. The Inventory list changes on the FX thread, so this list does too.
+  @param <T> Part or Product.
+  @author Nicholas Johnson
+ */
+public class PagedObservableList<T> extends ObservableListBase<T> {
+
+    /**
+      Number of items in a page.
+     */
+    public static final int PAGE_SIZE = 256;
+
+    /**
+      Number of pages kept loaded.
+     */
+    public static final int MAX_LOADED_PAGES = 8;
+
+    /**
+      Reads items by position in ID order from the Inventory.
+      @param <T> Part or Product.
+     */
+    interface Source<T> {
+
+        /**
+          Gets the number of items.
+          @return the item count.
+         */
+        int size();
+
+        /**
+          Loads the items from a position into an array, as one consistent read.
+          @param position position of the first item.
+          @param items receives the items.
+          @return the number of items loaded; fewer than the array length at the end of the list.
+         */
+        int load(int position, Object[] items);
+
+        /**
+          Reads the changes published since the last call and finds the position of each changed ID, as one consistent read. The first
+          call starts following the changes and reports a reset.
+          @param changes receives the changes and the new size.
+         */
+        void readChanges(Changes changes);
+    }
+
+    private final Source<T> source;
+
+    /**
+      Loaded pages by page number, least recently used first.
+     */
+    private final Map<Integer, Object[]> pages = new LinkedHashMap<Integer, Object[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > MAX_LOADED_PAGES;
+        }
+    };
+
+    /**
+      Follows the Inventory list. Kept in a field because it is registered weakly, so a table that is thrown away does not leave it
+      registered. The Inventory list changes while the Inventory is locked, so the changes are read later on the FX thread.
+     */
+    private final ListChangeListener<Object> changeListener = change -> queueRefresh();
+
+    private final Changes changes = new Changes();
+    private boolean refreshQueued;
+    private int size;
+
+    /**
+      Constructor for a list over an Inventory source. The Inventory creates these lists.
+      @param source reads the items.
+      @param followed the Inventory list whose changes refresh this list.
+     */
+    PagedObservableList(Source<T> source, ObservableList<?> followed) {
+        this.source = source;
+        source.readChanges(changes);
+        this.size = changes.size;
+        followed.addListener(new WeakListChangeListener<>(changeListener));
+    }
+
+    /**
+      Gets the item at a position, loading its page if it is not loaded.
+      @param index the position in ID order.
+      @return the item, or null if the Inventory shrank since this list was last refreshed.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for size " + size);
+        }
+        Object[] page = pages.get(index / PAGE_SIZE);
+        if (page == null) {
+            page = new Object[PAGE_SIZE];
+            source.load(index - index % PAGE_SIZE, page);
+            pages.put(index / PAGE_SIZE, page);
+        }
+        return (T) page[index % PAGE_SIZE];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+      Gets the number of pages loaded.
+      @return the page count, at most MAX_LOADED_PAGES.
+     */
+    public int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    /**
+      Refreshes the list once the current FX event is finished. Changes made in the meantime are read together.
+     */
+    private void queueRefresh() {
+        if (!refreshQueued) {
+            refreshQueued = true;
+            Platform.runLater(this::refresh);
+        }
+    }
+
+    /**
+      Reads the changes made since the last refresh and tells the listeners which rows were added, removed or updated. Changed IDs are
+      handled in ascending order, so the position of each is its position among the current IDs.
+     */
+    @SuppressWarnings("unchecked")
+    public void refresh() {
+        refreshQueued = false;
+        source.readChanges(changes);
+        if (changes.reset) {
+            replaceAll(changes.size);
+            return;
+        }
+        pages.clear();
+        size = changes.size;
+        if (changes.count == 0) {
+            return;
+        }
+        beginChange();
+        for (int i = 0; i < changes.count; i++) {
+            int position = changes.positions[i];
+            boolean existed = changes.existed[i];
+            boolean present = changes.present[i];
+            if (existed && present) {
+                nextUpdate(position);
+            } else if (present) {
+                nextAdd(position, position + 1);
+            } else if (existed) {
+                nextRemove(position, (T) null);
+            }
+        }
+        endChange();
+    }
+
+    /**
+      Drops the loaded pages, reads the size again and tells the listeners the whole list was replaced.
+     */
+    public void reload() {
+        replaceAll(source.size());
+    }
+
+    private void replaceAll(int newSize) {
+        int oldSize = size;
+        pages.clear();
+        size = newSize;
+        beginChange();
+        nextReplace(0, size, Collections.nCopies(oldSize, null));
+        endChange();
+    }
+
+    /**
+      Changes read from the change feed in one refresh. For each changed ID, sorted ascending: whether it was in the list before the
+      changes, whether it is in the list now, and its position among the current IDs.
+     */
+    static final class Changes {
+
+        boolean reset;
+        int size;
+        int count;
+        int[] ids = new int[16];
+        boolean[] existed = new boolean[16];
+        boolean[] present = new boolean[16];
+        int[] positions = new int[16];
+        private final IntHashSet seen = new IntHashSet();
+
+        /**
+          Clears the changes before a read.
+         */
+        void clear() {
+            reset = false;
+            count = 0;
+            seen.clear();
+        }
+
+        /**
+          Records a change event. Only the first event of an ID tells whether it was in the list before.
+          @param id the changed ID.
+          @param type the ChangeFeed event type.
+         */
+        void record(int id, byte type) {
+            if (type == ChangeFeed.RESET) {
+                reset = true;
+                return;
+            }
+            if (!seen.add(id)) {
+                return;
+            }
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                existed = Arrays.copyOf(existed, count * 2);
+                present = Arrays.copyOf(present, count * 2);
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            ids[count] = id;
+            existed[count] = type != ChangeFeed.CREATED;
+            count++;
+        }
+
+        /**
+          Sorts the recorded changes by ID.
+         */
+        void sortById() {
+            long[] packed = new long[count];
+            for (int i = 0; i < count; i++) {
+                packed[i] = ((long) ids[i] << 1) | (existed[i] ? 1 : 0);
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < count; i++) {
+                ids[i] = (int) (packed[i] >> 1);
+                existed[i] = (packed[i] & 1) != 0;
+            }
+        }
+    }
+}
@@ -1,22 +1,138 @@
 package model;
 
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Cleaner;
+
 /**
   This class models a part. The classes Outsourced and InHouse extend this class.
+  A part is a view over one row of the Inventory part store, the field values are kept in the store columns rather than in the object.
+  When the Inventory frees the row of a part it dropped, the values are copied into the part first and the part reads and changes the copy.
   @author Nicholas Johnson
  */
 public abstract class Part {
 
-    private int id, stock, min, max;
-    private String partName;
-    private double price;
+    /**
+      Store holding the part data. All parts share the Inventory part store.
+     */
+    static final PartStore store = Inventory.getPartStore();
+
+    /**
+      Row of the part in the store.
+     */
+    final int row;
+
+    /**
+      Registration that frees the row once the part is garbage collected, or straight away when the Inventory frees it.
+     */
+    private final Cleaner.Cleanable cleanable;
+
+    /**
+      Copy of the values taken when the row was freed, or null while the part reads its row. Set and changed under the store monitor.
+     */
+    private volatile Detached detached;
 
     public Part(int id, int stock, int min, int max, String partName, double price) {
-        this.id = id;
-        this.stock = stock;
-        this.min = min;
-        this.max = max;
-        this.partName = partName;
-        this.price = price;
+        this(id, stock, min, max, partName, Price.ofDouble(price));
+    }
+
+    /**
+      Constructor for a part with an exact price. An int price argument selects this constructor, so a price in whole dollars given to the
+      other constructor must be written as a double, for example 85.0.
+      @param id ID for the part.
+      @param stock inventory level of the part.
+      @param min minimum stock requirement for part.
+      @param max maximum stock requirement for part.
+      @param partName name of the part.
+      @param priceCents price of the part in cents.
+     */
+    public Part(int id, int stock, int min, int max, String partName, long priceCents) {
+        this.row = store.appendRow(id, stock, min, max, partName, priceCents);
+        this.cleanable = store.trackRow(this, row);
+    }
+
+    /**
+      Constructor for a view over a row that is already in the store. Used when parts are loaded in bulk from a snapshot. Each row must have
+      only one view, because the row is freed when its view is garbage collected.
+      @param row the store row of the part.
+     */
+    Part(int row) {
+        this.row = row;
+        this.cleanable = store.trackRow(this, row);
+    }
+
+    /**
+      Creates the view object for a store row. The row type decides whether an InHouse or an Outsourced part is returned.
+      @param row the store row of the part.
+      @return a part reading its values from the row.
+     */
+    static Part forRow(int row) {
+        return store.getType(row) == PartStore.TYPE_IN_HOUSE ? new InHouse(row) : new Outsourced(row);
+    }
+
+    /**
+      Frees the store row now instead of when the part is garbage collected. The values are copied into the part first, so it can still be
+      read and changed; only the row is handed to the next new part. Called by the Inventory under its write lock, for a part it dropped
+      that no product in the Inventory lists.
+     */
+    void free() {
+        synchronized (store) {
+            if (detached != null) {
+                return;
+            }
+            detached = new Detached(this);
+        }
+        cleanable.clean();
+    }
+
+    /**
+      Checks whether the Inventory freed the row of the part.
+      @return true if the part reads a copy of its values.
+     */
+    boolean isFreed() {
+        return detached != null;
+    }
+
+    /**
+      Gets the copy of the values taken when the row was freed. Getters read the row first and call this after: the fence keeps the row read
+      before the check, so a value read from a row that was freed and reused in the meantime is always replaced by the copy.
+      @return the copy, or null if the row was not freed.
+     */
+    final Detached detached() {
+        VarHandle.acquireFence();
+        return detached;
+    }
+
+    /**
+      Builds a new part with the same values and a row of its own. The Inventory uses it when a freed part is added to a product, so every
+      product in the Inventory lists parts that have a row.
+      @return the copy.
+     */
+    Part copy() {
+        if (this instanceof InHouse) {
+            return new InHouse(getId(), getStock(), getMin(), getMax(), getPartName(), getPriceCents(), ((InHouse) this).getMachineId());
+        }
+        return new Outsourced(getId(), getStock(), getMin(), getMax(), getPartName(), getPriceCents(), ((Outsourced) this).getCompanyName());
+    }
+
+    /**
+      Getter for the store row of the part. Scans over the part store use the row to find the part's values. The row of a freed part may
+      belong to another part.
+      @return the row number.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+      Getter for the version stamp of the part. Each part that replaces another with the same ID gets the replaced part's version plus one,
+      and each change made in place to the stock, limits or price of a part in the Inventory adds one, so an editor can tell whether the
+      part it loaded is still the current one.
+      @return the version.
+     */
+    public int getVersion() {
+        int version = store.getVersion(row);
+        Detached copy = detached();
+        return copy == null ? version : copy.version;
     }
 
     /**
@@ -24,7 +140,9 @@ public abstract class Part {
       @return the ID.
      */
     public int getId() {
-        return id;
+        int id = store.getId(row);
+        Detached copy = detached();
+        return copy == null ? id : copy.id;
     }
 
     /**
@@ -32,7 +150,14 @@ public abstract class Part {
       @param id the ID to set.
      */
     public void setId(int id) {
-        this.id = id;
+        synchronized (store) {
+            Detached copy = detached;
+            if (copy != null) {
+                copy.id = id;
+                return;
+            }
+            store.setId(row, id);
+        }
     }
 
     /**
@@ -40,7 +165,9 @@ public abstract class Part {
       @return the inventory level.
      */
     public int getStock() {
-        return stock;
+        int stock = store.getStock(row);
+        Detached copy = detached();
+        return copy == null ? stock : copy.stock;
     }
 
     /**
@@ -48,7 +175,15 @@ public abstract class Part {
       @param stock the inventory level to be set.
      */
     public void setStock(int stock) {
-        this.stock = stock;
+        synchronized (store) {
+            Detached copy = detached;
+            if (copy != null) {
+                copy.stock = stock;
+                return;
+            }
+            store.setStock(row, stock);
+        }
+        Inventory.partStockChanged(this);
     }
 
     /**
@@ -56,7 +191,9 @@ public abstract class Part {
       @return minimum stock.
      */
     public int getMin() {
-        return min;
+        int min = store.getMin(row);
+        Detached copy = detached();
+        return copy == null ? min : copy.min;
     }
 
     /**
@@ -64,7 +201,15 @@ public abstract class Part {
       @param min minimum stock to be set.
      */
     public void setMin(int min) {
-        this.min = min;
+        synchronized (store) {
+            Detached copy = detached;
+            if (copy != null) {
+                copy.min = min;
+                return;
+            }
+            store.setMin(row, min);
+        }
+        Inventory.partStockChanged(this);
     }
 
     /**
@@ -72,7 +217,9 @@ public abstract class Part {
       @return maximum stock.
      */
     public int getMax() {
-        return max;
+        int max = store.getMax(row);
+        Detached copy = detached();
+        return copy == null ? max : copy.max;
     }
 
     /**
@@ -80,7 +227,15 @@ public abstract class Part {
       @param max max stock to be set.
      */
     public void setMax(int max) {
-        this.max = max;
+        synchronized (store) {
+            Detached copy = detached;
+            if (copy != null) {
+                copy.max = max;
+                return;
+            }
+            store.setMax(row, max);
+        }
+        Inventory.partStockChanged(this);
     }
 
     /**
@@ -88,15 +243,27 @@ public abstract class Part {
       @return name of the part.
      */
     public String getPartName() {
-        return partName;
+        String partName = store.getPartName(row);
+        Detached copy = detached();
+        return copy == null ? partName : copy.partName;
     }
 
     /**
-      Setter for partName. Sets the name of the part.
+      Setter for partName. Sets the name of the part. The Inventory name index is updated.
       @param partName part name to be set.
      */
     public void setPartName(String partName) {
-        this.partName = partName;
+        String oldName;
+        synchronized (store) {
+            Detached copy = detached;
+            if (copy != null) {
+                copy.partName = partName;
+                return;
+            }
+            oldName = store.getPartName(row);
+            store.setPartName(row, partName);
+        }
+        Inventory.partNameChanged(this, oldName);
     }
 
     /**
@@ -104,14 +271,74 @@ public abstract class Part {
       @return price of the part.
      */
     public double getPrice() {
-        return price;
+        return Price.toDouble(getPriceCents());
     }
 
     /**
       setter for the price of the part. All prices are in USD.
+      The cost of the products using the part is updated.
       @param price price to be set.
      */
     public void setPrice(double price) {
-        this.price = price;
+        setPriceCents(Price.ofDouble(price));
+    }
+
+    /**
+      Getter for the exact price of the part.
+      @return price of the part in cents.
+     */
+    public long getPriceCents() {
+        long priceCents = store.getPriceCents(row);
+        Detached copy = detached();
+        return copy == null ? priceCents : copy.priceCents;
+    }
+
+    /**
+      Setter for the exact price of the part. The cost of the products using the part is updated.
+      @param priceCents price to be set, in cents.
+     */
+    public void setPriceCents(long priceCents) {
+        synchronized (store) {
+            Detached copy = detached;
+            if (copy != null) {
+                copy.priceCents = priceCents;
+                return;
+            }
+            store.setPriceCents(row, priceCents);
+        }
+        Inventory.partPriceChanged(this);
+    }
+
+    /**
+      Values of a part whose row was freed.
+     */
+    static final class Detached {
+
+        int id;
+        int stock;
+        int min;
+        int max;
+        long priceCents;
+        String partName;
+        int machineId;
+        String companyName;
+        final int version;
+
+        /**
+          Copies the values of a part from its row. Called under the store monitor.
+          @param part the part.
+         */
+        Detached(Part part) {
+            int row = part.row;
+            id = store.getId(row);
+            stock = store.getStock(row);
+            min = store.getMin(row);
+            max = store.getMax(row);
+            priceCents = store.getPriceCents(row);
+            partName = store.getPartName(row);
+            machineId = store.getMachineId(row);
+            companyName = store.getCompanyName(row);
+            version = store.getVersion(row);
+        }
     }
 }
@@ -0,0 +1,748 @@
+package model;
+
+import java.lang.ref.Cleaner;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+  Column store holding the data of every part. Each field is kept in its own primitive array, and names are kept in a NameDictionary.
+  Part, InHouse and Outsourced objects are views over one row of this store.
+
+  Columns are split into fixed size pages. A page never moves once allocated, so a row stays at the same array slot for its whole life.
+  A removed part may still be referenced, for example as an associated part of a product. The Inventory frees the row of a part it drops
+  when no product in the Inventory lists the part; the Part copies its values first and reads the copy from then on. Other rows are freed
+  once they are not live and the Part viewing them has been garbage collected. Freed rows are handed to the next new part before the store grows.
+
+  Memory ordering: rows are added and freed under the store monitor. A row's values are made visible to other threads by whatever hands
+  them the Part or row number, normally the Inventory lock. The outer page arrays are volatile and are only replaced by complete copies
+  that already hold the new page, so a reader never sees a page table with a missing page, even one that skips the monitor.
+  @author Nicholas Johnson
+ */
+public class PartStore {
+
+    /**
+      Row type for InHouse parts.
+     */
+    public static final byte TYPE_IN_HOUSE = 1;
+
+    /**
+      Row type for Outsourced parts.
+     */
+    public static final byte TYPE_OUTSOURCED = 2;
+
+    /**
+      Number of bits of a row number that select the slot within a page.
+     */
+    public static final int PAGE_SHIFT = 12;
+
+    /**
+      Number of rows in each page.
+     */
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+    /**
+      Mask that selects the slot within a page.
+     */
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+      Atomic access to the slots of an int column page. Used for stock adjustments that do not take a lock.
+     */
+    private static final VarHandle INT_SLOT = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /**
+      Dictionary of part names, company names and product names.
+     */
+    private final NameDictionary names = new NameDictionary();
+
+    /**
+      Frees the rows and names of parts and products once they are garbage collected.
+     */
+    private final Cleaner cleaner = Cleaner.create();
+
+    /**
+      Column pages. The first index selects the page and the second the slot within the page. Volatile, see the class comment.
+     */
+    private volatile int[][] ids = new int[0][];
+    private volatile int[][] stocks = new int[0][];
+    private volatile int[][] mins = new int[0][];
+    private volatile int[][] maxes = new int[0][];
+    private volatile long[][] prices = new long[0][];
+    private volatile int[][] nameRefs = new int[0][];
+    private volatile byte[][] types = new byte[0][];
+    private volatile int[][] machineIds = new int[0][];
+    private volatile int[][] companyRefs = new int[0][];
+
+    /**
+      Live flags. A row is live while its part is in the Inventory parts list, 1 for live and 0 otherwise.
+     */
+    private volatile byte[][] live = new byte[0][];
+
+    /**
+      Bookkeeping columns kept by the Inventory and not saved in snapshots. The version counts how many times the part ID was replaced
+      before this row, and the position is where the part was last seen in the parts list.
+     */
+    private volatile int[][] versions = new int[0][];
+    private volatile int[][] positions = new int[0][];
+
+    /**
+      Number of live rows in each page. Scans skip pages with no live rows.
+     */
+    private volatile int[] pageLiveCounts = new int[0];
+
+    /**
+      Number of rows allocated, including freed rows waiting to be reused. Every row number is below this number.
+     */
+    private int rowCount;
+
+    /**
+      Number of rows currently live.
+     */
+    private int liveCount;
+
+    /**
+      Freed rows waiting to be reused.
+     */
+    private int[] freeRows = new int[16];
+    private int freeCount;
+
+    /**
+      Adds a row for a new part, reusing a freed row when there is one. The row is not live until the part is added to the Inventory.
+      @param id ID of the part.
+      @param stock inventory level of the part.
+      @param min minimum stock of the part.
+      @param max maximum stock of the part.
+      @param partName name of the part.
+      @param price price of the part.
+      @return the row number of the new part.
+     */
+    public int appendRow(int id, int stock, int min, int max, String partName, double price) {
+        return appendRow(id, stock, min, max, partName, Price.ofDouble(price));
+    }
+
+    /**
+      Adds a row for a new part with an exact price, reusing a freed row when there is one. The row is not live until the part is added to
+      the Inventory.
+      @param id ID of the part.
+      @param stock inventory level of the part.
+      @param min minimum stock of the part.
+      @param max maximum stock of the part.
+      @param partName name of the part.
+      @param priceCents price of the part in cents.
+      @return the row number of the new part.
+     */
+    public synchronized int appendRow(int id, int stock, int min, int max, String partName, long priceCents) {
+        int row;
+        if (freeCount > 0) {
+            row = freeRows[--freeCount];
+        } else {
+            row = rowCount++;
+            if (row >>> PAGE_SHIFT == ids.length) {
+                addPage();
+            }
+        }
+        int page = row >>> PAGE_SHIFT;
+        int slot = row & PAGE_MASK;
+        ids[page][slot] = id;
+        stocks[page][slot] = stock;
+        mins[page][slot] = min;
+        maxes[page][slot] = max;
+        prices[page][slot] = priceCents;
+        nameRefs[page][slot] = names.intern(partName);
+        companyRefs[page][slot] = NameDictionary.NO_NAME;
+        types[page][slot] = 0;
+        machineIds[page][slot] = 0;
+        versions[page][slot] = 0;
+        positions[page][slot] = 0;
+        return row;
+    }
+
+    /**
+      Registers the view object of a row. Once the view is garbage collected the row is freed, unless it is live.
+      @param part the Part viewing the row.
+      @param row the row number.
+      @return the registration. Cleaning it frees the row straight away, and the row is then not freed again when the view is collected.
+     */
+    Cleaner.Cleanable trackRow(Object part, int row) {
+        return cleaner.register(part, () -> freeRow(row));
+    }
+
+    /**
+      Registers an action to run once an object is garbage collected. Used by products to release their names.
+      @param owner the object to watch.
+      @param action the action. Must not refer to the owner.
+     */
+    void onCollected(Object owner, Runnable action) {
+        cleaner.register(owner, action);
+    }
+
+    /**
+      Frees a row whose Part has been garbage collected or freed by the Inventory, releasing its names and keeping the row for the next new
+      part. A live row is left alone. Called by the Part cleaner.
+      @param row the row number.
+     */
+    synchronized void freeRow(int row) {
+        int page = row >>> PAGE_SHIFT;
+        int slot = row & PAGE_MASK;
+        if (live[page][slot] != 0) {
+            return;
+        }
+        names.release(nameRefs[page][slot]);
+        names.release(companyRefs[page][slot]);
+        nameRefs[page][slot] = NameDictionary.NO_NAME;
+        companyRefs[page][slot] = NameDictionary.NO_NAME;
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    /**
+      Appends a block of rows in one call. Used when a snapshot is loaded, so whole column arrays are copied into the pages with
+      System.arraycopy instead of being written one value at a time. Name references must already belong to this store's dictionary; each
+      row becomes a holder of its names. The rows are always added at the end, so they are contiguous.
+      @param count number of rows to append.
+      @param rowIds ID column.
+      @param rowStocks inventory level column.
+      @param rowMins minimum stock column.
+      @param rowMaxes maximum stock column.
+      @param rowPrices price column, in cents.
+      @param rowTypes row type column.
+      @param rowMachineIds machine ID column.
+      @param rowNameRefs part name reference column.
+      @param rowCompanyRefs company name reference column.
+      @return the row number of the first appended row.
+     */
+    public synchronized int appendRows(int count, int[] rowIds, int[] rowStocks, int[] rowMins, int[] rowMaxes, long[] rowPrices,
+                                       byte[] rowTypes, int[] rowMachineIds, int[] rowNameRefs, int[] rowCompanyRefs) {
+        int firstRow = rowCount;
+        int copied = 0;
+        while (copied < count) {
+            int row = firstRow + copied;
+            int page = row >>> PAGE_SHIFT;
+            if (page == ids.length) {
+                addPage();
+            }
+            int slot = row & PAGE_MASK;
+            int length = Math.min(PAGE_SIZE - slot, count - copied);
+            System.arraycopy(rowIds, copied, ids[page], slot, length);
+            System.arraycopy(rowStocks, copied, stocks[page], slot, length);
+            System.arraycopy(rowMins, copied, mins[page], slot, length);
+            System.arraycopy(rowMaxes, copied, maxes[page], slot, length);
+            System.arraycopy(rowPrices, copied, prices[page], slot, length);
+            System.arraycopy(rowTypes, copied, types[page], slot, length);
+            System.arraycopy(rowMachineIds, copied, machineIds[page], slot, length);
+            System.arraycopy(rowNameRefs, copied, nameRefs[page], slot, length);
+            System.arraycopy(rowCompanyRefs, copied, companyRefs[page], slot, length);
+            copied += length;
+        }
+        for (int i = 0; i < count; i++) {
+            names.retain(rowNameRefs[i]);
+            names.retain(rowCompanyRefs[i]);
+        }
+        rowCount = firstRow + count;
+        return firstRow;
+    }
+
+    /**
+      Allocates one more page for every column.
+     */
+    private void addPage() {
+        pageLiveCounts = Arrays.copyOf(pageLiveCounts, pageLiveCounts.length + 1);
+        stocks = withPage(stocks, new int[PAGE_SIZE]);
+        mins = withPage(mins, new int[PAGE_SIZE]);
+        maxes = withPage(maxes, new int[PAGE_SIZE]);
+        prices = withPage(prices, new long[PAGE_SIZE]);
+        nameRefs = withPage(nameRefs, new int[PAGE_SIZE]);
+        types = withPage(types, new byte[PAGE_SIZE]);
+        machineIds = withPage(machineIds, new int[PAGE_SIZE]);
+        companyRefs = withPage(companyRefs, new int[PAGE_SIZE]);
+        live = withPage(live, new byte[PAGE_SIZE]);
+        versions = withPage(versions, new int[PAGE_SIZE]);
+        positions = withPage(positions, new int[PAGE_SIZE]);
+        ids = withPage(ids, new int[PAGE_SIZE]);
+    }
+
+    /**
+      Copies a column's page table with one more page at the end. The copy is complete before it is stored in the volatile field.
+      @param <T> page array type.
+      @param pages the current page table.
+      @param page the new page.
+      @return the new page table.
+     */
+    private static <T> T[] withPage(T[] pages, T page) {
+        T[] grown = Arrays.copyOf(pages, pages.length + 1);
+        grown[pages.length] = page;
+        return grown;
+    }
+
+    /**
+      Gets the number of rows allocated, including rows that are no longer live. Every row number is below this number.
+      @return the row count.
+     */
+    public synchronized int rowCount() {
+        return rowCount;
+    }
+
+    /**
+      Gets the number of live rows. This matches the number of parts in the Inventory.
+      @return the live row count.
+     */
+    public synchronized int liveCount() {
+        return liveCount;
+    }
+
+    /**
+      Checks whether a row belongs to a part that is in the Inventory.
+      @param row the row number.
+      @return true if the row is live.
+     */
+    public boolean isLive(int row) {
+        return live[row >>> PAGE_SHIFT][row & PAGE_MASK] != 0;
+    }
+
+    /**
+      Marks a row as live or removed. Called by the Inventory when a part is added to or removed from the parts list.
+      @param row the row number.
+      @param isLive true when the part is in the parts list.
+     */
+    public synchronized void setLive(int row, boolean isLive) {
+        byte flag = isLive ? (byte) 1 : (byte) 0;
+        byte[] page = live[row >>> PAGE_SHIFT];
+        if (page[row & PAGE_MASK] != flag) {
+            page[row & PAGE_MASK] = flag;
+            liveCount += isLive ? 1 : -1;
+            pageLiveCounts[row >>> PAGE_SHIFT] += isLive ? 1 : -1;
+        }
+    }
+
+    /**
+      Getter for the version stamp of a row.
+      @param row the row number.
+      @return the version, 0 for a part that has not replaced another.
+     */
+    public int getVersion(int row) {
+        return (int) INT_SLOT.getVolatile(versions[row >>> PAGE_SHIFT], row & PAGE_MASK);
+    }
+
+    /**
+      Setter for the version stamp of a row.
+      @param row the row number.
+      @param version the version to set.
+     */
+    public void setVersion(int row, int version) {
+        versions[row >>> PAGE_SHIFT][row & PAGE_MASK] = version;
+    }
+
+    /**
+      Atomically adds one to the version stamp of a row. Called when the part is changed in place, so an editor holding the old version
+      cannot save over the change.
+      @param row the row number.
+     */
+    public void incrementVersion(int row) {
+        INT_SLOT.getAndAdd(versions[row >>> PAGE_SHIFT], row & PAGE_MASK, 1);
+    }
+
+    /**
+      Getter for the last known parts list position of a row. The position may be out of date after an earlier part was removed.
+      @param row the row number.
+      @return the position.
+     */
+    public int getPosition(int row) {
+        return positions[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    /**
+      Setter for the parts list position of a row.
+      @param row the row number.
+      @param position the position to set.
+     */
+    public void setPosition(int row, int position) {
+        positions[row >>> PAGE_SHIFT][row & PAGE_MASK] = position;
+    }
+
+    /**
+      Checks whether a page holds any live row, so scans can skip it.
+      @param page the page number.
+      @return true if the page has a live row.
+     */
+    private boolean hasLiveRows(int page) {
+        return pageLiveCounts[page] != 0;
+    }
+
+    /**
+      Runs an action for every live row, in row order. Pages with no live rows are skipped.
+      @param action the action to run with each live row number.
+     */
+    public void forEachLiveRow(IntConsumer action) {
+        int rows = rowCount();
+        for (int page = 0; (page << PAGE_SHIFT) < rows; page++) {
+            if (!hasLiveRows(page)) {
+                continue;
+            }
+            int end = Math.min(rows, (page + 1) << PAGE_SHIFT);
+            for (int row = page << PAGE_SHIFT; row < end; row++) {
+                if (isLive(row)) {
+                    action.accept(row);
+                }
+            }
+        }
+    }
+
+    /**
+      Sums the inventory value, stock times price, of the live rows. The sum is exact and runs over the column pages directly; the live
+      flag is multiplied in rather than branched on. Pages with no live rows are skipped.
+      @return the value in cents.
+     */
+    public long totalValueCents() {
+        int rows = rowCount();
+        long total = 0;
+        for (int page = 0; (page << PAGE_SHIFT) < rows; page++) {
+            if (!hasLiveRows(page)) {
+                continue;
+            }
+            byte[] livePage = live[page];
+            int[] stockPage = stocks[page];
+            long[] pricePage = prices[page];
+            int slots = Math.min(PAGE_SIZE, rows - (page << PAGE_SHIFT));
+            for (int slot = 0; slot < slots; slot++) {
+                total += livePage[slot] * (long) stockPage[slot] * pricePage[slot];
+            }
+        }
+        return total;
+    }
+
+    /**
+      Creates a spliterator over the live row numbers, for parallel streams over the store. Splits fall on page boundaries, so each part of a
+      split reads its own pages.
+      @return a spliterator over the rows that are live when they are reached.
+     */
+    public Spliterator.OfInt liveRows() {
+        return new LiveRowSpliterator(0, rowCount());
+    }
+
+    /**
+      Adds up the valuation of the live rows: the value of the InHouse rows, the value of the Outsourced rows, and the number of rows at or
+      below their minimum stock. The loop has no branches, so the JIT can compile it to vector instructions: the type codes are 1 and 2,
+      so the low bit marks InHouse rows and the high bit Outsourced rows, and the live flag and the minimum check are multiplied in. Pages
+      with no live rows are skipped.
+      @param totals receives the InHouse value in cents, the Outsourced value in cents and the at or below min count, added to what it holds.
+     */
+    public void addValuation(long[] totals) {
+        int rows = rowCount();
+        long inHouseValue = 0;
+        long outsourcedValue = 0;
+        long atOrBelowMin = 0;
+        for (int page = 0; (page << PAGE_SHIFT) < rows; page++) {
+            if (!hasLiveRows(page)) {
+                continue;
+            }
+            byte[] livePage = live[page];
+            byte[] typePage = types[page];
+            int[] stockPage = stocks[page];
+            int[] minPage = mins[page];
+            long[] pricePage = prices[page];
+            int slots = Math.min(PAGE_SIZE, rows - (page << PAGE_SHIFT));
+            for (int slot = 0; slot < slots; slot++) {
+                long value = livePage[slot] * (long) stockPage[slot] * pricePage[slot];
+                inHouseValue += value * (typePage[slot] & 1);
+                outsourcedValue += value * (typePage[slot] >>> 1);
+                atOrBelowMin += livePage[slot] & ~((minPage[slot] - stockPage[slot]) >>> 31);
+            }
+        }
+        totals[0] += inHouseValue;
+        totals[1] += outsourcedValue;
+        totals[2] += atOrBelowMin;
+    }
+
+    /**
+      Gets the name dictionary used by the store.
+      @return the dictionary.
+     */
+    public NameDictionary getNames() {
+        return names;
+    }
+
+    /**
+      Getter for the ID of a row.
+      @param row the row number.
+      @return the ID.
+     */
+    public int getId(int row) {
+        return ids[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    /**
+      Setter for the ID of a row.
+      @param row the row number.
+      @param id the ID to set.
+     */
+    public void setId(int row, int id) {
+        ids[row >>> PAGE_SHIFT][row & PAGE_MASK] = id;
+    }
+
+    /**
+      Getter for the inventory level of a row.
+      @param row the row number.
+      @return the inventory level.
+     */
+    public int getStock(int row) {
+        return stocks[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    /**
+      Setter for the inventory level of a row.
+      @param row the row number.
+      @param stock the inventory level to set.
+     */
+    public void setStock(int row, int stock) {
+        stocks[row >>> PAGE_SHIFT][row & PAGE_MASK] = stock;
+    }
+
+    /**
+      Reads the inventory level of a row with volatile semantics, so a change made by another thread is seen.
+      @param row the row number.
+      @return the inventory level.
+     */
+    public int getStockVolatile(int row) {
+        return (int) INT_SLOT.getVolatile(stocks[row >>> PAGE_SHIFT], row & PAGE_MASK);
+    }
+
+    /**
+      Atomically sets the inventory level of a row if it still holds the expected value.
+      @param row the row number.
+      @param expected the inventory level the row must hold.
+      @param stock the inventory level to set.
+      @return true if the level was set, false if another thread changed it first.
+     */
+    public boolean compareAndSetStock(int row, int expected, int stock) {
+        return INT_SLOT.compareAndSet(stocks[row >>> PAGE_SHIFT], row & PAGE_MASK, expected, stock);
+    }
+
+    /**
+      Getter for the minimum stock of a row.
+      @param row the row number.
+      @return the minimum stock.
+     */
+    public int getMin(int row) {
+        return mins[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    /**
+      Setter for the minimum stock of a row.
+      @param row the row number.
+      @param min the minimum stock to set.
+     */
+    public void setMin(int row, int min) {
+        mins[row >>> PAGE_SHIFT][row & PAGE_MASK] = min;
+    }
+
+    /**
+      Getter for the maximum stock of a row.
+      @param row the row number.
+      @return the maximum stock.
+     */
+    public int getMax(int row) {
+        return maxes[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    /**
+      Setter for the maximum stock of a row.
+      @param row the row number.
+      @param max the maximum stock to set.
+     */
+    public void setMax(int row, int max) {
+        maxes[row >>> PAGE_SHIFT][row & PAGE_MASK] = max;
+    }
+
+    /**
+      Getter for the price of a row.
+      @param row the row number.
+      @return the price.
+     */
+    public double getPrice(int row) {
+        return Price.toDouble(prices[row >>> PAGE_SHIFT][row & PAGE_MASK]);
+    }
+
+    /**
+      Setter for the price of a row, rounded to the nearest cent.
+      @param row the row number.
+      @param price the price to set.
+     */
+    public void setPrice(int row, double price) {
+        prices[row >>> PAGE_SHIFT][row & PAGE_MASK] = Price.ofDouble(price);
+    }
+
+    /**
+      Getter for the exact price of a row.
+      @param row the row number.
+      @return the price in cents.
+     */
+    public long getPriceCents(int row) {
+        return prices[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    /**
+      Setter for the exact price of a row.
+      @param row the row number.
+      @param priceCents the price to set, in cents.
+     */
+    public void setPriceCents(int row, long priceCents) {
+        prices[row >>> PAGE_SHIFT][row & PAGE_MASK] = priceCents;
+    }
+
+    /**
+      Getter for the part name of a row.
+      @param row the row number.
+      @return the part name.
+     */
+    public String getPartName(int row) {
+        return names.get(nameRefs[row >>> PAGE_SHIFT][row & PAGE_MASK]);
+    }
+
+    /**
+      Setter for the part name of a row.
+      @param row the row number.
+      @param partName the part name to set.
+     */
+    public void setPartName(int row, String partName) {
+        int oldRef = nameRefs[row >>> PAGE_SHIFT][row & PAGE_MASK];
+        nameRefs[row >>> PAGE_SHIFT][row & PAGE_MASK] = names.intern(partName);
+        names.release(oldRef);
+    }
+
+    /**
+      Getter for the row type of a row.
+      @param row the row number.
+      @return the row type.
+     */
+    public byte getType(int row) {
+        return types[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    /**
+      Setter for the row type of a row.
+      @param row the row number.
+      @param type the row type to set.
+     */
+    public void setType(int row, byte type) {
+        types[row >>> PAGE_SHIFT][row & PAGE_MASK] = type;
+    }
+
+    /**
+      Getter for the dictionary reference of a row's part name.
+      @param row the row number.
+      @return the name reference.
+     */
+    public int getPartNameRef(int row) {
+        return nameRefs[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    /**
+      Getter for the dictionary reference of a row's company name.
+      @param row the row number.
+      @return the company name reference, or NO_NAME for InHouse parts.
+     */
+    public int getCompanyNameRef(int row) {
+        return companyRefs[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    /**
+      Getter for the machine ID of a row.
+      @param row the row number.
+      @return the machine ID.
+     */
+    public int getMachineId(int row) {
+        return machineIds[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    /**
+      Setter for the machine ID of a row.
+      @param row the row number.
+      @param machineId the machine ID to set.
+     */
+    public void setMachineId(int row, int machineId) {
+        machineIds[row >>> PAGE_SHIFT][row & PAGE_MASK] = machineId;
+    }
+
+    /**
+      Getter for the company name of a row.
+      @param row the row number.
+      @return the company name.
+     */
+    public String getCompanyName(int row) {
+        return names.get(companyRefs[row >>> PAGE_SHIFT][row & PAGE_MASK]);
+    }
+
+    /**
+      Setter for the company name of a row.
+      @param row the row number.
+      @param companyName the company name to set.
+     */
+    public void setCompanyName(int row, String companyName) {
+        int oldRef = companyRefs[row >>> PAGE_SHIFT][row & PAGE_MASK];
+        companyRefs[row >>> PAGE_SHIFT][row & PAGE_MASK] = names.intern(companyName);
+        names.release(oldRef);
+    }
+
+    /**
+      Spliterator over a range of rows that skips rows that are not live.
+     */
+    private final class LiveRowSpliterator implements Spliterator.OfInt {
+
+        private int row;
+        private final int end;
+
+        LiveRowSpliterator(int row, int end) {
+            this.row = row;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            while (row < end) {
+                int current = row++;
+                if (isLive(current)) {
+                    action.accept(current);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            for (; row < end; row++) {
+                if ((row & PAGE_MASK) == 0 && !hasLiveRows(row >>> PAGE_SHIFT)) {
+                    row += PAGE_MASK;
+                } else if (isLive(row)) {
+                    action.accept(row);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int middle = ((row + end) >>> 1) & ~PAGE_MASK;
+            if (middle <= row) {
+                return null;
+            }
+            Spliterator.OfInt prefix = new LiveRowSpliterator(row, middle);
+            row = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - row;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL;
+        }
+    }
+}
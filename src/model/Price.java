@@ -0,0 +1,112 @@
+package model;
+
+/**
+  Fixed point prices. A price is a long holding a whole number of cents, so sums of prices are exact and run on primitive longs.
+  The methods work on the long values directly, so no price objects are created.
+  @author Nicholas Johnson
+ */
+public final class Price {
+
+    /**
+      Number of cents in one dollar.
+     */
+    public static final long CENTS_PER_UNIT = 100;
+
+    private Price() {
+    }
+
+    /**
+      Parses a price such as "12", "12.5", "$12.50" or "-0.99" without creating intermediate objects. Leading and trailing spaces are
+      skipped. Digits past the cents are rounded half up.
+      @param text the price text.
+      @return the price in cents.
+      @throws NumberFormatException if the text is not a price or the price does not fit in a long.
+     */
+    public static long parse(CharSequence text) {
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        int i = 0;
+        while (i < end && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        if (i < end && text.charAt(i) == '$') {
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            units = addDigit(units, text.charAt(i++), text);
+            digits++;
+        }
+        long cents = 0;
+        if (i < end && text.charAt(i) == '.') {
+            i++;
+            int fractionDigits = 0;
+            while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                char c = text.charAt(i++);
+                if (fractionDigits < 2) {
+                    cents = cents * 10 + (c - '0');
+                } else if (fractionDigits == 2 && c >= '5') {
+                    cents++;
+                }
+                fractionDigits++;
+                digits++;
+            }
+            if (fractionDigits == 1) {
+                cents *= 10;
+            }
+        }
+        if (digits == 0 || i != end) {
+            throw new NumberFormatException("Invalid price \"" + text + "\"");
+        }
+        try {
+            long value = Math.addExact(Math.multiplyExact(units, CENTS_PER_UNIT), cents);
+            return negative ? -value : value;
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Price out of range \"" + text + "\"");
+        }
+    }
+
+    /**
+      Converts a price in dollars to cents, rounding to the nearest cent.
+      @param price the price in dollars.
+      @return the price in cents.
+     */
+    public static long ofDouble(double price) {
+        return Math.round(price * CENTS_PER_UNIT);
+    }
+
+    /**
+      Converts a price in cents to dollars. Exact for any price up to about 90 trillion dollars.
+      @param cents the price in cents.
+      @return the price in dollars.
+     */
+    public static double toDouble(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+      Formats a price with two decimals, for example 1250 as "12.50".
+      @param cents the price in cents.
+      @return the formatted price.
+     */
+    public static String format(long cents) {
+        long units = Math.abs(cents / CENTS_PER_UNIT);
+        long fraction = Math.abs(cents % CENTS_PER_UNIT);
+        return (cents < 0 ? "-" : "") + units + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    private static long addDigit(long units, char digit, CharSequence text) {
+        if (units > (Long.MAX_VALUE - 9) / 10) {
+            throw new NumberFormatException("Price out of range \"" + text + "\"");
+        }
+        return units * 10 + (digit - '0');
+    }
+}
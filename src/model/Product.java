@@ -3,12 +3,40 @@ package model;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
   Models a product that may contain associated parts. Associated parts are not rrequired and must be removed before a product can be deleted.
   @author Nicholas Johnson
  */
 public class Product {
 
+    /**
+      Dictionary holding product names. Products share the part store dictionary, so names common to parts and products are kept once.
+     */
+    private static final NameDictionary names = Inventory.getPartStore().getNames();
+
+    /**
+      Atomic access to the stock field. Used for stock adjustments that do not take a lock.
+     */
+    private static final VarHandle STOCK;
+
+    /**
+      Atomic access to the version field. The version is bumped by stock adjustments that do not take the write lock.
+     */
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            STOCK = MethodHandles.lookup().findVarHandle(Product.class, "stock", int.class);
+            VERSION = MethodHandles.lookup().findVarHandle(Product.class, "version", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+
     /**
       list of parts associated with the product. This list will appear empty if there are no associated parts with the product.
      */
@@ -18,13 +46,14 @@ public class Product {
      */
     private int id;
     /**
-      Name of Product. This can be used as well as the product ID to search for various products.
+      Name of Product, as a reference into the name dictionary. This can be used as well as the product ID to search for various products.
+      Held in its own object, so the reference can be released after the product is garbage collected.
      */
-    private String productName;
+    private final NameHolder name;
     /**
-      Price of product. Currently represented in USD.
+      Price of product in cents. Currently represented in USD.
      */
-    private double price;
+    private long priceCents;
     /**
       Inventory level of product. Checks exist to ensure valid entries are used during program execution.
      */
@@ -37,6 +66,20 @@ public class Product {
       Maximum number of products for inventory. This is the maximum number of products the retailer wants on hand at a given time.
      */
     private int max;
+    /**
+      Cached cost of the associated parts in cents, the sum of their prices. Kept up to date as parts are added or removed and when an associated
+      part's price changes, so costing reports do not walk the associated parts again.
+     */
+    private volatile long partsCostCents;
+    /**
+      Version stamp of the product. Each product that replaces another with the same ID gets the replaced product's version plus one,
+      and each change made in place to the stock, limits or price of a product in the Inventory adds one.
+     */
+    private int version;
+    /**
+      Position where the Inventory last saw the product in the products list.
+     */
+    private int listPosition;
 
     /**
       Constructor for new product object. The project can have associated parts but they are not required.
@@ -49,10 +92,26 @@ public class Product {
       @param max         Maximum number of products for inventory.
      */
     public Product(int id, String productName, double price, int stock, int min, int max) {
+        this(id, productName, Price.ofDouble(price), stock, min, max);
+    }
+
+    /**
+      Constructor for a product with an exact price. An int price argument selects this constructor, so a price in whole dollars given to
+      the other constructor must be written as a double.
+
+      @param id          Product ID.
+      @param productName Product's name.
+      @param priceCents  Product price in cents.
+      @param stock       Inventory level of product.
+      @param min         Minimum number of products for inventory.
+      @param max         Maximum number of products for inventory.
+     */
+    public Product(int id, String productName, long priceCents, int stock, int min, int max) {
         this.associatedParts = FXCollections.observableArrayList();
         this.id = id;
-        this.productName = productName;
-        this.price = price;
+        this.name = new NameHolder(names.intern(productName));
+        Inventory.getPartStore().onCollected(this, name);
+        this.priceCents = priceCents;
         this.stock = stock;
         this.min = min;
         this.max = max;
@@ -64,16 +123,21 @@ public class Product {
       @return Product name.
      */
     public String getProductName() {
-        return productName;
+        return names.get(name.ref);
     }
 
     /**
       Setter for product name. Products can also be identified by unique ID if the product names become too similar.
+      The Inventory name index is updated.
 
       @param productName the name of the product.
      */
     public void setProductName(String productName) {
-        this.productName = productName;
+        String oldName = getProductName();
+        int oldRef = name.ref;
+        name.ref = names.intern(productName);
+        names.release(oldRef);
+        Inventory.productNameChanged(this, oldName);
     }
 
     /**
@@ -82,7 +146,16 @@ public class Product {
       @return price of the product.
      */
     public double getPrice() {
-        return price;
+        return Price.toDouble(priceCents);
+    }
+
+    /**
+      Getter for the exact price of the product.
+
+      @return price of the product in cents.
+     */
+    public long getPriceCents() {
+        return priceCents;
     }
 
     /**
@@ -91,7 +164,17 @@ public class Product {
       @param price price of product.
      */
     public void setPrice(double price) {
-        this.price = price;
+        setPriceCents(Price.ofDouble(price));
+    }
+
+    /**
+      Setter for the exact price of the product.
+
+      @param priceCents price of product in cents.
+     */
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
+        Inventory.productPriceChanged(this);
     }
 
     /**
@@ -110,6 +193,25 @@ public class Product {
      */
     public void setStock(int stock) {
         this.stock = stock;
+        Inventory.productStockChanged(this);
+    }
+
+    /**
+      Reads the inventory level with volatile semantics, so a change made by another thread is seen.
+      @return product inventory level.
+     */
+    int getStockVolatile() {
+        return (int) STOCK.getVolatile(this);
+    }
+
+    /**
+      Atomically sets the inventory level if it still holds the expected value.
+      @param expected the inventory level the product must hold.
+      @param stock the inventory level to set.
+      @return true if the level was set, false if another thread changed it first.
+     */
+    boolean compareAndSetStock(int expected, int stock) {
+        return STOCK.compareAndSet(this, expected, stock);
     }
 
     /**
@@ -128,6 +230,7 @@ public class Product {
      */
     public void setMin(int min) {
         this.min = min;
+        Inventory.productStockChanged(this);
     }
 
     /**
@@ -146,6 +249,7 @@ public class Product {
      */
     public void setMax(int max) {
         this.max = max;
+        Inventory.productStockChanged(this);
     }
 
     /**
@@ -157,6 +261,59 @@ public class Product {
         return id;
     }
 
+    /**
+      Getter for the name dictionary reference of the product name. Used by snapshots to write each name once.
+
+      @return the name reference.
+     */
+    int getNameRef() {
+        return name.ref;
+    }
+
+    /**
+      Getter for the version stamp of the product. An editor can compare it with the current product to tell whether the product it
+      loaded was replaced in the meantime.
+
+      @return the version.
+     */
+    public int getVersion() {
+        return (int) VERSION.getVolatile(this);
+    }
+
+    /**
+      Setter for the version stamp. Set by the Inventory when the product replaces another.
+
+      @param version the version.
+     */
+    void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+      Atomically adds one to the version stamp. Called by the Inventory when the product is changed in place.
+     */
+    void incrementVersion() {
+        VERSION.getAndAdd(this, 1);
+    }
+
+    /**
+      Getter for the last known products list position. May be out of date after an earlier product was removed.
+
+      @return the position.
+     */
+    int getListPosition() {
+        return listPosition;
+    }
+
+    /**
+      Setter for the products list position.
+
+      @param listPosition the position.
+     */
+    void setListPosition(int listPosition) {
+        this.listPosition = listPosition;
+    }
+
     /**
       Setter for the product ID. Product ID numbers increment by 1 for each new product and start at 10000
 
@@ -168,11 +325,19 @@ public class Product {
 
     /**
       Adds part from all parts to associated parts list for the product. A product does not need associated parts to be saved.
+      If the product is in the Inventory, the Inventory where-used index is updated. A part whose row the Inventory freed is added as a copy.
 
       @param part the part to add.
      */
     public void addAssociatedPart(Part part) {
-        associatedParts.add(part);
+        if (part.isFreed()) {
+            part = part.copy();
+        }
+        synchronized (this) {
+            associatedParts.add(part);
+            partsCostCents += part.getPriceCents();
+        }
+        Inventory.associatedPartAdded(this, part);
     }
 
     /**
@@ -186,16 +351,95 @@ public class Product {
 
     /**
       Delete a part from the products associated parts list. Removes the part from the associated parts list for a given product. All such parts must be removed for a product to be deleted.
+      If the product is in the Inventory, the Inventory where-used index is updated.
 
       @param selectedAssocPart part to delete.
       @return a boolean indicator for the status of the delete.
      */
     public boolean deleteAssociatedPart(Part selectedAssocPart) {
         try {
-            associatedParts.remove(selectedAssocPart);
+            boolean removed;
+            synchronized (this) {
+                removed = associatedParts.remove(selectedAssocPart);
+                if (removed) {
+                    updatePartsCost();
+                }
+            }
+            if (removed) {
+                Inventory.associatedPartRemoved(this, selectedAssocPart);
+            }
         } catch (Exception e) {
             return false;
         }
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+      Gets the cost of the associated parts. A part listed more than once is counted each time it is listed.
+      @return the summed price of the associated parts.
+     */
+    public double getPartsCost() {
+        return Price.toDouble(partsCostCents);
+    }
+
+    /**
+      Gets the exact cost of the associated parts.
+      @return the summed price of the associated parts in cents.
+     */
+    public long getPartsCostCents() {
+        return partsCostCents;
+    }
+
+    /**
+      Gets the margin of the product, its price less the cost of its associated parts.
+      @return the margin.
+     */
+    public double getMargin() {
+        return Price.toDouble(getMarginCents());
+    }
+
+    /**
+      Gets the exact margin of the product.
+      @return the price less the parts cost, in cents.
+     */
+    public long getMarginCents() {
+        return priceCents - partsCostCents;
+    }
+
+    /**
+      Gets the margin as a percentage of the product price.
+      @return the margin percentage, or 0 if the product has no price.
+     */
+    public double getMarginPercent() {
+        long productPrice = priceCents;
+        return productPrice == 0 ? 0 : (productPrice - partsCostCents) * 100.0 / productPrice;
+    }
+
+    /**
+      Recalculates the cached cost of the associated parts. Called when a part is removed and when the price of an associated part changes.
+     */
+    synchronized void updatePartsCost() {
+        long cost = 0;
+        for (Part part : associatedParts) {
+            cost += part.getPriceCents();
+        }
+        partsCostCents = cost;
+    }
+
+    /**
+      Name dictionary reference of a product. Releases the reference when run, which happens once the product is garbage collected.
+     */
+    private static final class NameHolder implements Runnable {
+
+        volatile int ref;
+
+        NameHolder(int ref) {
+            this.ref = ref;
+        }
+
+        @Override
+        public void run() {
+            names.release(ref);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package model;
+
+/**
+  Listener told when a part or product crosses its reorder point, the point where its inventory level falls to its minimum stock.
+  @author Nicholas Johnson
+ */
+@FunctionalInterface
+public interface ReorderListener {
+
+    /**
+      Called when an item's inventory level reaches or falls below its minimum, or rises back above it. Called on the thread that changed
+      the stock and never while the Inventory lock is held, so a listener updating the table views should use Platform.runLater.
+      @param id the ID of the part or product.
+      @param atOrBelowMin true if the item is now at or below its minimum, false if it has risen above it.
+     */
+    void reorderPointCrossed(int id, boolean atOrBelowMin);
+}
@@ -0,0 +1,232 @@
+package model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+  Set of int IDs that can be walked in ascending order from any ID. Used by the Inventory to page through parts and products by ID.
+
+  IDs are kept as bits in pages of 4096, and the pages are kept in a tree map by page number. Part and product IDs are mostly
+  sequential, so a page holds thousands of IDs in 512 bytes. Adding or removing an ID costs O(log p) for p pages, and reading the next
+  m IDs from a starting ID costs O(log p + m) for densely numbered IDs. Each page counts its IDs, so the IDs at a position in ID order
+  are found by skipping whole pages, which the paged table lists use to read the rows the user scrolls to.
+  @author Nicholas Johnson
+ */
+public class SortedIdSet {
+
+    /**
+      Bits in a page, as a shift.
+     */
+    private static final int PAGE_SHIFT = 12;
+
+    /**
+      Mask of the position of an ID within its page.
+     */
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+    /**
+      Pages by page number, the ID shifted right by PAGE_SHIFT.
+     */
+    private final TreeMap<Integer, Page> pages = new TreeMap<>();
+
+    /**
+      Number of IDs in the set.
+     */
+    private int size;
+
+    /**
+      Adds an ID.
+      @param id the ID to add.
+      @return true if the ID was not already in the set.
+     */
+    public boolean add(int id) {
+        Page page = pages.computeIfAbsent(id >> PAGE_SHIFT, pageNumber -> new Page());
+        int word = (id & PAGE_MASK) >>> 6;
+        long bit = 1L << id;
+        if ((page.bits[word] & bit) != 0) {
+            return false;
+        }
+        page.bits[word] |= bit;
+        page.count++;
+        size++;
+        return true;
+    }
+
+    /**
+      Removes an ID. A page left empty is dropped.
+      @param id the ID to remove.
+      @return true if the ID was in the set.
+     */
+    public boolean remove(int id) {
+        Page page = pages.get(id >> PAGE_SHIFT);
+        int word = (id & PAGE_MASK) >>> 6;
+        long bit = 1L << id;
+        if (page == null || (page.bits[word] & bit) == 0) {
+            return false;
+        }
+        page.bits[word] &= ~bit;
+        size--;
+        if (--page.count == 0) {
+            pages.remove(id >> PAGE_SHIFT);
+        }
+        return true;
+    }
+
+    /**
+      Checks whether an ID is in the set.
+      @param id the ID to look for.
+      @return true if the ID is in the set.
+     */
+    public boolean contains(int id) {
+        Page page = pages.get(id >> PAGE_SHIFT);
+        return page != null && (page.bits[(id & PAGE_MASK) >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+      Gets the number of IDs in the set.
+      @return the ID count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+      Removes every ID.
+     */
+    public void clear() {
+        pages.clear();
+        size = 0;
+    }
+
+    /**
+      Gets the position an ID has, or would have, in ascending ID order: the number of IDs in the set below it. Whole pages before the ID
+      are counted by their counts.
+      @param id the ID.
+      @return the number of IDs below the ID.
+     */
+    public int rank(int id) {
+        int pageNumber = id >> PAGE_SHIFT;
+        int rank = 0;
+        for (Page page : pages.headMap(pageNumber, false).values()) {
+            rank += page.count;
+        }
+        Page page = pages.get(pageNumber);
+        if (page != null) {
+            int word = (id & PAGE_MASK) >>> 6;
+            for (int i = 0; i < word; i++) {
+                rank += Long.bitCount(page.bits[i]);
+            }
+            rank += Long.bitCount(page.bits[word] & ((1L << id) - 1));
+        }
+        return rank;
+    }
+
+    /**
+      Copies the IDs at or after a starting ID into a buffer, in ascending order, until the buffer is full or the set runs out.
+      @param from the lowest ID to copy. A long, so the ID after Integer.MAX_VALUE can be passed to continue a walk.
+      @param buffer receives the IDs.
+      @return the number of IDs copied; 0 when no ID is at or after the start.
+     */
+    public int idsFrom(long from, int[] buffer) {
+        if (from > Integer.MAX_VALUE || buffer.length == 0) {
+            return 0;
+        }
+        int start = (int) Math.max(from, Integer.MIN_VALUE);
+        int startPage = start >> PAGE_SHIFT;
+        int count = 0;
+        for (Map.Entry<Integer, Page> entry : pages.tailMap(startPage, true).entrySet()) {
+            int firstBit = entry.getKey() == startPage ? start & PAGE_MASK : 0;
+            count = copyIds(entry.getKey(), entry.getValue(), firstBit, buffer, count);
+            if (count == buffer.length) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+      Copies the IDs from a position in ascending ID order into a buffer, until the buffer is full or the set runs out. Whole pages before
+      the position are skipped by their counts, so only the bits of the page holding the position are scanned.
+      @param position the position of the first ID to copy; 0 is the lowest ID.
+      @param buffer receives the IDs.
+      @return the number of IDs copied; 0 when the position is at or past the end.
+     */
+    public int idsAt(int position, int[] buffer) {
+        if (position < 0 || position >= size || buffer.length == 0) {
+            return 0;
+        }
+        int skip = position;
+        int count = 0;
+        for (Map.Entry<Integer, Page> entry : pages.entrySet()) {
+            Page page = entry.getValue();
+            if (count == 0 && skip >= page.count) {
+                skip -= page.count;
+                continue;
+            }
+            int firstBit = 0;
+            if (count == 0) {
+                firstBit = bitAt(page, skip);
+            }
+            count = copyIds(entry.getKey(), page, firstBit, buffer, count);
+            if (count == buffer.length) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+      Finds the bit of the nth ID in a page.
+      @param page the page.
+      @param n the number of IDs in the page before the wanted one.
+      @return the bit position in the page.
+     */
+    private static int bitAt(Page page, int n) {
+        for (int word = 0; ; word++) {
+            long bits = page.bits[word];
+            int inWord = Long.bitCount(bits);
+            if (n < inWord) {
+                for (int i = 0; i < n; i++) {
+                    bits &= bits - 1;
+                }
+                return (word << 6) | Long.numberOfTrailingZeros(bits);
+            }
+            n -= inWord;
+        }
+    }
+
+    /**
+      Copies the IDs of a page from a bit onwards into a buffer, stopping when the buffer is full.
+      @param pageNumber the page number.
+      @param page the page.
+      @param firstBit the first bit to copy.
+      @param buffer receives the IDs.
+      @param count the number of IDs already in the buffer.
+      @return the number of IDs in the buffer afterwards.
+     */
+    private static int copyIds(int pageNumber, Page page, int firstBit, int[] buffer, int count) {
+        for (int word = firstBit >>> 6; word < page.bits.length; word++) {
+            long bits = page.bits[word];
+            if (word == firstBit >>> 6) {
+                bits &= -1L << firstBit;
+            }
+            while (bits != 0) {
+                buffer[count++] = (pageNumber << PAGE_SHIFT) | (word << 6) | Long.numberOfTrailingZeros(bits);
+                if (count == buffer.length) {
+                    return count;
+                }
+                bits &= bits - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+      Bits of 4096 consecutive IDs and how many of them are set.
+     */
+    private static final class Page {
+
+        private final long[] bits = new long[(PAGE_MASK + 1) >>> 6];
+        private int count;
+    }
+}
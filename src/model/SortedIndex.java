@@ -0,0 +1,133 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+  Ordered index of part or product IDs by a key such as price, inventory level or headroom. IDs are kept in a tree map from key to the
+  IDs with that key, and the current key of each ID is kept so an update can find the old entry. Updates cost O(log n), and a range
+  scan costs O(log n + k) for k results, returned in key order.
+  @author Nicholas Johnson
+ */
+public class SortedIndex {
+
+    /**
+      IDs by key.
+     */
+    private final TreeMap<Long, IntHashSet> idsByKey = new TreeMap<>();
+
+    /**
+      Current key of each indexed ID, in a one element array so it can be changed in place.
+     */
+    private final IdIndex<long[]> keysById = new IdIndex<>();
+
+    /**
+      Indexes an ID under a key, moving it if it was indexed under another key.
+      @param id the item ID.
+      @param key the current key of the item.
+     */
+    public synchronized void update(int id, long key) {
+        long[] currentKey = keysById.get(id);
+        if (currentKey == null) {
+            keysById.put(id, new long[] {key});
+        } else if (currentKey[0] == key) {
+            return;
+        } else {
+            removeEntry(id, currentKey[0]);
+            currentKey[0] = key;
+        }
+        idsByKey.computeIfAbsent(key, k -> new IntHashSet()).add(id);
+    }
+
+    /**
+      Removes an ID from the index.
+      @param id the item ID.
+     */
+    public synchronized void remove(int id) {
+        long[] currentKey = keysById.remove(id);
+        if (currentKey != null) {
+            removeEntry(id, currentKey[0]);
+        }
+    }
+
+    /**
+      Removes every ID.
+     */
+    public synchronized void clear() {
+        idsByKey.clear();
+        keysById.clear();
+    }
+
+    /**
+      Gets the number of indexed IDs.
+      @return the ID count.
+     */
+    public synchronized int size() {
+        return keysById.size();
+    }
+
+    /**
+      Gets the IDs whose key is within a range, in key order. IDs with the same key are in ascending ID order.
+      @param low lowest key to include.
+      @param high highest key to include.
+      @param descending true for the highest key first.
+      @return the IDs.
+     */
+    public int[] idsBetween(long low, long high, boolean descending) {
+        return idsBetween(low, high, descending, Integer.MAX_VALUE);
+    }
+
+    /**
+      Gets the first IDs whose key is within a range, in key order, stopping after a number of IDs.
+      @param low lowest key to include.
+      @param high highest key to include.
+      @param descending true for the highest key first.
+      @param limit most IDs to return.
+      @return the IDs.
+     */
+    public synchronized int[] idsBetween(long low, long high, boolean descending, int limit) {
+        if (low > high || limit <= 0) {
+            return new int[0];
+        }
+        NavigableMap<Long, IntHashSet> range = idsByKey.subMap(low, true, high, true);
+        if (descending) {
+            range = range.descendingMap();
+        }
+        int count = 0;
+        for (IntHashSet ids : range.values()) {
+            count += ids.size();
+            if (count >= limit) {
+                count = limit;
+                break;
+            }
+        }
+        int[] found = new int[count];
+        int next = 0;
+        for (Map.Entry<Long, IntHashSet> entry : range.entrySet()) {
+            if (next == count) {
+                break;
+            }
+            int[] ids = entry.getValue().toArray();
+            Arrays.sort(ids);
+            int taken = Math.min(ids.length, count - next);
+            if (descending) {
+                for (int i = ids.length - 1; i >= ids.length - taken; i--) {
+                    found[next++] = ids[i];
+                }
+            } else {
+                System.arraycopy(ids, 0, found, next, taken);
+                next += taken;
+            }
+        }
+        return found;
+    }
+
+    private void removeEntry(int id, long key) {
+        IntHashSet ids = idsByKey.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            idsByKey.remove(key);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+  Index of parts or products grouped by headroom, their inventory level less their minimum stock. Items are kept in a bucket queue:
+  bucket 0 holds every item at or below its minimum, buckets 1 to 62 hold the items with exactly that much headroom, and the last bucket
+  holds everything with more. Finding the items that need reordering reads one bucket instead of scanning the whole Inventory.
+
+  Listeners are told when an item enters or leaves bucket 0. Crossings are queued while the index is updated and delivered by
+  publishCrossings, so the Inventory can deliver them after it releases its lock.
+  @author Nicholas Johnson
+ */
+public class StockLevelIndex {
+
+    /**
+      Number of buckets. Headroom of this value less one or more shares the last bucket.
+     */
+    public static final int BUCKET_COUNT = 64;
+
+    /**
+      Item IDs by bucket.
+     */
+    private final IntHashSet[] buckets = new IntHashSet[BUCKET_COUNT];
+
+    /**
+      Bucket of each indexed item. Bucket numbers are small, so the boxed values come from the Integer cache.
+     */
+    private final IdIndex<Integer> bucketOf = new IdIndex<>();
+
+    /**
+      Listeners told about reorder point crossings.
+     */
+    private final List<ReorderListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+      Crossings waiting to be delivered. Each entry holds the item ID and 1 if the item is at or below its minimum, else 0.
+     */
+    private final ConcurrentLinkedQueue<int[]> crossings = new ConcurrentLinkedQueue<>();
+
+    /**
+      Constructor for an empty index.
+     */
+    public StockLevelIndex() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new IntHashSet();
+        }
+    }
+
+    /**
+      Adds an item or moves it to the bucket for its new headroom. A crossing is queued if the item enters or leaves bucket 0,
+      or is added already at or below its minimum.
+      @param id the ID of the item.
+      @param headroom the inventory level less the minimum stock.
+     */
+    public synchronized void update(int id, long headroom) {
+        int bucket = bucketFor(headroom);
+        Integer oldBucket = bucketOf.put(id, bucket);
+        if (oldBucket != null) {
+            if (oldBucket == bucket) {
+                return;
+            }
+            buckets[oldBucket].remove(id);
+        }
+        buckets[bucket].add(id);
+        if (oldBucket == null ? bucket == 0 : (oldBucket == 0) != (bucket == 0)) {
+            crossings.add(new int[]{id, bucket == 0 ? 1 : 0});
+        }
+    }
+
+    /**
+      Removes an item, for example when it leaves the Inventory. No crossing is queued.
+      @param id the ID of the item.
+     */
+    public synchronized void remove(int id) {
+        Integer bucket = bucketOf.remove(id);
+        if (bucket != null) {
+            buckets[bucket].remove(id);
+        }
+    }
+
+    /**
+      Removes every item.
+     */
+    public synchronized void clear() {
+        for (IntHashSet bucket : buckets) {
+            bucket.clear();
+        }
+        bucketOf.clear();
+    }
+
+    /**
+      Gets the items whose headroom may be at most a given value. Every item within the headroom is returned, but items in the last bucket
+      may have more, so callers asking for BUCKET_COUNT - 1 or more must check each item.
+      @param headroom the largest headroom to include, 0 for the items at or below their minimum.
+      @return the item IDs in ascending order.
+     */
+    public synchronized int[] idsWithin(int headroom) {
+        int lastBucket = bucketFor(headroom);
+        int count = 0;
+        for (int i = 0; i <= lastBucket; i++) {
+            count += buckets[i].size();
+        }
+        int[] ids = new int[count];
+        int[] next = {0};
+        for (int i = 0; i <= lastBucket; i++) {
+            buckets[i].forEach(id -> ids[next[0]++] = id);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+      Gets the number of items at or below their minimum.
+      @return the item count.
+     */
+    public synchronized int countAtOrBelowMin() {
+        return buckets[0].size();
+    }
+
+    /**
+      Adds a listener told about reorder point crossings.
+      @param listener the listener to add.
+     */
+    public void addListener(ReorderListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+      Removes a listener.
+      @param listener the listener to remove.
+     */
+    public void removeListener(ReorderListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+      Delivers the queued crossings to the listeners, in the order they were queued. Must not be called while holding the Inventory lock.
+     */
+    public void publishCrossings() {
+        int[] crossing;
+        while ((crossing = crossings.poll()) != null) {
+            for (ReorderListener listener : listeners) {
+                listener.reorderPointCrossed(crossing[0], crossing[1] == 1);
+            }
+        }
+    }
+
+    /**
+      Gets the bucket for a headroom.
+      @param headroom the inventory level less the minimum stock.
+      @return the bucket number.
+     */
+    private static int bucketFor(long headroom) {
+        return (int) Math.max(0, Math.min(BUCKET_COUNT - 1, headroom));
+    }
+}
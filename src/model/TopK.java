@@ -0,0 +1,144 @@
+package model;
+
+/**
+  Bounded heap that keeps the k highest ranked of a stream of IDs, each offered with a long key. Items rank by key, highest first, and
+  items with the same key by ID, lowest first. The heap holds at most k entries in primitive arrays with the lowest ranked at the root,
+  so an offer that does not make the top k is one comparison and one that does costs O(log k). Finding the top k of n items is
+  O(n log k) instead of the O(n log n) of sorting them all.
+  @author Nicholas Johnson
+ */
+public final class TopK {
+
+    /**
+      Key for an item that should not be ranked. Offers with this key are ignored.
+     */
+    public static final long ABSENT = Long.MIN_VALUE;
+
+    private final int limit;
+    private final long[] keys;
+    private final int[] ids;
+    private int size;
+
+    /**
+      Constructor for an empty heap.
+      @param limit number of items to keep.
+      @throws IllegalArgumentException if the limit is negative.
+     */
+    public TopK(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Negative top-K limit " + limit);
+        }
+        this.limit = limit;
+        this.keys = new long[limit];
+        this.ids = new int[limit];
+    }
+
+    /**
+      Offers an item. It is kept if fewer than limit items are held or it ranks above the lowest held item, which is then dropped.
+      @param key the key of the item, or ABSENT to skip it.
+      @param id the item ID.
+     */
+    public void offer(long key, int id) {
+        if (key == ABSENT || limit == 0) {
+            return;
+        }
+        if (size < limit) {
+            int slot = size++;
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (!ranksBelow(key, id, keys[parent], ids[parent])) {
+                    break;
+                }
+                keys[slot] = keys[parent];
+                ids[slot] = ids[parent];
+                slot = parent;
+            }
+            keys[slot] = key;
+            ids[slot] = id;
+        } else if (ranksBelow(keys[0], ids[0], key, id)) {
+            siftDown(key, id, size);
+        }
+    }
+
+    /**
+      Gets the number of items held.
+      @return the item count, at most the limit.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+      Gets the number of items the heap keeps.
+      @return the limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+      Empties the heap into arrays in rank order, highest first.
+      @param keysOut receives the keys; at least size() long.
+      @param idsOut receives the IDs; at least size() long.
+      @return the number of items written.
+     */
+    public int drain(long[] keysOut, int[] idsOut) {
+        int count = size;
+        while (size > 0) {
+            int last = --size;
+            keysOut[last] = keys[0];
+            idsOut[last] = ids[0];
+            if (last > 0) {
+                siftDown(keys[last], ids[last], last);
+            }
+        }
+        return count;
+    }
+
+    /**
+      Empties the heap into an array of IDs in rank order, highest first.
+      @return the IDs.
+     */
+    public int[] drainIds() {
+        long[] keysOut = new long[size];
+        int[] idsOut = new int[size];
+        drain(keysOut, idsOut);
+        return idsOut;
+    }
+
+    /**
+      Checks whether one item ranks below another: a lower key, or the same key and a higher ID.
+      @param key key of the first item.
+      @param id ID of the first item.
+      @param otherKey key of the second item.
+      @param otherId ID of the second item.
+      @return true if the first item ranks below the second.
+     */
+    static boolean ranksBelow(long key, int id, long otherKey, int otherId) {
+        return key < otherKey || (key == otherKey && id > otherId);
+    }
+
+    /**
+      Places an item at the root and moves it down to its place among the first count entries.
+     */
+    private void siftDown(long key, int id, int count) {
+        int slot = 0;
+        while (true) {
+            int child = (slot << 1) + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && ranksBelow(keys[child + 1], ids[child + 1], keys[child], ids[child])) {
+                child++;
+            }
+            if (!ranksBelow(keys[child], ids[child], key, id)) {
+                break;
+            }
+            keys[slot] = keys[child];
+            ids[slot] = ids[child];
+            slot = child;
+        }
+        keys[slot] = key;
+        ids[slot] = id;
+    }
+}
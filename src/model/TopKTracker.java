@@ -0,0 +1,162 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+  Keeps the top k parts or products by some key current as the Inventory changes, for dashboards that show a ranking all the time.
+  The tracker follows the change feed and only looks again at the items that changed, instead of ranking the whole Inventory again.
+
+  It holds a buffer of up to twice k of the highest ranked items, sorted, and a floor: every item outside the buffer ranks at or below the
+  floor. A changed item is dropped from the buffer, and put back if it still ranks above the floor; when the buffer overflows its lowest
+  item is dropped and becomes the new floor. Only when so many buffered items fall below the floor that fewer than k are left, or the
+  feed was reset or overrun, is the ranking computed again from scratch. A tracker is used by one thread at a time.
+  @param <T> Part or Product.
+  @author Nicholas Johnson
+ */
+public final class TopKTracker<T> {
+
+    private final byte entity;
+    private final int k;
+    private final int capacity;
+    private final IntToLongFunction key;
+    private final IntFunction<T> resolver;
+    private final Consumer<TopK> ranker;
+    private final ChangeFeed.Reader reader;
+    private final ChangeFeed.Handler handler = this::onChange;
+
+    /**
+      Buffered items in rank order, highest first.
+     */
+    private final long[] keys;
+    private final int[] ids;
+    private int size;
+
+    /**
+      Lowest rank an item outside the buffer may have; ABSENT when every ranked item is in the buffer.
+     */
+    private long floorKey;
+    private int floorId;
+
+    private boolean stale;
+    private long lostSeen;
+
+    /**
+      Constructor for a tracker. The Inventory creates trackers with the rank and key of each ranking it offers.
+      @param feed the change feed to follow.
+      @param entity ChangeFeed.PART or ChangeFeed.PRODUCT.
+      @param k number of items to rank.
+      @param key reads the current key of an item by ID, or TopK.ABSENT if it is gone or not ranked.
+      @param resolver finds the item with an ID, or null if it is gone.
+      @param ranker offers every ranked item to a heap; used when the ranking is computed from scratch.
+     */
+    TopKTracker(ChangeFeed feed, byte entity, int k, IntToLongFunction key, IntFunction<T> resolver, Consumer<TopK> ranker) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Negative top-K limit " + k);
+        }
+        this.entity = entity;
+        this.k = k;
+        this.capacity = k * 2;
+        this.key = key;
+        this.resolver = resolver;
+        this.ranker = ranker;
+        this.keys = new long[capacity + 1];
+        this.ids = new int[capacity + 1];
+        this.reader = feed.newReader();
+        rank();
+    }
+
+    /**
+      Applies the changes made since the last call and gets the current top k.
+      @return the top k items in rank order, highest first; fewer if fewer items are ranked.
+     */
+    public List<T> refresh() {
+        while (reader.poll(handler, 1024) > 0) {
+            if (reader.getLostCount() != lostSeen) {
+                lostSeen = reader.getLostCount();
+                stale = true;
+            }
+        }
+        if (stale || (size < k && floorKey != TopK.ABSENT)) {
+            rank();
+        }
+        List<T> top = new ArrayList<>(Math.min(k, size));
+        for (int i = 0; i < size && top.size() < k; i++) {
+            T item = resolver.apply(ids[i]);
+            if (item != null) {
+                top.add(item);
+            }
+        }
+        return Collections.unmodifiableList(top);
+    }
+
+    /**
+      Gets the number of items ranked.
+      @return k.
+     */
+    public int getK() {
+        return k;
+    }
+
+    private void onChange(long sequence, byte changedEntity, byte type, int id) {
+        if (type == ChangeFeed.RESET) {
+            stale = true;
+        } else if (changedEntity == entity && !stale) {
+            update(id);
+        }
+    }
+
+    /**
+      Moves a changed item to its place in the buffer, or out of it.
+      @param id the ID of the changed item.
+     */
+    private void update(int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                size--;
+                break;
+            }
+        }
+        long newKey = key.applyAsLong(id);
+        if (newKey == TopK.ABSENT || !TopK.ranksBelow(floorKey, floorId, newKey, id)) {
+            return;
+        }
+        int slot = size;
+        while (slot > 0 && TopK.ranksBelow(keys[slot - 1], ids[slot - 1], newKey, id)) {
+            slot--;
+        }
+        System.arraycopy(keys, slot, keys, slot + 1, size - slot);
+        System.arraycopy(ids, slot, ids, slot + 1, size - slot);
+        keys[slot] = newKey;
+        ids[slot] = id;
+        if (++size > capacity) {
+            size--;
+            floorKey = keys[size];
+            floorId = ids[size];
+        }
+    }
+
+    /**
+      Ranks every item from scratch into the buffer.
+     */
+    private void rank() {
+        TopK top = new TopK(capacity);
+        ranker.accept(top);
+        boolean full = top.size() == capacity;
+        size = top.drain(keys, ids);
+        if (full && size > 0) {
+            floorKey = keys[size - 1];
+            floorId = ids[size - 1];
+        } else {
+            floorKey = TopK.ABSENT;
+            floorId = Integer.MAX_VALUE;
+        }
+        stale = false;
+    }
+}
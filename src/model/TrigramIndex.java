@@ -0,0 +1,137 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+  Inverted index from three character sequences (trigrams) of a name to the IDs whose name contains them.
+  A substring search only has to check the IDs that contain every trigram of the search text instead of every name in the Inventory.
+  Names are indexed in lower case so searches are not case sensitive.
+  @author Nicholas Johnson
+ */
+public class TrigramIndex {
+
+    /**
+      Length of the indexed character sequences.
+     */
+    public static final int GRAM_LENGTH = 3;
+
+    /**
+      Posting sets keyed by trigram. Different trigrams may share a key, which only adds candidates that the caller filters out.
+     */
+    private final IdIndex<IntHashSet> postings = new IdIndex<>();
+
+    /**
+      Number of changes made to the index, so results computed from an earlier state can be recognized.
+     */
+    private int modCount;
+
+    /**
+      Adds the trigrams of a name for an ID.
+      @param id the ID of the part or product.
+      @param name the name to index.
+     */
+    public void add(int id, String name) {
+        if (name == null) {
+            return;
+        }
+        modCount++;
+        String lowerCaseName = name.toLowerCase();
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseName.length(); i++) {
+            int key = gramKey(lowerCaseName, i);
+            IntHashSet ids = postings.get(key);
+            if (ids == null) {
+                ids = new IntHashSet();
+                postings.put(key, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    /**
+      Removes the trigrams of a name for an ID. Must be called with the same name the ID was indexed with.
+      @param id the ID of the part or product.
+      @param name the name that was indexed.
+     */
+    public void remove(int id, String name) {
+        if (name == null) {
+            return;
+        }
+        modCount++;
+        String lowerCaseName = name.toLowerCase();
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseName.length(); i++) {
+            int key = gramKey(lowerCaseName, i);
+            IntHashSet ids = postings.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+      Removes every name from the index.
+     */
+    public void clear() {
+        modCount++;
+        postings.clear();
+    }
+
+    /**
+      Gets the number of changes made to the index. Candidates computed while it had the same count are still current.
+      @return the change count.
+     */
+    public int modCount() {
+        return modCount;
+    }
+
+    /**
+      Gets the IDs whose name may contain the search text. Every ID whose name does contain the text is returned, but some
+      returned names may not, so the caller must still check each candidate.
+      @param lowerCaseQuery the search text in lower case.
+      @return the candidate IDs in ascending order, or null if the text is shorter than a trigram and cannot be narrowed down.
+     */
+    public int[] candidates(String lowerCaseQuery) {
+        if (lowerCaseQuery.length() < GRAM_LENGTH) {
+            return null;
+        }
+        int gramCount = lowerCaseQuery.length() - GRAM_LENGTH + 1;
+        IntHashSet[] sets = new IntHashSet[gramCount];
+        IntHashSet smallest = null;
+        for (int i = 0; i < gramCount; i++) {
+            IntHashSet ids = postings.get(gramKey(lowerCaseQuery, i));
+            if (ids == null) {
+                return new int[0];
+            }
+            sets[i] = ids;
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        int[] result = new int[smallest.size()];
+        int[] count = {0};
+        IntHashSet driver = smallest;
+        driver.forEach(id -> {
+            for (IntHashSet ids : sets) {
+                if (ids != driver && !ids.contains(id)) {
+                    return;
+                }
+            }
+            result[count[0]++] = id;
+        });
+        int[] matches = Arrays.copyOf(result, count[0]);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    /**
+      Builds the key of the trigram starting at a position.
+      @param text the lower case text.
+      @param start position of the first character.
+      @return the trigram key.
+     */
+    private static int gramKey(String text, int start) {
+        return (text.charAt(start) * 31 + text.charAt(start + 1)) * 31 + text.charAt(start + 2);
+    }
+}
@@ -0,0 +1,814 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.BufferedInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+  Append-only log of every change made to the Inventory. The log is replayed when the program starts, so parts and products survive a restart.
+
+  Records are encoded on the calling thread and handed to a background writer thread. The writer takes every record that is waiting,
+  writes them with one call and forces them to disk with one fsync (group commit), so saving a part on the FX thread never waits for the disk.
+  Each record is stored as its length, its body and a CRC32 of the body. A record cut short by a crash fails its check and is dropped on replay.
+  The file starts with a header naming the record format. Prices are written as whole cents, so a replayed price is exactly the price
+  that was saved.
+  @author Nicholas Johnson
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    static final byte ADD_PART = 1;
+    static final byte UPDATE_PART = 2;
+    static final byte DELETE_PART = 3;
+    static final byte SWAP_PART = 4;
+    static final byte ADD_PRODUCT = 5;
+    static final byte UPDATE_PRODUCT = 6;
+    static final byte DELETE_PRODUCT = 7;
+    static final byte SWAP_PRODUCT = 8;
+    static final byte ADJUST_PART_STOCK = 9;
+    static final byte ADJUST_PRODUCT_STOCK = 10;
+    static final byte SET_PART = 11;
+    static final byte SET_PRODUCT = 12;
+    static final byte ADD_ASSOCIATED_PART = 13;
+    static final byte REMOVE_ASSOCIATED_PART = 14;
+
+    /**
+      First bytes of every log file, "IWAL".
+     */
+    private static final int MAGIC = 0x4957414C;
+
+    /**
+      Version of the record format. Version 1 logs had no header and wrote prices as doubles.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+      Length of the file header, the magic number and the format version.
+     */
+    private static final int HEADER_LENGTH = 8;
+
+    /**
+      Most records written and forced together in one group commit.
+     */
+    private static final int MAX_BATCH = 1024;
+
+    /**
+      Record used to wake the writer thread when the log is closed.
+     */
+    private static final byte[] CLOSE_MARKER = new byte[0];
+
+    /**
+      Channel of the log file.
+     */
+    private final FileChannel channel;
+
+    /**
+      Encoded records waiting for the writer thread.
+     */
+    private final BlockingQueue<byte[]> pending = new LinkedBlockingQueue<>();
+
+    /**
+      Background thread that writes and forces batches of records.
+     */
+    private final Thread writer;
+
+    /**
+      Lock held while the file is written, forced or truncated. Kept apart from this object's monitor so appends never wait for the disk.
+     */
+    private final Object ioLock = new Object();
+
+    /**
+      Number of records handed to the writer. Guarded by this object.
+     */
+    private long appendedCount;
+
+    /**
+      Number of records forced to disk. Guarded by this object.
+     */
+    private long durableCount;
+
+    /**
+      Error raised by the writer thread, if any. No records are accepted after a write fails.
+     */
+    private volatile IOException failure;
+
+    /**
+      Set once close has been called.
+     */
+    private volatile boolean closed;
+
+    /**
+      Opens a log file, creating it if needed. The file is not replayed until replay is called.
+      @param file path of the log file.
+      @throws IOException if the file cannot be opened, or was not written in this record format.
+     */
+    public WriteAheadLog(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            checkHeader(file);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        channel.position(channel.size());
+        writer = new Thread(this::writeLoop, "inventory-wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "inventory-wal-shutdown"));
+    }
+
+    /**
+      Writes the header of a new log file, or checks the header of an existing one.
+      @param file path of the log file, for the error message.
+      @throws IOException if the file cannot be read or has another format.
+     */
+    private void checkHeader(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        if (channel.size() == 0) {
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(false);
+            return;
+        }
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                break;
+            }
+        }
+        header.flip();
+        if (header.remaining() < HEADER_LENGTH || header.getInt() != MAGIC) {
+            throw new IOException(file + " is not an inventory log of this version");
+        }
+        int version = header.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException(file + " has log format version " + version + ", expected " + FORMAT_VERSION);
+        }
+    }
+
+    /**
+      Applies every record in the log to the Inventory. Must be called before the log is attached to the Inventory, otherwise the replayed
+      changes would be logged again. A damaged record at the end of the file, left by a crash during a write, is cut off.
+      @return the number of records replayed.
+      @throws IOException if the file cannot be read, or a record cannot be applied to the Inventory. The records before it stay applied.
+     */
+    public int replay() throws IOException {
+        synchronized (ioLock) {
+            return replayRecords();
+        }
+    }
+
+    /**
+      Reads and applies the records of the log file. Called with the IO lock held.
+      @return the number of records replayed.
+      @throws IOException if the file cannot be read.
+     */
+    private int replayRecords() throws IOException {
+        int replayed = 0;
+        long validLength = HEADER_LENGTH;
+        channel.position(HEADER_LENGTH);
+        InputStream fileStream = new BufferedInputStream(Channels.newInputStream(channel), 1 << 16);
+        DataInputStream in = new DataInputStream(fileStream);
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte[] body;
+            try {
+                int length = in.readInt();
+                if (length <= 0) {
+                    break;
+                }
+                body = new byte[length];
+                in.readFully(body);
+                int checksum = in.readInt();
+                crc.reset();
+                crc.update(body, 0, body.length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            try {
+                apply(new DataInputStream(new ByteArrayInputStream(body)));
+            } catch (RuntimeException e) {
+                throw new IOException("Log record " + (replayed + 1) + " does not match the Inventory", e);
+            }
+            validLength += 8 + body.length;
+            replayed++;
+        }
+        channel.truncate(validLength);
+        channel.position(validLength);
+        return replayed;
+    }
+
+    /**
+      Applies one record body to the Inventory.
+      @param in stream over the record body.
+      @throws IOException if the body cannot be decoded.
+     */
+    private static void apply(DataInputStream in) throws IOException {
+        byte op = in.readByte();
+        switch (op) {
+            case ADD_PART:
+                Inventory.addPart(readPart(in));
+                break;
+            case UPDATE_PART: {
+                int index = in.readInt();
+                Inventory.updatePart(index, readPart(in));
+                break;
+            }
+            case DELETE_PART:
+                Inventory.deletePart(Inventory.getAllParts().get(in.readInt()));
+                break;
+            case SWAP_PART:
+                Inventory.swapPartModifyMenu(Inventory.getAllParts().get(in.readInt()));
+                break;
+            case ADD_PRODUCT:
+                Inventory.addProduct(readProduct(in));
+                break;
+            case UPDATE_PRODUCT: {
+                int index = in.readInt();
+                Inventory.updateProduct(index, readProduct(in));
+                break;
+            }
+            case DELETE_PRODUCT:
+                Inventory.deleteProduct(Inventory.getAllProducts().get(in.readInt()));
+                break;
+            case SWAP_PRODUCT:
+                Inventory.swapProductModifyMenu(Inventory.getAllProducts().get(in.readInt()));
+                break;
+            case ADJUST_PART_STOCK: {
+                int partId = in.readInt();
+                Inventory.adjustPartStock(partId, in.readInt(), false);
+                break;
+            }
+            case ADJUST_PRODUCT_STOCK: {
+                int productId = in.readInt();
+                Inventory.adjustProductStock(productId, in.readInt(), false);
+                break;
+            }
+            case SET_PART:
+                setPart(in);
+                break;
+            case SET_PRODUCT:
+                setProduct(in);
+                break;
+            case ADD_ASSOCIATED_PART: {
+                Product product = loggedProduct(in.readInt());
+                product.addAssociatedPart(readPart(in, true));
+                break;
+            }
+            case REMOVE_ASSOCIATED_PART: {
+                Product product = loggedProduct(in.readInt());
+                int partId = in.readInt();
+                for (Part part : product.getAllAssociatedParts()) {
+                    if (part.getId() == partId) {
+                        product.deleteAssociatedPart(part);
+                        break;
+                    }
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown log record type " + op);
+        }
+    }
+
+    /**
+      Applies a record changing a part in place. Only the fields that differ are set, through the part's setters, so the Inventory indexes
+      follow the change.
+      @param in stream over the record body, after the record type.
+      @throws IOException if the body cannot be decoded or the part is not in the Inventory.
+     */
+    private static void setPart(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        Part part = loggedPart(in.readInt());
+        int stock = in.readInt();
+        int min = in.readInt();
+        int max = in.readInt();
+        long priceCents = in.readLong();
+        String partName = in.readUTF();
+        if (part.getMin() != min) {
+            part.setMin(min);
+        }
+        if (part.getMax() != max) {
+            part.setMax(max);
+        }
+        if (part.getStock() != stock) {
+            part.setStock(stock);
+        }
+        if (part.getPriceCents() != priceCents) {
+            part.setPriceCents(priceCents);
+        }
+        if (!partName.equals(nullToEmpty(part.getPartName()))) {
+            part.setPartName(partName);
+        }
+        if (type == PartStore.TYPE_IN_HOUSE) {
+            int machineId = in.readInt();
+            if (part instanceof InHouse && ((InHouse) part).getMachineId() != machineId) {
+                ((InHouse) part).setMachineId(machineId);
+            }
+        } else {
+            String companyName = in.readUTF();
+            if (part instanceof Outsourced && !companyName.equals(nullToEmpty(((Outsourced) part).getCompanyName()))) {
+                ((Outsourced) part).setCompanyName(companyName);
+            }
+        }
+    }
+
+    /**
+      Applies a record changing a product in place. Works the same way as setPart.
+      @param in stream over the record body, after the record type.
+      @throws IOException if the body cannot be decoded or the product is not in the Inventory.
+     */
+    private static void setProduct(DataInputStream in) throws IOException {
+        Product product = loggedProduct(in.readInt());
+        String productName = in.readUTF();
+        long priceCents = in.readLong();
+        int stock = in.readInt();
+        int min = in.readInt();
+        int max = in.readInt();
+        if (product.getMin() != min) {
+            product.setMin(min);
+        }
+        if (product.getMax() != max) {
+            product.setMax(max);
+        }
+        if (product.getStock() != stock) {
+            product.setStock(stock);
+        }
+        if (product.getPriceCents() != priceCents) {
+            product.setPriceCents(priceCents);
+        }
+        if (!productName.equals(nullToEmpty(product.getProductName()))) {
+            product.setProductName(productName);
+        }
+    }
+
+    /**
+      Finds the Inventory part a record refers to.
+      @param partId ID of the part.
+      @return the part.
+      @throws IOException if no part has the ID, which means the log does not match the Inventory it is replayed into.
+     */
+    private static Part loggedPart(int partId) throws IOException {
+        Part part = Inventory.lookupPart(partId);
+        if (part == null) {
+            throw new IOException("Log record refers to part " + partId + ", which is not in the Inventory");
+        }
+        return part;
+    }
+
+    /**
+      Finds the Inventory product a record refers to.
+      @param productId ID of the product.
+      @return the product.
+      @throws IOException if no product has the ID.
+     */
+    private static Product loggedProduct(int productId) throws IOException {
+        Product product = Inventory.lookupProduct(productId);
+        if (product == null) {
+            throw new IOException("Log record refers to product " + productId + ", which is not in the Inventory");
+        }
+        return product;
+    }
+
+    /**
+      Logs a part added to the end of the parts list.
+      @param part the added part.
+     */
+    public void logAddPart(Part part) {
+        append(ADD_PART, -1, part, null);
+    }
+
+    /**
+      Logs a part replacing the part at a list position.
+      @param index position in the parts list.
+      @param part the replacement part.
+     */
+    public void logUpdatePart(int index, Part part) {
+        append(UPDATE_PART, index, part, null);
+    }
+
+    /**
+      Logs a part deleted from a list position.
+      @param index position the part was removed from.
+     */
+    public void logDeletePart(int index) {
+        append(DELETE_PART, index, null, null);
+    }
+
+    /**
+      Logs the original part removed from a list position after the modify menu saved its replacement.
+      @param index position the part was removed from.
+     */
+    public void logSwapPart(int index) {
+        append(SWAP_PART, index, null, null);
+    }
+
+    /**
+      Logs a product added to the end of the products list.
+      @param product the added product.
+     */
+    public void logAddProduct(Product product) {
+        append(ADD_PRODUCT, -1, null, product);
+    }
+
+    /**
+      Logs a product replacing the product at a list position.
+      @param index position in the products list.
+      @param product the replacement product.
+     */
+    public void logUpdateProduct(int index, Product product) {
+        append(UPDATE_PRODUCT, index, null, product);
+    }
+
+    /**
+      Logs a product deleted from a list position.
+      @param index position the product was removed from.
+     */
+    public void logDeleteProduct(int index) {
+        append(DELETE_PRODUCT, index, null, null);
+    }
+
+    /**
+      Logs the original product removed from a list position after the modify menu saved its replacement.
+      @param index position the product was removed from.
+     */
+    public void logSwapProduct(int index) {
+        append(SWAP_PRODUCT, index, null, null);
+    }
+
+    /**
+      Logs a change made in place to a part in the Inventory, through one of its setters. The part is logged by ID with all its fields.
+      @param part the changed part.
+     */
+    public void logSetPart(Part part) {
+        append(SET_PART, -1, part, null);
+    }
+
+    /**
+      Logs a change made in place to a product in the Inventory. The product fields are logged by ID, without its associated parts, which
+      are logged by logAddAssociatedPart and logRemoveAssociatedPart.
+      @param product the changed product.
+     */
+    public void logSetProduct(Product product) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(SET_PRODUCT);
+            writeProductFields(out, product);
+            enqueue(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode log record", e);
+        }
+    }
+
+    /**
+      Logs a part added to the associated parts of a product in the Inventory.
+      @param product the product.
+      @param part the associated part.
+     */
+    public void logAddAssociatedPart(Product product, Part part) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(ADD_ASSOCIATED_PART);
+            out.writeInt(product.getId());
+            writePart(out, part);
+            enqueue(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode log record", e);
+        }
+    }
+
+    /**
+      Logs a part removed from the associated parts of a product in the Inventory. Replay removes the first associated part with the ID.
+      @param product the product.
+      @param part the removed part.
+     */
+    public void logRemoveAssociatedPart(Product product, Part part) {
+        byte[] body = new byte[9];
+        ByteBuffer.wrap(body).put(REMOVE_ASSOCIATED_PART).putInt(product.getId()).putInt(part.getId());
+        enqueue(body);
+    }
+
+    /**
+      Logs a stock adjustment of a part. Adjustments are logged by ID and delta, so adjustments made at the same time replay to the same level
+      in any order.
+      @param partId ID of the part.
+      @param delta amount added to the inventory level.
+     */
+    public void logAdjustPartStock(int partId, int delta) {
+        appendAdjustment(ADJUST_PART_STOCK, partId, delta);
+    }
+
+    /**
+      Logs a stock adjustment of a product. Works the same way as logAdjustPartStock.
+      @param productId ID of the product.
+      @param delta amount added to the inventory level.
+     */
+    public void logAdjustProductStock(int productId, int delta) {
+        appendAdjustment(ADJUST_PRODUCT_STOCK, productId, delta);
+    }
+
+    /**
+      Encodes a stock adjustment record and hands it to the writer thread.
+      @param op record type.
+      @param id ID of the part or product.
+      @param delta amount added to the inventory level.
+     */
+    private void appendAdjustment(byte op, int id, int delta) {
+        byte[] body = new byte[9];
+        ByteBuffer.wrap(body).put(op).putInt(id).putInt(delta);
+        enqueue(body);
+    }
+
+    /**
+      Encodes a record and hands it to the writer thread. Returns without waiting for the disk.
+      @param op record type.
+      @param index list position, or -1 for records that do not use one.
+      @param part part data for part records, else null.
+      @param product product data for product records, else null.
+     */
+    private void append(byte op, int index, Part part, Product product) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(op);
+            if (index >= 0) {
+                out.writeInt(index);
+            }
+            if (part != null) {
+                writePart(out, part);
+            }
+            if (product != null) {
+                writeProduct(out, product);
+            }
+            enqueue(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode log record", e);
+        }
+    }
+
+    /**
+      Hands an encoded record body to the writer thread.
+      @param body the record body.
+     */
+    private void enqueue(byte[] body) {
+        if (failure != null) {
+            throw new IllegalStateException("Inventory log is unavailable", failure);
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Inventory log is closed");
+            }
+            appendedCount++;
+            pending.add(body);
+        }
+    }
+
+    /**
+      Waits until every record appended so far has been forced to disk.
+      @throws IOException if the writer failed.
+     */
+    public synchronized void sync() throws IOException {
+        long target = appendedCount;
+        while (durableCount < target && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+      Discards every record in the log, keeping the header. Used once the Inventory has been saved by other means, such as a snapshot.
+      The caller must make sure no changes are logged while this runs, or they are lost with the rest of the file.
+      @throws IOException if the file cannot be truncated.
+     */
+    public void truncate() throws IOException {
+        sync();
+        synchronized (ioLock) {
+            channel.truncate(HEADER_LENGTH);
+            channel.position(HEADER_LENGTH);
+        }
+    }
+
+    /**
+      Flushes the waiting records, stops the writer thread and closes the file. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.add(CLOSE_MARKER);
+        }
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+      Body of the writer thread. Each pass takes every waiting record, writes them together and forces them with one fsync.
+     */
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>(MAX_BATCH);
+        boolean closing = false;
+        while (!closing) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            pending.drainTo(batch, MAX_BATCH - 1);
+            int size = 0;
+            for (byte[] body : batch) {
+                size += body.length + 8;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            CRC32 crc = new CRC32();
+            int records = 0;
+            for (byte[] body : batch) {
+                if (body == CLOSE_MARKER) {
+                    closing = true;
+                    continue;
+                }
+                crc.reset();
+                crc.update(body, 0, body.length);
+                buffer.putInt(body.length).put(body).putInt((int) crc.getValue());
+                records++;
+            }
+            buffer.flip();
+            try {
+                synchronized (ioLock) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                }
+                synchronized (this) {
+                    durableCount += records;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+      Writes the fields of a part.
+      @param out the record stream.
+      @param part the part to write.
+      @throws IOException if the stream fails.
+     */
+    static void writePart(DataOutputStream out, Part part) throws IOException {
+        boolean inHouse = part instanceof InHouse;
+        out.writeByte(inHouse ? PartStore.TYPE_IN_HOUSE : PartStore.TYPE_OUTSOURCED);
+        out.writeInt(part.getId());
+        out.writeInt(part.getStock());
+        out.writeInt(part.getMin());
+        out.writeInt(part.getMax());
+        out.writeLong(part.getPriceCents());
+        out.writeUTF(nullToEmpty(part.getPartName()));
+        if (inHouse) {
+            out.writeInt(((InHouse) part).getMachineId());
+        } else {
+            out.writeUTF(nullToEmpty(((Outsourced) part).getCompanyName()));
+        }
+    }
+
+    /**
+      Reads a part written by writePart.
+      @param in the record stream.
+      @return a new part with the stored values.
+      @throws IOException if the stream fails.
+     */
+    static Part readPart(DataInputStream in) throws IOException {
+        return readPart(in, false);
+    }
+
+    /**
+      Reads a part written by writePart, optionally reusing the Inventory part with the same ID instead of building a new one.
+      @param in the record stream.
+      @param reuseInventoryPart true to return the Inventory part when one with the stored ID exists.
+      @return the part.
+      @throws IOException if the stream fails.
+     */
+    private static Part readPart(DataInputStream in, boolean reuseInventoryPart) throws IOException {
+        byte type = in.readByte();
+        int id = in.readInt();
+        int stock = in.readInt();
+        int min = in.readInt();
+        int max = in.readInt();
+        long priceCents = in.readLong();
+        String partName = in.readUTF();
+        int machineId = type == PartStore.TYPE_IN_HOUSE ? in.readInt() : 0;
+        String companyName = type == PartStore.TYPE_IN_HOUSE ? null : in.readUTF();
+        Inventory.getPartsIdGenerator().accumulateAndGet(id + 1, Math::max);
+        Part inventoryPart = reuseInventoryPart ? Inventory.lookupPart(id) : null;
+        if (inventoryPart != null) {
+            return inventoryPart;
+        }
+        if (type == PartStore.TYPE_IN_HOUSE) {
+            return new InHouse(id, stock, min, max, partName, priceCents, machineId);
+        }
+        return new Outsourced(id, stock, min, max, partName, priceCents, companyName);
+    }
+
+    /**
+      Writes the fields of a product followed by its associated parts.
+      @param out the record stream.
+      @param product the product to write.
+      @throws IOException if the stream fails.
+     */
+    static void writeProduct(DataOutputStream out, Product product) throws IOException {
+        writeProductFields(out, product);
+        List<Part> associatedParts = product.getAllAssociatedParts();
+        out.writeInt(associatedParts.size());
+        for (Part part : associatedParts) {
+            writePart(out, part);
+        }
+    }
+
+    /**
+      Writes the fields of a product without its associated parts.
+      @param out the record stream.
+      @param product the product to write.
+      @throws IOException if the stream fails.
+     */
+    private static void writeProductFields(DataOutputStream out, Product product) throws IOException {
+        out.writeInt(product.getId());
+        out.writeUTF(nullToEmpty(product.getProductName()));
+        out.writeLong(product.getPriceCents());
+        out.writeInt(product.getStock());
+        out.writeInt(product.getMin());
+        out.writeInt(product.getMax());
+    }
+
+    /**
+      Reads a product written by writeProduct. Associated parts that are still in the Inventory are linked to the Inventory part,
+      others are rebuilt from the stored values.
+      @param in the record stream.
+      @return a new product with the stored values and associated parts.
+      @throws IOException if the stream fails.
+     */
+    static Product readProduct(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        String productName = in.readUTF();
+        long priceCents = in.readLong();
+        int stock = in.readInt();
+        int min = in.readInt();
+        int max = in.readInt();
+        Product product = new Product(id, productName, priceCents, stock, min, max);
+        Inventory.getProductsIdGenerator().accumulateAndGet(id + 1, Math::max);
+        int associatedCount = in.readInt();
+        for (int i = 0; i < associatedCount; i++) {
+            product.addAssociatedPart(readPart(in, true));
+        }
+        return product;
+    }
+
+    /**
+      Replaces a null name with an empty one, since the record format has no null strings.
+      @param name the name to write.
+      @return the name, or an empty string.
+     */
+    private static String nullToEmpty(String name) {
+        return name == null ? "" : name;
+    }
+}
@@ -5,11 +5,21 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import model.IdAllocator;
 import model.InHouse;
 import model.Inventory;
+import model.InventorySnapshot;
 import model.Product;
+import model.WriteAheadLog;
 
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  FUTURE ENHANCEMENT a future enhancement for the program would be to represent product price with a function that
@@ -20,6 +30,33 @@ import java.util.Objects;
  */
 public class Main extends Application {
 
+    /**
+      File holding the Inventory snapshot. Kept in the working directory the program is started from.
+     */
+    private static final Path SNAPSHOT_FILE = Paths.get("inventory.snapshot");
+
+    /**
+      Files holding the high-water marks of leased part and product IDs. Shared by every instance started from the same directory.
+     */
+    private static final Path PART_IDS_FILE = Paths.get("inventory-part-ids.hwm");
+    private static final Path PRODUCT_IDS_FILE = Paths.get("inventory-product-ids.hwm");
+
+    /**
+      Names of the change log files, with the log number as the group.
+     */
+    private static final Pattern LOG_FILE_NAME = Pattern.compile("inventory-(\\d+)\\.wal");
+
+    /**
+      Durable ID allocators attached to the Inventory, or null if the files could not be opened.
+     */
+    private static IdAllocator partIdAllocator;
+    private static IdAllocator productIdAllocator;
+
+    /**
+      Number of the change log that continues from the loaded snapshot. 0 when there is no snapshot yet.
+     */
+    private static long logEpoch;
+
     /**
       This is the start of the method that begins the program. The program exists as a basic inventory manager.
       @param primaryStage This is the main stage and is called whenever the program loads.
@@ -27,34 +64,189 @@ public class Main extends Application {
      */
     @Override
     public void start(Stage primaryStage) throws Exception{
+        Inventory.attachFxThread();
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("../view/MainMenu.fxml")));
         primaryStage.setTitle("Inventory Management System");
         primaryStage.setScene(new Scene(root));
         primaryStage.show();
     }
 
+    /**
+      Called when the program closes. Runs any Inventory changes still queued for the FX thread, flushes and closes the Inventory change log,
+      then writes a new snapshot and deletes the log it replaces, so the next start loads the snapshot instead of replaying a long log.
+     */
+    @Override
+    public void stop() {
+        Inventory.detachFxThread();
+        WriteAheadLog log = Inventory.getWriteAheadLog();
+        if (log == null) {
+            return;
+        }
+        Inventory.setWriteAheadLog(null);
+        log.close();
+        closeIdAllocators();
+        try {
+            InventorySnapshot.write(SNAPSHOT_FILE, logEpoch + 1);
+            Files.deleteIfExists(logFile(logEpoch));
+        } catch (IOException e) {
+            System.err.println("Could not write inventory snapshot " + SNAPSHOT_FILE.toAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+      Attaches ID allocators that record their high-water marks in files, so IDs are not reused after a restart or by another instance.
+      @throws IOException if the files cannot be opened.
+     */
+    private static void openIdAllocators() throws IOException {
+        partIdAllocator = new IdAllocator(Inventory.getPartsIdGenerator(), IdAllocator.DEFAULT_LEASE_SIZE, PART_IDS_FILE);
+        productIdAllocator = new IdAllocator(Inventory.getProductsIdGenerator(), IdAllocator.DEFAULT_LEASE_SIZE, PRODUCT_IDS_FILE);
+        Inventory.setIdAllocators(partIdAllocator, productIdAllocator);
+    }
+
+    /**
+      Goes back to in-memory ID allocators and closes the high-water mark files.
+     */
+    private static void closeIdAllocators() {
+        Inventory.setIdAllocators(new IdAllocator(Inventory.getPartsIdGenerator(), IdAllocator.DEFAULT_LEASE_SIZE),
+                new IdAllocator(Inventory.getProductsIdGenerator(), IdAllocator.DEFAULT_LEASE_SIZE));
+        if (partIdAllocator != null) partIdAllocator.close();
+        if (productIdAllocator != null) productIdAllocator.close();
+    }
+
+    /**
+      Gets the change log file for a log number. A new log is started each time a snapshot is written.
+      @param epoch the log number.
+      @return path of the log file.
+     */
+    private static Path logFile(long epoch) {
+        return Paths.get("inventory-" + epoch + ".wal");
+    }
+
+    /**
+      Finds a log number after every change log in the working directory. Used when the snapshot could not be loaded, so the new log does
+      not replay or overwrite a log that belongs to the rejected snapshot.
+      @return the unused log number.
+     */
+    private static long unusedLogEpoch() {
+        long epoch = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get("."), "inventory-*.wal")) {
+            for (Path file : files) {
+                Matcher matcher = LOG_FILE_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    epoch = Math.max(epoch, Long.parseLong(matcher.group(1)) + 1);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            epoch = System.currentTimeMillis();
+        }
+        return epoch;
+    }
 
+    /**
+      Moves a file that could not be read out of the way, so it is kept for recovery and not overwritten by the next save.
+      @param file the file.
+      @return the path the file was moved to, or the file itself if it could not be moved.
+     */
+    private static Path setAside(Path file) {
+        Path rejected = file.resolveSibling(file.getFileName() + ".rejected-" + System.currentTimeMillis());
+        try {
+            return Files.move(file, rejected);
+        } catch (IOException e) {
+            System.err.println("Could not move " + file.toAbsolutePath() + " aside: " + e.getMessage());
+            return file;
+        }
+    }
 
     /**
-      The main method of the program. A sample part and product are provided as models.
+      Restores the Inventory from the snapshot and the change log written after it, then attaches the change log and the ID allocators.
+      A snapshot or log that cannot be read is moved aside and reported, and the Inventory starts from what could be restored. A rejected
+      snapshot is replaced by an empty one pointing at a new log number, so the next start replays the new log and not an old one. The change
+      log and the ID allocators are opened either way, so changes made from then on are still saved.
+      @return true if everything found on disk was restored.
+     */
+    private static boolean restore() {
+        boolean restored = true;
+        if (Files.exists(SNAPSHOT_FILE)) {
+            try {
+                logEpoch = InventorySnapshot.load(SNAPSHOT_FILE);
+            } catch (IOException e) {
+                restored = false;
+                Path rejected = setAside(SNAPSHOT_FILE);
+                logEpoch = unusedLogEpoch();
+                System.err.println("Could not load inventory snapshot: " + e.getMessage() + ". The file was kept as "
+                        + rejected.toAbsolutePath() + " and the Inventory starts empty.");
+                try {
+                    InventorySnapshot.write(SNAPSHOT_FILE, logEpoch);
+                } catch (IOException writeError) {
+                    System.err.println("Could not write an empty inventory snapshot: " + writeError.getMessage());
+                }
+            }
+        }
+        WriteAheadLog log = null;
+        try {
+            log = new WriteAheadLog(logFile(logEpoch));
+            log.replay();
+        } catch (IOException e) {
+            restored = false;
+            if (log != null) {
+                log.close();
+                log = null;
+            }
+            Path rejected = setAside(logFile(logEpoch));
+            System.err.println("Could not replay inventory log: " + e.getMessage() + ". The file was kept as " + rejected.toAbsolutePath()
+                    + " and changes after the last snapshot may be missing.");
+        }
+        try {
+            if (log == null) {
+                log = new WriteAheadLog(logFile(logEpoch));
+            }
+            Inventory.setWriteAheadLog(log);
+        } catch (IOException e) {
+            System.err.println("Could not open inventory log " + logFile(logEpoch).toAbsolutePath() + ", changes will not be saved: "
+                    + e.getMessage());
+        }
+        try {
+            openIdAllocators();
+        } catch (IOException e) {
+            System.err.println("Could not open the ID high-water mark files, IDs may be reused after a restart: " + e.getMessage());
+        }
+        return restored;
+    }
+
+
+
+    /**
+      The main method of the program. The Inventory is restored from the snapshot and the change log written after it, and a sample part
+      and product are provided as models the first time the program runs. Sample data is not added when a snapshot or log could not be
+      restored, so it is never saved over a catalog that is only set aside.
       @param args Important for javadoc creation.
      */
     public static void main(String[] args) {
 
+        boolean restored = restore();
+
+        if (restored && Inventory.getAllParts().isEmpty() && Inventory.getAllProducts().isEmpty()) {
+            seedSampleData();
+        }
 
-        int partId = Inventory.getPartsIdGenerator().get();
+      launch(args);
+
+    }
+
+    /**
+      Adds the sample part and product. Used the first time the program runs, before anything has been saved.
+     */
+    private static void seedSampleData() {
+        int partId = Inventory.nextPartId();
         InHouse inHouse1 = new InHouse(partId, 5, 1, 10, "Saddle Bags", 85.0, 75);
 
 
         Inventory.addPart(inHouse1);
 
 
-        int productId = Inventory.getProductsIdGenerator().get();
+        int productId = Inventory.nextProductId();
         Product product1 = new Product(productId, "Road Bike (Commuter)", 999.99, 3, 1, 5);
 
         Inventory.addProduct(product1);
-
-      launch(args);
-
     }
 }
@@ -0,0 +1,124 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+  Tests for CsvImporter: rows are added in chunks, products resolve their associated parts through file IDs and Inventory IDs, and rows
+  that cannot be resolved or checked are rejected with their line number.
+  @author Nicholas Johnson
+ */
+class CsvImporterTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+      Gets the names of the associated parts of the product with a name.
+      @param productName name of the product.
+      @return the part names, in order.
+     */
+    private static List<String> associatedPartNames(String productName) {
+        List<String> names = new ArrayList<>();
+        for (Part part : Inventory.lookupProduct(productName).get(0).getAllAssociatedParts()) {
+            names.add(part.getPartName());
+        }
+        return names;
+    }
+
+    @Test
+    void productsUseFileIdsAcrossChunksAndInventoryIds() throws IOException {
+        Part existing = new InHouse(Inventory.nextPartId(), 5, 1, 10, "Existing", 100L, 1);
+        Inventory.addPart(existing);
+        Inventory.awaitPendingChanges();
+        String csv = "\uFEFFtype,name,price,stock,min,max,extra,id\n"
+                + "# parts first\n"
+                + "InHouse,Wheel,10.00,5,1,10,3,1\n"
+                + "Outsourced,\"Seat, padded\",5.5,5,1,10,\"Acme \"\"Seats\"\"\",2\n"
+                + "\n"
+                + "Outsourced,Bell,1.505,5,1,10,Acme\n"
+                + "Product,Bike,100,2,1,5,@1;@2;@1;" + existing.getId() + "\n"
+                + "Product,Unicycle,50,1,0,5,\n";
+
+        Path file = directory.resolve("import.csv");
+        Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+        CsvImporter.ImportResult result = new CsvImporter(2).importFile(file);
+
+        assertEquals(5, result.getRowsRead());
+        assertEquals(5, result.getRowsImported());
+        assertEquals(0, result.getRowsRejected(), result.getErrors().toString());
+        assertEquals(List.of("Wheel", "Seat, padded", "Wheel", "Existing"), associatedPartNames("Bike"));
+        assertEquals(List.of(), associatedPartNames("Unicycle"));
+        Outsourced seat = (Outsourced) Inventory.lookupPart("Seat, padded").get(0);
+        assertEquals("Acme \"Seats\"", seat.getCompanyName());
+        assertEquals(550L, seat.getPriceCents());
+        assertEquals(151L, Inventory.lookupPart("Bell").get(0).getPriceCents());
+        assertEquals(2 * 1000 + 550 + 100, Inventory.lookupProduct("Bike").get(0).getPartsCostCents());
+        assertTrue(Inventory.isPartUsed(existing.getId()));
+    }
+
+    @Test
+    void rejectsRowsThatDoNotResolveOrCheck() throws IOException {
+        String csv = "InHouse,Rim,10.00,5,1,10,3,1\n"
+                + "InHouse,Spoke,1.00,5,1,10,3,1\n"
+                + "Outsourced,Saddle,5.5,5,1,10,Acme,2\n"
+                + "Outsourced,Horn,1.5,5,1,10,Acme,3\n"
+                + "Product,Cruiser,100,2,1,5,@1;@2\n"
+                + "Product,Trike,100,2,1,5,@1;99999\n"
+                + "Product,Tandem,100,2,1,5,@3\n"
+                + "InHouse,Pedal,2.00,11,1,10,3\n"
+                + "Gadget,Thing,1,1,0,1,x\n"
+                + "Product,Cart,abc,1,0,1,\n";
+        CsvImporter.ImportResult result = new CsvImporter(3, 2).importCsv(new StringReader(csv));
+
+        assertEquals(10, result.getRowsRead());
+        assertEquals(3, result.getRowsImported());
+        assertEquals(7, result.getRowsRejected());
+        assertEquals(List.of(
+                "Line 2: part ID 1 is used twice in the file",
+                "Line 4: more than 2 part IDs given in the file",
+                "Line 7: no part row with part ID 3 before this row",
+                "Line 8: inventory must be between min and max",
+                "Line 9: unknown type Gadget",
+                "Line 10: invalid price 'abc'",
+                "Line 6: associated part 99999 is not in the Inventory"), sortByStage(result.getErrors()));
+        for (String partName : List.of("Spoke", "Horn", "Pedal", "Thing")) {
+            assertTrue(Inventory.lookupPart(partName).isEmpty(), partName);
+        }
+        for (String productName : List.of("Trike", "Tandem", "Cart")) {
+            assertTrue(Inventory.lookupProduct(productName).isEmpty(), productName);
+        }
+        assertEquals(List.of("Rim", "Saddle"), associatedPartNames("Cruiser"));
+    }
+
+    /**
+      Orders the error messages the way the importer finds them: row checks while reading come before products rejected at a flush.
+      @param errors the messages.
+      @return the messages, row checks first.
+     */
+    private static List<String> sortByStage(List<String> errors) {
+        List<String> sorted = new ArrayList<>();
+        for (String error : errors) {
+            if (!error.contains("is not in the Inventory")) {
+                sorted.add(error);
+            }
+        }
+        for (String error : errors) {
+            if (error.contains("is not in the Inventory")) {
+                sorted.add(error);
+            }
+        }
+        return sorted;
+    }
+}
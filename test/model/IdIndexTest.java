@@ -0,0 +1,84 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+  Tests for IdIndex, mainly that deletes shift later entries of a probe run back so every remaining ID is still found.
+  @author Nicholas Johnson
+ */
+class IdIndexTest {
+
+    /**
+      Finds IDs that share a home slot in the smallest table, so they form one probe run.
+      @param count number of IDs to find.
+      @return the IDs.
+     */
+    private static List<Integer> collidingIds(int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; ids.size() < count; id++) {
+            int h = id * 0x9E3779B9;
+            if (((h ^ (h >>> 16)) & 15) == 3) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    void removingTheStartOfAProbeRunKeepsTheRestFound() {
+        IdIndex<String> index = new IdIndex<>();
+        List<Integer> ids = collidingIds(5);
+        for (int id : ids) {
+            index.put(id, "v" + id);
+        }
+        assertEquals("v" + ids.get(0), index.remove((int) ids.get(0)));
+        assertEquals("v" + ids.get(2), index.remove((int) ids.get(2)));
+        assertNull(index.get(ids.get(0)));
+        assertNull(index.get(ids.get(2)));
+        for (int id : List.of(ids.get(1), ids.get(3), ids.get(4))) {
+            assertEquals("v" + id, index.get(id));
+        }
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void removeWithExpectedValueOnlyRemovesThatValue() {
+        IdIndex<String> index = new IdIndex<>();
+        index.put(7, "old");
+        index.put(7, "new");
+        assertFalse(index.remove(7, "old"));
+        assertEquals("new", index.get(7));
+        assertTrue(index.remove(7, "new"));
+        assertFalse(index.containsId(7));
+    }
+
+    @Test
+    void matchesAHashMapOverRandomPutsAndRemoves() {
+        IdIndex<Integer> index = new IdIndex<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            int id = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), index.remove(id));
+            } else {
+                assertEquals(expected.put(id, i), index.put(id, i));
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (int id = 0; id < 2_000; id++) {
+            assertEquals(expected.get(id), index.get(id));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package model;
+
+/**
+  Renders the parts and products of the Inventory as text, so tests can compare the Inventory before and after it is saved and restored.
+  @author Nicholas Johnson
+ */
+final class InventoryDump {
+
+    private InventoryDump() {
+    }
+
+    /**
+      Describes every part and product in list order, with all their fields and the IDs of the associated parts.
+      @return the description.
+     */
+    static String describe() {
+        Inventory.awaitPendingChanges();
+        StringBuilder text = new StringBuilder();
+        for (Part part : Inventory.copyAllParts()) {
+            text.append("part ").append(part.getId()).append(' ').append(part.getPartName()).append(' ').append(part.getStock())
+                    .append(' ').append(part.getMin()).append(' ').append(part.getMax()).append(' ').append(part.getPriceCents());
+            if (part instanceof InHouse) {
+                text.append(" machine ").append(((InHouse) part).getMachineId());
+            } else {
+                text.append(" company ").append(((Outsourced) part).getCompanyName());
+            }
+            text.append('\n');
+        }
+        for (Product product : Inventory.copyAllProducts()) {
+            text.append("product ").append(product.getId()).append(' ').append(product.getProductName()).append(' ')
+                    .append(product.getStock()).append(' ').append(product.getMin()).append(' ').append(product.getMax()).append(' ')
+                    .append(product.getPriceCents()).append(" parts");
+            for (Part part : product.getAllAssociatedParts()) {
+                text.append(' ').append(part.getId());
+            }
+            text.append(" cost ").append(product.getPartsCostCents()).append('\n');
+        }
+        return text.toString();
+    }
+}
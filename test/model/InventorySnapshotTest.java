@@ -0,0 +1,89 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+  Tests for InventorySnapshot: a written snapshot loads back to the same parts and products, with the indexes rebuilt.
+  @author Nicholas Johnson
+ */
+class InventorySnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadRestoresWhatWasWritten() throws IOException {
+        List<Part> parts = new ArrayList<>();
+        for (int id = 1; id <= 2_000; id++) {
+            if (id % 2 == 0) {
+                parts.add(new Outsourced(id, id % 40, 5, 100, "Part " + id, 250L + id, "Supplier " + id % 13));
+            } else {
+                parts.add(new InHouse(id, id % 40, 5, 100, "Part " + id, 125L + id, id % 31));
+            }
+        }
+        Inventory.addParts(parts);
+        Inventory.awaitPendingChanges();
+        Inventory.deletePart(Inventory.lookupPart(10));
+        Product bike = new Product(1, "Bike", 9900L, 2, 1, 5);
+        bike.addAssociatedPart(Inventory.lookupPart(1));
+        bike.addAssociatedPart(Inventory.lookupPart(2));
+        bike.addAssociatedPart(Inventory.lookupPart(1));
+        Inventory.addProduct(bike);
+        Inventory.addProduct(new Product(2, "Trike", 4500L, 1, 0, 3));
+        String written = InventoryDump.describe();
+
+        Path file = directory.resolve("inventory.snapshot");
+        InventorySnapshot.write(file, 17);
+        Part before = Inventory.lookupPart(1);
+        assertEquals(17, InventorySnapshot.load(file));
+
+        assertEquals(written, InventoryDump.describe());
+        Part loaded = Inventory.lookupPart(1);
+        assertNotSame(before, loaded);
+        assertEquals("Part 1", loaded.getPartName());
+        assertNull(Inventory.lookupPart(10));
+        assertEquals(1, Inventory.lookupPart("Part 1999").size());
+        assertSame(loaded, Inventory.lookupProduct(1).getAllAssociatedParts().get(0));
+        assertTrue(Inventory.isPartUsed(2));
+        assertEquals(parts.size() - 1, Inventory.getAllParts().size());
+    }
+
+    @Test
+    void rejectsATruncatedSnapshotAndKeepsTheInventory() throws IOException {
+        Inventory.addPart(new InHouse(1, 5, 1, 10, "Bolt", 125L, 7));
+        Inventory.addProduct(new Product(1, "Bike", 9900L, 2, 1, 5));
+        Inventory.awaitPendingChanges();
+        Path file = directory.resolve("truncated.snapshot");
+        InventorySnapshot.write(file, 0);
+        byte[] bytes = Files.readAllBytes(file);
+        String before = InventoryDump.describe();
+        for (int length : new int[] {bytes.length - 8, bytes.length / 2, 70}) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> InventorySnapshot.load(file));
+            assertEquals(before, InventoryDump.describe());
+        }
+    }
+
+    @Test
+    void rejectsAFileThatIsNotASnapshot() throws IOException {
+        Path file = directory.resolve("garbage.snapshot");
+        Files.write(file, "not a snapshot".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> InventorySnapshot.load(file));
+    }
+}
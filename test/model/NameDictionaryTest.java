@@ -0,0 +1,76 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+  Tests for NameDictionary: names are stored once, read back exactly, and freed references are reused without old names leaking through.
+  @author Nicholas Johnson
+ */
+class NameDictionaryTest {
+
+    @Test
+    void internReturnsOneReferencePerName() {
+        NameDictionary names = new NameDictionary();
+        int bike = names.intern("Road Bike (Red)");
+        int blue = names.intern("Road Bike (Blue)");
+        assertNotEquals(bike, blue);
+        assertEquals(bike, names.intern("Road Bike (Red)"));
+        assertEquals(bike, names.lookup("Road Bike (Red)"));
+        assertEquals(NameDictionary.NO_NAME, names.lookup("Road Bike"));
+        assertEquals(NameDictionary.NO_NAME, names.intern(null));
+        assertNull(names.get(NameDictionary.NO_NAME));
+        assertEquals(2, names.nameCount());
+    }
+
+    @Test
+    void namesReadBackAcrossManyBlocks() {
+        NameDictionary names = new NameDictionary();
+        List<String> added = new ArrayList<>();
+        List<Integer> references = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            String name = (i % 3 == 0 ? "Wheel " : i % 3 == 1 ? "Wheel Hub " : "Spoke ñ ") + (i * 7919 % 5_000);
+            added.add(name);
+            references.add(names.intern(name));
+        }
+        added.add("");
+        references.add(names.intern(""));
+        for (int i = 0; i < added.size(); i++) {
+            assertEquals(added.get(i), names.get(references.get(i)));
+        }
+    }
+
+    @Test
+    void releasedReferenceIsReusedForTheNextName() {
+        NameDictionary names = new NameDictionary();
+        int kept = names.intern("Bolt");
+        int edited = names.intern("Nut");
+        names.retain(edited);
+        names.release(edited);
+        assertEquals("Nut", names.get(edited));
+        names.release(edited);
+        assertEquals(1, names.nameCount());
+        assertEquals(NameDictionary.NO_NAME, names.lookup("Nut"));
+
+        int reused = names.intern("Washer");
+        assertEquals(edited, reused);
+        assertEquals("Washer", names.get(reused));
+        assertEquals("Bolt", names.get(kept));
+        assertEquals(2, names.size());
+        assertNotEquals(reused, names.intern("Nut"));
+    }
+
+    @Test
+    void getRejectsReferencesThatWereNeverHandedOut() {
+        NameDictionary names = new NameDictionary();
+        names.intern("Bolt");
+        assertThrows(IndexOutOfBoundsException.class, () -> names.get(1));
+    }
+}
@@ -0,0 +1,79 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+  Tests for parts whose store row the Inventory frees when it drops them.
+  @author Nicholas Johnson
+ */
+class PartTest {
+
+    @Test
+    void deletedPartKeepsItsValuesAfterItsRowIsReused() {
+        InHouse bolt = new InHouse(1, 5, 0, 10, "Bolt", 250L, 7);
+        Inventory.addPart(bolt);
+        Inventory.awaitPendingChanges();
+        int row = bolt.getRow();
+        assertTrue(Inventory.deletePart(bolt));
+        assertTrue(bolt.isFreed());
+
+        List<InHouse> springs = new ArrayList<>();
+        InHouse spring;
+        do {
+            spring = new InHouse(2, 9, 1, 20, "Spring", 999L, 1);
+            springs.add(spring);
+        } while (spring.getRow() != row && springs.size() < 1_000);
+        assertEquals(row, spring.getRow());
+        assertEquals("Bolt", bolt.getPartName());
+        assertEquals(250L, bolt.getPriceCents());
+        assertEquals(7, bolt.getMachineId());
+        bolt.setStock(8);
+        assertEquals(8, bolt.getStock());
+        assertEquals(9, spring.getStock());
+    }
+
+    @Test
+    void replacedPartIsFreedButAPartAProductListsIsKept() {
+        Outsourced nut = new Outsourced(11, 5, 0, 10, "Nut", 50L, "Acme");
+        Outsourced washer = new Outsourced(12, 5, 0, 10, "Washer", 10L, "Acme");
+        Inventory.addPart(nut);
+        Inventory.addPart(washer);
+        Product bike = new Product(11, "Bike", 9900L, 2, 1, 5);
+        bike.addAssociatedPart(washer);
+        Inventory.addProduct(bike);
+        Inventory.awaitPendingChanges();
+
+        assertTrue(Inventory.replacePart(11, new Outsourced(11, 6, 0, 10, "Lock Nut", 55L, "Acme"), nut.getVersion()));
+        assertTrue(nut.isFreed());
+        assertEquals("Nut", nut.getPartName());
+        assertTrue(Inventory.deletePart(washer));
+        assertFalse(washer.isFreed());
+        assertEquals(10L, Inventory.lookupProduct(11).getPartsCostCents());
+    }
+
+    @Test
+    void freedPartIsAddedToAProductAsACopy() {
+        InHouse pedal = new InHouse(21, 4, 0, 10, "Pedal", 300L, 3);
+        Inventory.addPart(pedal);
+        Product trike = new Product(21, "Trike", 4500L, 1, 0, 3);
+        Inventory.addProduct(trike);
+        Inventory.awaitPendingChanges();
+        assertTrue(Inventory.deletePart(pedal));
+
+        trike.addAssociatedPart(pedal);
+        Inventory.awaitPendingChanges();
+        Part added = trike.getAllAssociatedParts().get(0);
+        assertNotSame(pedal, added);
+        assertFalse(added.isFreed());
+        assertEquals("Pedal", added.getPartName());
+        assertEquals(300L, trike.getPartsCostCents());
+    }
+}
@@ -0,0 +1,55 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+  Tests for Price: parsing rounds to the nearest cent half up, and conversions and formatting keep prices exact.
+  @author Nicholas Johnson
+ */
+class PriceTest {
+
+    @Test
+    void parsesWholeAndFractionalPrices() {
+        assertEquals(1200, Price.parse("12"));
+        assertEquals(1250, Price.parse("12.5"));
+        assertEquals(1250, Price.parse("$12.50"));
+        assertEquals(-99, Price.parse("-0.99"));
+        assertEquals(99, Price.parse("+.99"));
+        assertEquals(1200, Price.parse("12."));
+        assertEquals(1234, Price.parse("  12.34  "));
+    }
+
+    @Test
+    void roundsDigitsPastTheCentsHalfUp() {
+        assertEquals(1234, Price.parse("12.344"));
+        assertEquals(1235, Price.parse("12.345"));
+        assertEquals(1234, Price.parse("12.3449999"));
+        assertEquals(1235, Price.parse("12.3450001"));
+        assertEquals(1000, Price.parse("9.995"));
+        assertEquals(1, Price.parse("0.005"));
+        assertEquals(0, Price.parse("0.004"));
+        assertEquals(-1235, Price.parse("-12.345"));
+    }
+
+    @Test
+    void rejectsTextThatIsNotAPrice() {
+        for (String text : new String[] {"", " ", "$", "-", ".", "12.3.4", "1,000", "12a", "$-5", "--1"}) {
+            assertThrows(NumberFormatException.class, () -> Price.parse(text), text);
+        }
+        assertThrows(NumberFormatException.class, () -> Price.parse("92233720368547758.08"));
+        assertThrows(NumberFormatException.class, () -> Price.parse("99999999999999999999"));
+    }
+
+    @Test
+    void convertsAndFormatsExactly() {
+        assertEquals(92233720368547758_07L, Price.parse("92233720368547758.07"));
+        assertEquals(30, Price.ofDouble(0.1 + 0.2));
+        assertEquals(0.3, Price.toDouble(30));
+        assertEquals("12.05", Price.format(1205));
+        assertEquals("-0.05", Price.format(-5));
+        assertEquals("0.00", Price.format(0));
+    }
+}
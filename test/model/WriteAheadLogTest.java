@@ -0,0 +1,133 @@
+package model;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+  Tests for WriteAheadLog. Changes are made with the log attached, the Inventory is emptied by loading an empty snapshot, and replaying
+  the log must bring back exactly the same parts and products.
+  @author Nicholas Johnson
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    static Path directory;
+
+    private static Path emptySnapshot;
+
+    @BeforeAll
+    static void writeEmptySnapshot() throws IOException {
+        emptySnapshot = directory.resolve("empty.snapshot");
+        InventorySnapshot.write(emptySnapshot, 0);
+    }
+
+    @BeforeEach
+    void emptyInventory() throws IOException {
+        Inventory.setWriteAheadLog(null);
+        InventorySnapshot.load(emptySnapshot);
+    }
+
+    /**
+      Makes one of each kind of change with a log attached.
+      @param file path of the log.
+      @return the Inventory after the changes.
+      @throws IOException if the log cannot be written.
+     */
+    private static String recordChanges(Path file) throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            Inventory.setWriteAheadLog(log);
+            InHouse bolt = new InHouse(1, 5, 1, 10, "Bolt", 125L, 7);
+            Outsourced nut = new Outsourced(2, 5, 1, 10, "Nut", 50L, "Acme");
+            Inventory.addPart(bolt);
+            Inventory.addParts(List.of(nut, new InHouse(3, 4, 0, 9, "Washer", 10L, 2), new InHouse(4, 1, 0, 9, "Spring", 30L, 2)));
+            Product bike = new Product(1, "Bike", 9900L, 2, 1, 5);
+            Inventory.addProduct(bike);
+            Inventory.awaitPendingChanges();
+
+            bolt.setStock(8);
+            bolt.setPriceCents(333);
+            bolt.setMachineId(42);
+            bolt.setPartName("Hex Bolt");
+            nut.setCompanyName("Globex");
+            nut.setMax(20);
+            bike.setStock(4);
+            bike.setPriceCents(12345);
+            bike.addAssociatedPart(bolt);
+            bike.addAssociatedPart(nut);
+            bike.addAssociatedPart(bolt);
+            Inventory.awaitPendingChanges();
+            bike.deleteAssociatedPart(nut);
+            Inventory.adjustPartStock(1, 2);
+            Inventory.adjustProductStock(1, -1);
+
+            Part washer = Inventory.lookupPart(3);
+            Inventory.replacePart(3, new Outsourced(3, 6, 0, 9, "Flat Washer", 12L, "Initech"), washer.getVersion());
+            Inventory.updateParts(Map.of(2, new Outsourced(2, 7, 1, 20, "Lock Nut", 55L, "Globex")));
+            Inventory.deletePart(Inventory.lookupPart(4));
+            Inventory.addProduct(new Product(2, "Trike", 4500L, 1, 0, 3));
+            Inventory.awaitPendingChanges();
+            log.sync();
+            Inventory.setWriteAheadLog(null);
+        }
+        return InventoryDump.describe();
+    }
+
+    @Test
+    void replayRestoresEveryChange() throws IOException {
+        Path file = directory.resolve("round-trip.wal");
+        String recorded = recordChanges(file);
+        assertEquals("part 1 Hex Bolt 10 1 10 333 machine 42\n"
+                + "part 2 Lock Nut 7 1 20 55 company Globex\n"
+                + "part 3 Flat Washer 6 0 9 12 company Initech\n"
+                + "product 1 Bike 3 1 5 12345 parts 1 1 cost 666\n"
+                + "product 2 Trike 1 0 3 4500 parts cost 0\n", recorded);
+
+        InventorySnapshot.load(emptySnapshot);
+        assertEquals("", InventoryDump.describe());
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            assertTrue(log.replay() > 0);
+        }
+        assertEquals(recorded, InventoryDump.describe());
+    }
+
+    @Test
+    void replayCutsOffATornRecordAtTheEnd() throws IOException {
+        Path file = directory.resolve("torn.wal");
+        String recorded = recordChanges(file);
+        int replayed;
+        InventorySnapshot.load(emptySnapshot);
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            replayed = log.replay();
+        }
+        long length = Files.size(file);
+        Files.write(file, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        InventorySnapshot.load(emptySnapshot);
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            assertEquals(replayed, log.replay());
+        }
+        assertEquals(recorded, InventoryDump.describe());
+        assertEquals(length, Files.size(file));
+    }
+
+    @Test
+    void rejectsAFileInAnotherFormat() throws IOException {
+        Path file = directory.resolve("other.wal");
+        Files.write(file, "not a log at all".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> new WriteAheadLog(file));
+    }
+}